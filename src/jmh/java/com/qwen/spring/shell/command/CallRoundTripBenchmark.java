@@ -0,0 +1,70 @@
+package com.qwen.spring.shell.command;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete {@code call --args} through HttpInvoker to an in-process stub service,
+ * including binding, serialization, the local HTTP round trip and result formatting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallRoundTripBenchmark {
+
+    @Param({"pooled", "simple"})
+    private String transport;
+
+    @Param({"100", "100000"})
+    private int resultSize;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    private Commands commands;
+
+    private File output;
+
+    @Setup
+    public void setup() throws IOException {
+        StubShellRemoteService service = new StubShellRemoteService(10, 10);
+        StringBuilder sb = new StringBuilder("{\"items\":[");
+        while(sb.length() < resultSize) {
+            sb.append("{\"orderId\":1,\"name\":\"item\"},");
+        }
+        String result = sb.append("{}]}").toString();
+        service.setResult(params -> result);
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        properties.setTransport(transport);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        commands = ShellFixture.commands(shell, properties, null);
+        output = File.createTempFile("jmh-call", ".json");
+        output.deleteOnExit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        shell.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public String call() throws IOException {
+        return commands.callMethod("method1", output.getPath(), null, false, false, null, null, 4, false, "[42, \"name\"]");
+    }
+}
@@ -0,0 +1,52 @@
+package com.qwen.spring.shell.command;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of prompted literals, as done by {@code Commands.value}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValueConversionBenchmark {
+
+    @Param({"java.lang.String", "java.lang.Long", "java.math.BigDecimal", "com.example.OrderQuery"})
+    private String type;
+
+    private String literal;
+
+    private Gson gson = new Gson();
+
+    @Setup
+    public void setup() {
+        switch (type) {
+            case "java.lang.Long":
+                literal = "1234567890";
+                break;
+            case "java.math.BigDecimal":
+                literal = "12345.67";
+                break;
+            case "com.example.OrderQuery":
+                literal = "{\"orderId\":1234567890,\"status\":\"PAID\",\"items\":[1,2,3]}";
+                break;
+            default:
+                literal = "hello world";
+        }
+    }
+
+    @Benchmark
+    public Object literal() {
+        return ParamConverter.of(type).convert(literal, type, false, gson);
+    }
+
+    @Benchmark
+    public Object typed() {
+        return ParamConverter.of(type).convert(literal, type, true, gson);
+    }
+}
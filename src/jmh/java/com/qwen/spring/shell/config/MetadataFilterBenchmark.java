@@ -0,0 +1,65 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering of the component and method listings used by {@code ls}, {@code cd} and
+ * {@code call}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataFilterBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int entries;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new StubServer(new StubShellRemoteService(entries, entries));
+        shell = ShellFixture.shell(new ShellProperties());
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+    }
+
+    @TearDown
+    public void tearDown() {
+        shell.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public List<?> listComponentsContains() {
+        return shell.listComponents("999", false);
+    }
+
+    @Benchmark
+    public List<?> listComponentsPrefix() {
+        return shell.listComponents("component999", true);
+    }
+
+    @Benchmark
+    public List<?> listMethodsContains() {
+        return shell.listMethods("999", false);
+    }
+
+    @Benchmark
+    public List<?> methodsNamed() {
+        return shell.methodsNamed("method999");
+    }
+}
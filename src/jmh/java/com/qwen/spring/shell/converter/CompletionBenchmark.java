@@ -0,0 +1,69 @@
+package com.qwen.spring.shell.converter;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.shell.core.Completion;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TAB completion proposals for components and methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int entries;
+
+    @Param({"component12", "method3"})
+    private String existingData;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    private CompletionConverter converter;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new StubServer(new StubShellRemoteService(entries, entries));
+        shell = ShellFixture.shell(new ShellProperties());
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        converter = new CompletionConverter();
+        ReflectionTestUtils.setField(converter, "shell", shell);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shell.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public List<Completion> component() {
+        List<Completion> completions = new ArrayList<>();
+        converter.getAllPossibleValues(completions, String.class, existingData, "completion-component", null);
+        return completions;
+    }
+
+    @Benchmark
+    public List<Completion> method() {
+        List<Completion> completions = new ArrayList<>();
+        converter.getAllPossibleValues(completions, String.class, existingData, "completion-method", null);
+        return completions;
+    }
+}
@@ -0,0 +1,53 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pretty-printing a call result: the former Gson tree round trip against the streaming
+ * {@link JsonPrinter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultFormattingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int items;
+
+    private String result;
+
+    private Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"total\":").append(items).append(",\"items\":[");
+        for(int i = 0;i<items;i++) {
+            if(i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"orderId\":").append(i).append(",\"name\":\"item").append(i)
+                    .append("\",\"price\":12.50,\"tags\":[\"a\",\"b\"],\"remark\":null}");
+        }
+        result = sb.append("]}").toString();
+    }
+
+    @Benchmark
+    public String gsonTree() {
+        return gson.toJson(new JsonParser().parse(result));
+    }
+
+    @Benchmark
+    public boolean streaming() throws IOException {
+        return new JsonPrinter(0).print(result, new NullWriter());
+    }
+}
@@ -0,0 +1,35 @@
+package com.qwen.spring.shell;
+
+import com.qwen.spring.shell.autoconfigure.BaseShellAutoConfiguration;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.command.ConsoleUserInput;
+import com.qwen.spring.shell.config.RemotePromptProvider;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.converter.CompletionConverter;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * 快速启动时代替{@link ShellApplication}的配置.
+ * 不加载自动配置、不扫描类路径, 只注册shell用到的bean, 所有bean在第一次使用时才创建.
+ * 新增的组件需要同时加到这里.
+ */
+@Configuration
+@EnableConfigurationProperties
+@Import({PropertyPlaceholderAutoConfiguration.class, BaseShellAutoConfiguration.class, ShellCommandLineRunner.class,
+        SpringRemoteShell.class, Commands.class, ConsoleUserInput.class, CompletionConverter.class, RemotePromptProvider.class})
+public class FastStartConfiguration {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyInitialization() {
+        return beanFactory -> {
+            for(String name: beanFactory.getBeanDefinitionNames()) {
+                beanFactory.getBeanDefinition(name).setLazyInit(true);
+            }
+        };
+    }
+}
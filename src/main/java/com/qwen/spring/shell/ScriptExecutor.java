@@ -0,0 +1,316 @@
+package com.qwen.spring.shell;
+
+import com.qwen.spring.shell.command.Commands;
+import org.springframework.shell.core.ExecutionProcessor;
+import org.springframework.shell.core.JLineShellComponent;
+import org.springframework.shell.event.ParseResult;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes a command file line by line without loading it into memory.
+ * <p>
+ * Consecutive {@code call} lines that need no interactive input (because they pass
+ * {@code --args} or the method takes no parameters) run in parallel on a sliding window of
+ * at most {@code parallelism} calls, submitted as the lines are read, as long as none of
+ * them references a container that an earlier call writes ({@code RESULT}, {@code LOG},
+ * {@code PARAM}). Any other command is a barrier: the calls in flight are completed first
+ * and the command is then executed on its own through the shell. The last call before a
+ * barrier is held back and executed through the shell after the others, so that
+ * {@code RESULT}, {@code LOG} and the call history end up exactly as if the file had been
+ * executed sequentially. Output is printed in file order. After the first failure no
+ * further call is submitted; the calls already in flight are completed and the script stops.
+ */
+public class ScriptExecutor {
+
+	private static final Pattern VARIABLE_PATTERN = Pattern.compile("<(\\w+)>");
+
+	private static final Set<String> CALL_OUTPUTS = new HashSet<>(Arrays.asList("RESULT", "LOG", "PARAM"));
+
+	private final Logger logger = Logger.getLogger(getClass().getName());
+
+	private final JLineShellComponent shell;
+
+	private final Commands commands;
+
+	private final int parallelism;
+
+	private final Deque<Task> window = new ArrayDeque<>();
+
+	private final AtomicBoolean failed = new AtomicBoolean();
+
+	private Task held;
+
+	private boolean inBlockComment;
+
+	public ScriptExecutor(JLineShellComponent shell, Commands commands, int parallelism) {
+		this.shell = shell;
+		this.commands = commands;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return {@code true} if every command succeeded
+	 */
+	public boolean execute(File file) throws IOException, InterruptedException {
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			if (parallelism <= 1) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!this.shell.executeCommand(line).isSuccess()) {
+						return false;
+					}
+				}
+				return true;
+			}
+			PrintStream console = System.out;
+			ThreadOutput output = new ThreadOutput(console);
+			System.setOut(output);
+			ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, r -> {
+				Thread thread = new Thread(r, "script");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					ParseResult parseResult = parallelCandidate(line);
+					if (parseResult != null && !dependsOnPending(line)) {
+						if (this.held != null && !submit(this.held, executor, output)) {
+							return false;
+						}
+						this.held = new Task(line, parseResult);
+						continue;
+					}
+					if (!drain(output)) {
+						return false;
+					}
+					if (parseResult != null) {
+						this.held = new Task(line, parseResult);
+					}
+					else if (!this.shell.executeCommand(line).isSuccess()) {
+						return false;
+					}
+				}
+				return drain(output);
+			}
+			finally {
+				executor.shutdownNow();
+				System.setOut(console);
+			}
+		}
+	}
+
+	/**
+	 * Submits a call once the window has room, reporting the oldest calls in file order
+	 * while it waits. Nothing is submitted after a call has failed.
+	 */
+	private boolean submit(Task task, ExecutorService executor, ThreadOutput output) throws InterruptedException {
+		while (this.window.size() >= this.parallelism) {
+			if (!this.window.poll().report(output)) {
+				finish(output);
+				return false;
+			}
+		}
+		if (this.failed.get()) {
+			return finish(output);
+		}
+		task.future = executor.submit(() -> task.run(output));
+		this.window.add(task);
+		return true;
+	}
+
+	/**
+	 * Completes the calls in flight, then executes the held call on its own through the shell.
+	 */
+	private boolean drain(ThreadOutput output) throws InterruptedException {
+		if (!finish(output)) {
+			return false;
+		}
+		if (this.held == null) {
+			return true;
+		}
+		Task last = this.held;
+		this.held = null;
+		return this.shell.executeCommand(last.line).isSuccess();
+	}
+
+	/**
+	 * Waits for the calls in flight and prints their output in file order, up to the first failure.
+	 */
+	private boolean finish(ThreadOutput output) throws InterruptedException {
+		boolean successful = true;
+		while (!this.window.isEmpty()) {
+			Task task = this.window.poll();
+			if (successful) {
+				successful = task.report(output);
+			}
+			else {
+				task.await();
+			}
+		}
+		return successful && !this.failed.get();
+	}
+
+	private boolean dependsOnPending(String line) {
+		if (this.held == null && this.window.isEmpty()) {
+			return false;
+		}
+		Matcher matcher = VARIABLE_PATTERN.matcher(line);
+		while (matcher.find()) {
+			if (CALL_OUTPUTS.contains(matcher.group(1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the parsed command if the line is a call that can run unattended.
+	 */
+	private ParseResult parallelCandidate(String line) {
+		String trimmed = line.trim();
+		if (this.inBlockComment || trimmed.contains("/*")) {
+			this.inBlockComment = !trimmed.contains("*/") && (this.inBlockComment || trimmed.contains("/*"));
+			return null;
+		}
+		if (trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("#")) {
+			return null;
+		}
+		if (!trimmed.startsWith("call ")) {
+			return null;
+		}
+		ParseResult parseResult = this.shell.getSimpleParser().parse(trimmed);
+		return parseResult != null && this.commands.isUnattended(parseResult) ? parseResult : null;
+	}
+
+	private class Task {
+
+		private final String line;
+
+		private final ParseResult parseResult;
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private Future<?> future;
+
+		private Throwable failure;
+
+		Task(String line, ParseResult parseResult) {
+			this.line = line;
+			this.parseResult = parseResult;
+		}
+
+		/**
+		 * Executes the parsed command the way {@link org.springframework.shell.core.SimpleExecutionStrategy}
+		 * does, including its {@link ExecutionProcessor} callbacks, but without the strategy's
+		 * global lock that would serialize the calls of the window.
+		 */
+		void run(ThreadOutput output) {
+			output.capture(this.buffer);
+			Object instance = this.parseResult.getInstance();
+			ParseResult target = this.parseResult;
+			try {
+				if (instance instanceof ExecutionProcessor) {
+					target = ((ExecutionProcessor) instance).beforeInvocation(target);
+				}
+				Object result = ReflectionUtils.invokeMethod(target.getMethod(), target.getInstance(), target.getArguments());
+				if (instance instanceof ExecutionProcessor) {
+					((ExecutionProcessor) instance).afterReturningInvocation(target, result);
+				}
+				if (result != null) {
+					System.out.println(result);
+				}
+			}
+			catch (Throwable e) {
+				if (instance instanceof ExecutionProcessor) {
+					((ExecutionProcessor) instance).afterThrowingInvocation(target, e);
+				}
+				this.failure = e;
+				failed.set(true);
+			}
+			finally {
+				output.release();
+			}
+		}
+
+		void await() throws InterruptedException {
+			try {
+				this.future.get();
+			}
+			catch (ExecutionException e) {
+				// the task records its own failure
+			}
+		}
+
+		boolean report(ThreadOutput output) throws InterruptedException {
+			await();
+			output.console().write(this.buffer.toByteArray(), 0, this.buffer.size());
+			output.console().flush();
+			if (this.failure != null) {
+				logger.log(Level.WARNING, this.failure.getMessage(), this.failure);
+				logger.warning(String.format("Script execution stopped at: %s", this.line));
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Routes {@code System.out} of worker threads into per-command buffers.
+	 */
+	private static class ThreadOutput extends PrintStream {
+
+		private static final ThreadLocal<OutputStream> TARGET = new ThreadLocal<>();
+
+		private final PrintStream console;
+
+		ThreadOutput(PrintStream console) {
+			super(new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					OutputStream target = TARGET.get();
+					(target != null ? target : console).write(b);
+				}
+
+				@Override
+				public void write(byte[] bytes, int offset, int length) throws IOException {
+					OutputStream target = TARGET.get();
+					(target != null ? target : console).write(bytes, offset, length);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					if (TARGET.get() == null) {
+						console.flush();
+					}
+				}
+			}, true);
+			this.console = console;
+		}
+
+		void capture(OutputStream buffer) {
+			flush();
+			TARGET.set(buffer);
+		}
+
+		void release() {
+			flush();
+			TARGET.remove();
+		}
+
+		PrintStream console() {
+			return this.console;
+		}
+	}
+}
@@ -1,14 +1,40 @@
 package com.qwen.spring.shell;
 
 import org.springframework.boot.Banner;
-import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 @SpringBootApplication
 public class ShellApplication {
 
+    private static long mainStartedAt;
+
     public static void main(String[] args) {
-        new SpringApplicationBuilder().sources(ShellApplication.class).bannerMode(Banner.Mode.OFF).run(args);
+        mainStartedAt = System.currentTimeMillis();
+        if(isFastStart(args)) {
+            new SpringApplicationBuilder().sources(FastStartConfiguration.class).bannerMode(Banner.Mode.OFF)
+                    .logStartupInfo(false).run(args);
+        } else {
+            new SpringApplicationBuilder().sources(ShellApplication.class).bannerMode(Banner.Mode.OFF).run(args);
+        }
+    }
+
+    /**
+     * spring.shell.fastStart在上下文启动前读取, 只支持命令行参数、系统属性和环境变量.
+     */
+    static boolean isFastStart(String[] args) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        return new RelaxedPropertyResolver(environment, "spring.shell.").getProperty("fastStart", Boolean.class, false);
+    }
+
+    /**
+     * main方法开始执行的时间, 不是通过main启动时为0.
+     */
+    static long getMainStartedAt() {
+        return mainStartedAt;
     }
 }
@@ -15,7 +15,6 @@
  */
 package com.qwen.spring.shell;
 
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -23,14 +22,14 @@ import org.springframework.shell.CommandLine;
 import org.springframework.shell.SimpleShellCommandLineOptions;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Parses the {@link ShellProperties} and {@link ApplicationArguments} to create an
  * instance of the Spring Shell's CommandLine class.
  * <p>
+ * The command file is not read here; {@link ShellCommandLineRunner} streams it through a
+ * {@link ScriptExecutor}.
+ * <p>
  * The behavior of this class differs from the default Spring Shell
  * {@link SimpleShellCommandLineOptions#parseCommandLine(String[])}
  * method in that additional passed in arguments are not interpreted to be commands to
@@ -54,17 +53,12 @@ public class ShellCommandLineParser {
 	 * @return a new {@link CommandLine} instance.
 	 */
 	public CommandLine parse(ShellProperties shellProperties, String[] applicationArguments) {
-		List<String> commands = new ArrayList<String>();
 		if (shellProperties.getCommandFile() != null) {
 			File f = new File(shellProperties.getCommandFile());
-			try {
-				commands.addAll(FileUtils.readLines(f));
-			}
-			catch (IOException e) {
-				logger.error("Unable to read from " + f.toString(), e);
+			if (!f.canRead()) {
+				logger.error("Unable to read from " + f.toString());
 			}
 		}
-		String[] commandsToExecute = (commands.size() > 0) ? commands.toArray(new String[0]) : null;
 
 		int historySize = shellProperties.getHistorySize();
 		if (historySize < 0) {
@@ -73,6 +67,6 @@ public class ShellCommandLineParser {
 			historySize = SimpleShellCommandLineOptions.DEFAULT_HISTORY_SIZE;
 		}
 
-		return new CommandLine(applicationArguments, historySize, commandsToExecute);
+		return new CommandLine(applicationArguments, historySize, null);
 	}
 }
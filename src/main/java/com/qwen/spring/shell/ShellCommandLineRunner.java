@@ -15,6 +15,7 @@
  */
 package com.qwen.spring.shell;
 
+import com.qwen.spring.shell.command.Commands;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
@@ -32,6 +33,8 @@ import org.springframework.shell.support.util.FileUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.logging.Logger;
 
 /**
@@ -67,6 +70,12 @@ public class ShellCommandLineRunner implements CommandLineRunner, ApplicationCon
 	@Autowired
 	private ApplicationArguments applicationArguments;
 
+	@Autowired
+	private ShellProperties shellProperties;
+
+	@Autowired
+	private Commands commands;
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		this.applicationContext = applicationContext;
@@ -78,6 +87,9 @@ public class ShellCommandLineRunner implements CommandLineRunner, ApplicationCon
 	}
 
 	private ExitShellRequest doRun() {
+		if (this.shellProperties.isStartupReport()) {
+			reportStartup();
+		}
 		this.stopWatch.start();
 		try {
 
@@ -97,6 +109,13 @@ public class ShellCommandLineRunner implements CommandLineRunner, ApplicationCon
 					exitShellRequest = ExitShellRequest.NORMAL_EXIT;
 				}
 			}
+			else if (this.shellProperties.getCommandFile() != null
+					&& new File(this.shellProperties.getCommandFile()).canRead()) {
+				ScriptExecutor executor = new ScriptExecutor(this.lineShellComponent, this.commands,
+						this.shellProperties.getScriptParallelism());
+				exitShellRequest = executor.execute(new File(this.shellProperties.getCommandFile()))
+						? ExitShellRequest.NORMAL_EXIT : ExitShellRequest.FATAL_EXIT;
+			}
 			else if (this.applicationArguments.containsOption("help")) {
 				System.out.println(FileUtils.readBanner(ShellCommandLineRunner.class, "/usage.txt"));
 				exitShellRequest = ExitShellRequest.NORMAL_EXIT;
@@ -111,10 +130,6 @@ public class ShellCommandLineRunner implements CommandLineRunner, ApplicationCon
 				this.lineShellComponent.waitForComplete();
 			}
 
-			if (this.lineShellComponent.isDevelopmentMode()) {
-				System.out.println("Total execution time: " + this.stopWatch.getLastTaskTimeMillis() + " ms");
-			}
-
 			return exitShellRequest;
 		}
 		catch (Exception ex) {
@@ -123,7 +138,29 @@ public class ShellCommandLineRunner implements CommandLineRunner, ApplicationCon
 		finally {
 			HandlerUtils.flushAllHandlers(this.logger);
 			this.stopWatch.stop();
+			if (this.lineShellComponent.isDevelopmentMode()) {
+				System.out.println("Total execution time: " + this.stopWatch.getLastTaskTimeMillis() + " ms");
+			}
+			else if (this.shellProperties.isStartupReport()) {
+				System.err.println("Total execution time: " + this.stopWatch.getLastTaskTimeMillis() + " ms");
+			}
+		}
+	}
+
+	/**
+	 * Prints the time from JVM start to the first prompt or command, split at the
+	 * {@code main} method when the shell was started through {@link ShellApplication}.
+	 * Written to stderr so that scripted output stays clean.
+	 */
+	private void reportStartup() {
+		long now = System.currentTimeMillis();
+		long jvmStartedAt = ManagementFactory.getRuntimeMXBean().getStartTime();
+		long mainStartedAt = ShellApplication.getMainStartedAt();
+		StringBuilder report = new StringBuilder("Startup time: " + (now - jvmStartedAt) + " ms");
+		if (mainStartedAt > 0) {
+			report.append(" (JVM " + (mainStartedAt - jvmStartedAt) + " ms, context " + (now - mainStartedAt) + " ms)");
 		}
+		System.err.println(report);
 	}
 
 	private static class ShellExitCodeGenerator implements ExitCodeGenerator {
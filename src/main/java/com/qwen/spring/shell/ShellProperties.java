@@ -18,6 +18,9 @@ package com.qwen.spring.shell;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.shell.SimpleShellCommandLineOptions;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Spring Boot {@link ConfigurationProperties} to specify well known Spring Shell
  * properties. The property prefix is <code>spring.shell</code>.
@@ -37,6 +40,202 @@ public class ShellProperties {
 	 */
 	private String commandFile;
 
+	/**
+	 * Start without auto-configuration, classpath scanning and plugin XML files, creating
+	 * beans only when they are first used. Read before the context starts, so it has to
+	 * be given on the command line, as a system property or as an environment variable.
+	 */
+	private boolean fastStart = false;
+
+	/**
+	 * Whether the time from JVM start to the first prompt or command is printed.
+	 */
+	private boolean startupReport = false;
+
+	/**
+	 * The maximum number of independent calls of the command file executed in parallel.
+	 */
+	private int scriptParallelism = 1;
+
+	/**
+	 * The maximum number of components whose method listings are cached.
+	 */
+	private long metadataCacheSize = 512;
+
+	/**
+	 * How long, in seconds, a cached method listing stays valid. 0 disables expiry.
+	 */
+	private long metadataCacheTtl = 600;
+
+	/**
+	 * The HttpInvoker request executor, either <code>simple</code> or <code>pooled</code>.
+	 */
+	private String transport = "pooled";
+
+	/**
+	 * The connect timeout in milliseconds.
+	 */
+	private int connectTimeout = 5000;
+
+	/**
+	 * The read timeout in milliseconds, so a server that stops answering does not hang
+	 * the shell. Raise it for long-running calls; 0 waits forever.
+	 */
+	private int readTimeout = 60000;
+
+	/**
+	 * The maximum number of pooled keep-alive connections.
+	 */
+	private int maxConnections = 20;
+
+	/**
+	 * The maximum number of nodes called in parallel by a broadcast.
+	 */
+	private int broadcastThreads = 8;
+
+	/**
+	 * The maximum number of lines of a call result printed to the terminal. 0 prints
+	 * everything.
+	 */
+	private int resultMaxLines = 0;
+
+	/**
+	 * The approximate number of bytes of object values kept on the heap before the least
+	 * recently used ones are moved to spill files.
+	 */
+	private long containerHeapBudget = 64 * 1024 * 1024;
+
+	/**
+	 * Object values larger than this number of bytes are written to a spill file
+	 * straight away.
+	 */
+	private long containerSpillThreshold = 4 * 1024 * 1024;
+
+	/**
+	 * The directory under which the session spill directory is created. Defaults to the
+	 * system temporary directory.
+	 */
+	private String spillDirectory;
+
+	/**
+	 * Whether <code>ls</code>, <code>cd</code> and <code>call</code> also match
+	 * camel-case abbreviations and subsequences of names.
+	 */
+	private boolean fuzzyMatch = false;
+
+	/**
+	 * Maximum total length, in characters, of the call results and logs kept by the
+	 * result cache. Least recently used results are evicted first.
+	 */
+	private long resultCacheMaxChars = 16 * 1024 * 1024;
+
+	/**
+	 * Result cache time-to-live in seconds, keyed by method name or
+	 * <code>component.method</code>. Only methods listed here are cached.
+	 */
+	private Map<String, Long> resultCacheTtls = new LinkedHashMap<>();
+
+	/**
+	 * Number of individual call records kept for <code>stats --export</code>. Per-method
+	 * aggregates are kept for the whole session regardless.
+	 */
+	private int statsMaxRecords = 100000;
+
+	/**
+	 * Number of server log lines kept in the session ring buffer.
+	 */
+	private int logBufferLines = 10000;
+
+	/**
+	 * Path of the server log polling endpoint, relative to the server uri, for example
+	 * <code>/shellLog</code>. Logs are only taken from the call response when not set.
+	 */
+	private String logTailPath;
+
+	/**
+	 * Log polling interval in milliseconds while a call is running.
+	 */
+	private long logTailInterval = 500;
+
+	/**
+	 * Whether polled log lines are printed while the call is running.
+	 */
+	private boolean logTailEcho = true;
+
+	/**
+	 * Number of threads running <code>call --async</code> jobs.
+	 */
+	private int jobThreads = 4;
+
+	/**
+	 * Compression of HttpInvoker bodies: <code>off</code>, <code>gzip</code> or
+	 * <code>deflate</code>. Requests are only compressed once the server announces the
+	 * codec in an <code>Accept-Encoding</code> response header.
+	 */
+	private String compression = "off";
+
+	/**
+	 * Request bodies smaller than this number of bytes are sent uncompressed.
+	 */
+	private int compressionThreshold = 1024;
+
+	/**
+	 * Deflate level from 1 (fastest) to 9 (smallest). -1 uses the default level.
+	 */
+	private int compressionLevel = -1;
+
+	/**
+	 * Whether every call is recorded in the on-disk call journal used by
+	 * <code>history</code> and <code>replay</code>.
+	 */
+	private boolean journalEnabled = true;
+
+	/**
+	 * The directory of the call journal. Defaults to
+	 * <code>~/.spring-remote-shell/journal</code>.
+	 */
+	private String journalDirectory;
+
+	/**
+	 * The size in bytes after which the journal starts a new segment file.
+	 */
+	private long journalSegmentSize = 64 * 1024 * 1024;
+
+	/**
+	 * The number of journal segments kept before the oldest is deleted. 0 keeps all of
+	 * them.
+	 */
+	private int journalMaxSegments = 16;
+
+	/**
+	 * Interval in milliseconds of the background <code>echo</code> heartbeat that keeps
+	 * the round trip time shown in the prompt. 0 disables the heartbeat.
+	 */
+	private long heartbeatInterval = 5000;
+
+	/**
+	 * Number of consecutive connection failures, from calls or heartbeats, after which
+	 * calls fail fast without contacting the server.
+	 */
+	private int breakerFailureThreshold = 3;
+
+	/**
+	 * Milliseconds calls fail fast before a single trial request is let through to
+	 * check whether the server is back.
+	 */
+	private long breakerOpenDuration = 10000;
+
+	/**
+	 * Whether to fetch the method listings of all components, and the fields of the
+	 * classes they use, in the background after connecting.
+	 */
+	private boolean prefetch = false;
+
+	/**
+	 * The maximum number of metadata requests the background prefetch sends at once.
+	 */
+	private int prefetchParallelism = 4;
+
 	public int getHistorySize() {
 		return historySize;
 	}
@@ -52,4 +251,284 @@ public class ShellProperties {
 	public void setCommandFile(String commandFile) {
 		this.commandFile = commandFile;
 	}
+
+	public int getScriptParallelism() {
+		return scriptParallelism;
+	}
+
+	public void setScriptParallelism(int scriptParallelism) {
+		this.scriptParallelism = scriptParallelism;
+	}
+
+	public long getMetadataCacheSize() {
+		return metadataCacheSize;
+	}
+
+	public void setMetadataCacheSize(long metadataCacheSize) {
+		this.metadataCacheSize = metadataCacheSize;
+	}
+
+	public long getMetadataCacheTtl() {
+		return metadataCacheTtl;
+	}
+
+	public void setMetadataCacheTtl(long metadataCacheTtl) {
+		this.metadataCacheTtl = metadataCacheTtl;
+	}
+
+	public String getTransport() {
+		return transport;
+	}
+
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public int getBroadcastThreads() {
+		return broadcastThreads;
+	}
+
+	public void setBroadcastThreads(int broadcastThreads) {
+		this.broadcastThreads = broadcastThreads;
+	}
+
+	public int getResultMaxLines() {
+		return resultMaxLines;
+	}
+
+	public void setResultMaxLines(int resultMaxLines) {
+		this.resultMaxLines = resultMaxLines;
+	}
+
+	public long getContainerHeapBudget() {
+		return containerHeapBudget;
+	}
+
+	public void setContainerHeapBudget(long containerHeapBudget) {
+		this.containerHeapBudget = containerHeapBudget;
+	}
+
+	public long getContainerSpillThreshold() {
+		return containerSpillThreshold;
+	}
+
+	public void setContainerSpillThreshold(long containerSpillThreshold) {
+		this.containerSpillThreshold = containerSpillThreshold;
+	}
+
+	public String getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	public void setSpillDirectory(String spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	public boolean isFuzzyMatch() {
+		return fuzzyMatch;
+	}
+
+	public void setFuzzyMatch(boolean fuzzyMatch) {
+		this.fuzzyMatch = fuzzyMatch;
+	}
+
+	public long getResultCacheMaxChars() {
+		return resultCacheMaxChars;
+	}
+
+	public void setResultCacheMaxChars(long resultCacheMaxChars) {
+		this.resultCacheMaxChars = resultCacheMaxChars;
+	}
+
+	public Map<String, Long> getResultCacheTtls() {
+		return resultCacheTtls;
+	}
+
+	public void setResultCacheTtls(Map<String, Long> resultCacheTtls) {
+		this.resultCacheTtls = resultCacheTtls;
+	}
+
+	public int getStatsMaxRecords() {
+		return statsMaxRecords;
+	}
+
+	public void setStatsMaxRecords(int statsMaxRecords) {
+		this.statsMaxRecords = statsMaxRecords;
+	}
+
+	public int getLogBufferLines() {
+		return logBufferLines;
+	}
+
+	public void setLogBufferLines(int logBufferLines) {
+		this.logBufferLines = logBufferLines;
+	}
+
+	public String getLogTailPath() {
+		return logTailPath;
+	}
+
+	public void setLogTailPath(String logTailPath) {
+		this.logTailPath = logTailPath;
+	}
+
+	public long getLogTailInterval() {
+		return logTailInterval;
+	}
+
+	public void setLogTailInterval(long logTailInterval) {
+		this.logTailInterval = logTailInterval;
+	}
+
+	public boolean isLogTailEcho() {
+		return logTailEcho;
+	}
+
+	public void setLogTailEcho(boolean logTailEcho) {
+		this.logTailEcho = logTailEcho;
+	}
+
+	public int getJobThreads() {
+		return jobThreads;
+	}
+
+	public void setJobThreads(int jobThreads) {
+		this.jobThreads = jobThreads;
+	}
+
+	public String getCompression() {
+		return compression;
+	}
+
+	public void setCompression(String compression) {
+		this.compression = compression;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	public boolean isFastStart() {
+		return fastStart;
+	}
+
+	public void setFastStart(boolean fastStart) {
+		this.fastStart = fastStart;
+	}
+
+	public boolean isStartupReport() {
+		return startupReport;
+	}
+
+	public void setStartupReport(boolean startupReport) {
+		this.startupReport = startupReport;
+	}
+
+	public boolean isJournalEnabled() {
+		return journalEnabled;
+	}
+
+	public void setJournalEnabled(boolean journalEnabled) {
+		this.journalEnabled = journalEnabled;
+	}
+
+	public String getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	public void setJournalDirectory(String journalDirectory) {
+		this.journalDirectory = journalDirectory;
+	}
+
+	public long getJournalSegmentSize() {
+		return journalSegmentSize;
+	}
+
+	public void setJournalSegmentSize(long journalSegmentSize) {
+		this.journalSegmentSize = journalSegmentSize;
+	}
+
+	public int getJournalMaxSegments() {
+		return journalMaxSegments;
+	}
+
+	public void setJournalMaxSegments(int journalMaxSegments) {
+		this.journalMaxSegments = journalMaxSegments;
+	}
+
+	public long getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	public void setHeartbeatInterval(long heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
+	public int getBreakerFailureThreshold() {
+		return breakerFailureThreshold;
+	}
+
+	public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+		this.breakerFailureThreshold = breakerFailureThreshold;
+	}
+
+	public long getBreakerOpenDuration() {
+		return breakerOpenDuration;
+	}
+
+	public void setBreakerOpenDuration(long breakerOpenDuration) {
+		this.breakerOpenDuration = breakerOpenDuration;
+	}
+
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public int getPrefetchParallelism() {
+		return prefetchParallelism;
+	}
+
+	public void setPrefetchParallelism(int prefetchParallelism) {
+		this.prefetchParallelism = prefetchParallelism;
+	}
 }
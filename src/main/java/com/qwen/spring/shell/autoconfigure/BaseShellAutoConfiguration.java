@@ -23,25 +23,34 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.ImportResource;
 import org.springframework.shell.CommandLine;
+import org.springframework.shell.commands.*;
+import org.springframework.shell.converters.*;
 import org.springframework.shell.core.JLineShell;
 import org.springframework.shell.core.JLineShellComponent;
+import org.springframework.shell.plugin.support.DefaultBannerProvider;
+import org.springframework.shell.plugin.support.DefaultHistoryFileNameProvider;
+import org.springframework.shell.plugin.support.DefaultPromptProvider;
 
 import javax.annotation.PostConstruct;
 
 /**
  * Configures the various commands that are part of the default Spring Shell experience.
+ * <p>
+ * The default commands, converters and providers are registered from an explicit list
+ * rather than by scanning their packages, and plugin XML files are not looked up in
+ * fast-start mode.
  *
  * @author Josh Long
  * @author Mark Pollack
  * @author Eric Bottard
  */
 @Configuration
-@ImportResource("classpath*:/META-INF/spring/spring-shell-plugin.xml")
 public class BaseShellAutoConfiguration {
 
 	private static final Logger logger = LoggerFactory.getLogger(BaseShellAutoConfiguration.class);
@@ -70,14 +79,27 @@ public class BaseShellAutoConfiguration {
 	}
 
 	@Configuration
-	@ComponentScan({ "org.springframework.shell.commands", "org.springframework.shell.converters", "org.springframework.shell.plugin.support" })
+	@Import({ ConsoleCommands.class, DateCommands.class, ExitCommands.class, HelpCommands.class,
+			InlineCommentCommands.class, OsCommands.class, OsOperationsImpl.class, ScriptCommands.class,
+			SystemPropertyCommands.class, VersionCommands.class, ArrayConverter.class, AvailableCommandsConverter.class,
+			BigDecimalConverter.class, BigIntegerConverter.class, BooleanConverter.class, CharacterConverter.class,
+			DateConverter.class, DoubleConverter.class, EnumConverter.class, FloatConverter.class, IntegerConverter.class,
+			LocaleConverter.class, LongConverter.class, ShortConverter.class, SimpleFileConverter.class,
+			StaticFieldConverterImpl.class, StringConverter.class, DefaultBannerProvider.class,
+			DefaultHistoryFileNameProvider.class, DefaultPromptProvider.class })
 	public static class DefaultShellComponents {
 
 		@PostConstruct
 		public void log() {
-			logger.debug(
-					"default (o.s.shell.{converters,plugin.support})" + " Spring Shell packages are being scanned");
+			logger.debug("default (o.s.shell.{commands,converters,plugin.support})" + " Spring Shell components are registered");
 		}
 	}
 
+	@Configuration
+	@ConditionalOnProperty(prefix = "spring.shell", name = "fast-start", havingValue = "false", matchIfMissing = true)
+	@ImportResource("classpath*:/META-INF/spring/spring-shell-plugin.xml")
+	public static class PluginResources {
+
+	}
+
 }
@@ -0,0 +1,138 @@
+package com.qwen.spring.shell.bench;
+
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 闭环压测: 每个线程在上一次调用返回后立即发起下一次调用, 直到达到次数或时长.
+ * 只记录耗时和结果码, 不保留返回值.
+ */
+public class Benchmark {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final Callable<ResponseDTO> call;
+    private final long iterations;
+    private final long durationMillis;
+    private final int warmup;
+    private final int concurrency;
+
+    private Histogram histogram;
+    private long count;
+    private long errors;
+    private long elapsedNanos;
+
+    /**
+     * @param call 被测调用
+     * @param iterations 调用次数, durationMillis大于0时忽略
+     * @param durationMillis 持续时间(毫秒)
+     * @param warmup 预热次数, 不计入统计
+     * @param concurrency 并发线程数
+     */
+    public Benchmark(Callable<ResponseDTO> call, long iterations, long durationMillis, int warmup, int concurrency) {
+        if(concurrency < 1) {
+            throw new RuntimeException("并发数必须大于0");
+        }
+        if(iterations < 1 && durationMillis < 1) {
+            throw new RuntimeException("次数或时长必须大于0");
+        }
+        this.call = call;
+        this.iterations = iterations;
+        this.durationMillis = durationMillis;
+        this.warmup = warmup;
+        this.concurrency = concurrency;
+    }
+
+    public Benchmark run() throws InterruptedException {
+        for(int i = 0;i<warmup;i++) {
+            invoke();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "bench");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicLong remaining = new AtomicLong(iterations);
+        AtomicLong errorCount = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<Histogram>> futures = new ArrayList<>();
+        for(int i = 0;i<concurrency;i++) {
+            futures.add(executor.submit(() -> {
+                Histogram local = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+                while(durationMillis > 0 ? System.nanoTime() < deadline : remaining.decrementAndGet() >= 0) {
+                    long begin = System.nanoTime();
+                    boolean success = invoke();
+                    local.recordValue(Math.min(System.nanoTime() - begin, HIGHEST_TRACKABLE_NANOS));
+                    if(!success) {
+                        errorCount.incrementAndGet();
+                    }
+                    if(Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                }
+                return local;
+            }));
+        }
+        histogram = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        try {
+            for(Future<Histogram> future: futures) {
+                histogram.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        count = histogram.getTotalCount();
+        errors = errorCount.get();
+        return this;
+    }
+
+    private boolean invoke() {
+        try {
+            ResponseDTO response = call.call();
+            return response != null && response.getCode() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public String report() {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("请求数:%d 错误数:%d 错误率:%.2f%%\n耗时:%.3fs 吞吐量:%.2f/s 并发:%d\n" +
+                        "min:%.3fms mean:%.3fms p50:%.3fms p90:%.3fms p99:%.3fms p99.9:%.3fms max:%.3fms",
+                count, errors, count == 0 ? 0d : errors * 100d / count,
+                seconds, seconds == 0 ? 0d : count / seconds, concurrency,
+                millis(histogram.getMinValue()), histogram.getMean() / 1e6,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * 以HdrHistogram的.hgrm格式(毫秒)写出完整分布, 便于不同批次对比.
+     */
+    public void writeHistogram(File file) throws FileNotFoundException {
+        try(PrintStream out = new PrintStream(file)) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,108 @@
+package com.qwen.spring.shell.bench;
+
+import com.google.gson.JsonElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * load命令的场景文件, 例如:
+ * <pre>
+ * {
+ *   "startRate": 0,
+ *   "stages": [{"rate": 100, "seconds": 30}, {"rate": 100, "seconds": 300}],
+ *   "calls": [
+ *     {"component": "orderService", "method": "getOrder", "args": {"orderId": "${random:1:100000}"}, "weight": 8},
+ *     {"method": "listOrders", "args": ["${seq}", 20], "weight": 2}
+ *   ]
+ * }
+ * </pre>
+ * args与call --args相同, 可以使用<code>${seq}</code>(请求序号)和<code>${random:最小值:最大值}</code>,
+ * 没有这两种占位符的参数只绑定一次. 省略component时使用当前组件.
+ */
+public class LoadScenario {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{(?:(seq)|random:(-?\\d+):(-?\\d+))}");
+
+    private double startRate;
+    private List<Stage> stages = new ArrayList<>();
+    private List<Call> calls = new ArrayList<>();
+
+    public double getStartRate() {
+        return startRate;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    public List<Call> getCalls() {
+        return calls;
+    }
+
+    public static boolean hasPlaceholder(String template) {
+        return PLACEHOLDER.matcher(template).find();
+    }
+
+    /**
+     * 替换参数模板中的占位符.
+     */
+    public static String expand(String template, long seq) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuffer sb = new StringBuffer();
+        while(matcher.find()) {
+            String value;
+            if(matcher.group(1) != null) {
+                value = String.valueOf(seq);
+            } else {
+                long min = Long.parseLong(matcher.group(2));
+                long max = Long.parseLong(matcher.group(3));
+                value = String.valueOf(ThreadLocalRandom.current().nextLong(min, max + 1));
+            }
+            matcher.appendReplacement(sb, value);
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    public static class Stage {
+
+        private double rate;
+        private double seconds;
+
+        public double getRate() {
+            return rate;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+    }
+
+    public static class Call {
+
+        private String component;
+        private String method;
+        private JsonElement args;
+        private double weight = 1;
+
+        public String getComponent() {
+            return component;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public JsonElement getArgs() {
+            return args;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+}
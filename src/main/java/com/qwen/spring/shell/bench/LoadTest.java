@@ -0,0 +1,257 @@
+package com.qwen.spring.shell.bench;
+
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * 开环压测: 按目标到达率安排每个请求的发送时间, 不等待之前的请求返回.
+ * <p>
+ * 到达率按阶段线性变化, 第n个请求安排在累计到达数达到n的时刻. 耗时从安排的发送时间开始计算,
+ * 线程全部忙碌时排队的时间也计入耗时, 避免闭环压测的coordinated omission.
+ * 开始调用的时间比安排的时间晚超过lateMillis的请求计为迟发.
+ */
+public class LoadTest {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    /**
+     * 安排完所有请求后等待未返回的请求的时间.
+     */
+    private static final long DRAIN_SECONDS = 60;
+
+    private final List<Target> targets = new ArrayList<>();
+    private final List<Stage> stages = new ArrayList<>();
+    private final double startRate;
+    private final int concurrency;
+    private final long lateNanos;
+    private final Histogram total = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private double totalWeight;
+    private long scheduled;
+    private long elapsedNanos;
+
+    /**
+     * @param startRate 开始时的每秒请求数
+     * @param concurrency 执行请求的线程数
+     * @param lateMillis 迟发的阈值(毫秒)
+     */
+    public LoadTest(double startRate, int concurrency, long lateMillis) {
+        if(concurrency < 1) {
+            throw new RuntimeException("并发数必须大于0");
+        }
+        this.startRate = startRate;
+        this.concurrency = concurrency;
+        this.lateNanos = TimeUnit.MILLISECONDS.toNanos(lateMillis);
+    }
+
+    /**
+     * 到达率在seconds秒内从上一阶段结束时的值线性变化到rate.
+     */
+    public LoadTest stage(double rate, double seconds) {
+        if(rate < 0 || seconds <= 0) {
+            throw new RuntimeException(String.format("无效的阶段[rate:%s seconds:%s]", rate, seconds));
+        }
+        stages.add(new Stage(stages.isEmpty() ? startRate : stages.get(stages.size() - 1).endRate, rate, seconds));
+        return this;
+    }
+
+    /**
+     * @param call 按请求序号执行一次调用
+     */
+    public LoadTest target(String name, double weight, LongFunction<ResponseDTO> call) {
+        if(weight <= 0) {
+            throw new RuntimeException(String.format("[%s]的权重必须大于0", name));
+        }
+        totalWeight += weight;
+        targets.add(new Target(name, totalWeight, call));
+        return this;
+    }
+
+    public LoadTest run() throws InterruptedException {
+        if(targets.isEmpty() || stages.isEmpty()) {
+            throw new RuntimeException("没有要调用的方法或阶段");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long expected = (long) Math.floor(stages.stream().mapToDouble(Stage::arrivals).sum());
+        long start = System.nanoTime();
+        try {
+            for(long n = 1; n <= expected; n++) {
+                long intended = start + timeOf(n);
+                long wait;
+                while((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if(Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                Target target = pick();
+                long seq = n;
+                executor.execute(() -> target.invoke(seq, intended));
+                scheduled++;
+            }
+            executor.shutdown();
+            executor.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return this;
+    }
+
+    /**
+     * 累计到达数达到n的时刻(纳秒), 在阶段内解到达率积分的二次方程.
+     */
+    long timeOf(double n) {
+        double elapsed = 0;
+        double remaining = n;
+        for(Stage stage: stages) {
+            double arrivals = stage.arrivals();
+            if(remaining <= arrivals) {
+                double slope = (stage.endRate - stage.startRate) / stage.seconds;
+                double t;
+                if(Math.abs(slope) < 1e-9) {
+                    t = remaining / stage.startRate;
+                } else {
+                    t = (-stage.startRate + Math.sqrt(stage.startRate * stage.startRate + 2 * slope * remaining)) / slope;
+                }
+                return (long) ((elapsed + Math.min(t, stage.seconds)) * 1e9);
+            }
+            remaining -= arrivals;
+            elapsed += stage.seconds;
+        }
+        return (long) (elapsed * 1e9);
+    }
+
+    private Target pick() {
+        double value = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for(Target target: targets) {
+            if(value < target.cumulativeWeight) {
+                return target;
+            }
+        }
+        return targets.get(targets.size() - 1);
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        double seconds = elapsedNanos / 1e9;
+        sb.append(String.format("安排:%d 完成:%d 未完成:%d 实际到达率:%.2f/s 线程:%d 迟发阈值:%dms\n",
+                scheduled, total.getTotalCount(), scheduled - total.getTotalCount(), seconds == 0 ? 0d : scheduled / seconds, concurrency,
+                TimeUnit.NANOSECONDS.toMillis(lateNanos)));
+        sb.append(String.format("%-40s %8s %6s %6s %9s %9s %9s %9s %9s", "方法", "请求", "错误", "迟发",
+                "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        for(Target target: targets) {
+            sb.append('\n').append(row(target.name, target.histogram, target.errors.get(), target.late.get()));
+        }
+        long errors = targets.stream().mapToLong(t -> t.errors.get()).sum();
+        long late = targets.stream().mapToLong(t -> t.late.get()).sum();
+        sb.append('\n').append(row("合计", total, errors, late));
+        return sb.toString();
+    }
+
+    private static String row(String name, Histogram histogram, long errors, long late) {
+        return String.format("%-40s %8d %6d %6d %9.3f %9.3f %9.3f %9.3f %9.3f", name, histogram.getTotalCount(), errors, late,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * 以HdrHistogram的.hgrm格式(毫秒)依次写出每个方法和合计的分布, 每段以#方法名开头.
+     */
+    public void writeHistograms(File file) throws IOException {
+        try(PrintStream out = new PrintStream(file, "UTF-8")) {
+            for(Target target: targets) {
+                out.format("# %s\n", target.name);
+                target.histogram.outputPercentileDistribution(out, 1e6);
+            }
+            out.println("# 合计");
+            total.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    public Histogram getHistogram() {
+        return total;
+    }
+
+    public long getLate() {
+        return targets.stream().mapToLong(t -> t.late.get()).sum();
+    }
+
+    public long getScheduled() {
+        return scheduled;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static class Stage {
+
+        private final double startRate;
+        private final double endRate;
+        private final double seconds;
+
+        Stage(double startRate, double endRate, double seconds) {
+            this.startRate = startRate;
+            this.endRate = endRate;
+            this.seconds = seconds;
+        }
+
+        double arrivals() {
+            return (startRate + endRate) / 2 * seconds;
+        }
+    }
+
+    private class Target {
+
+        private final String name;
+        private final double cumulativeWeight;
+        private final LongFunction<ResponseDTO> call;
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong late = new AtomicLong();
+
+        Target(String name, double cumulativeWeight, LongFunction<ResponseDTO> call) {
+            this.name = name;
+            this.cumulativeWeight = cumulativeWeight;
+            this.call = call;
+        }
+
+        void invoke(long seq, long intended) {
+            if(System.nanoTime() - intended > lateNanos) {
+                late.incrementAndGet();
+            }
+            boolean success;
+            try {
+                ResponseDTO response = call.apply(seq);
+                success = response != null && response.getCode() == 0;
+            } catch (RuntimeException e) {
+                success = false;
+            }
+            long latency = Math.min(Math.max(0, System.nanoTime() - intended), HIGHEST_TRACKABLE_NANOS);
+            histogram.recordValue(latency);
+            total.recordValue(latency);
+            if(!success) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.qwen.spring.shell.bulk;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.qwen.spring.shell.json.JsonPrinter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按文件中的每一行数据调用一次方法.
+ * <ul>
+ * <li>.csv: 第一行是参数名, 之后每行一次调用, 空值作为null.</li>
+ * <li>其它文件按NDJSON读取: 每行是与--args相同的JSON数组或对象.</li>
+ * </ul>
+ * 最多同时进行concurrency个调用, 读取线程在未完成的行达到上限时等待, 内存占用与文件大小无关.
+ * 每行的结果或错误以一行JSON写入输出文件, 以row(从1开始的数据行号)开头, 按完成顺序排列.
+ * 续传时跳过输出文件中已经有code的行, 只有异常(没有收到响应)的行会重新调用, 同一行的多条记录以最后一条为准.
+ */
+public class BulkCall {
+
+    private static final Pattern COMPLETED = Pattern.compile("^\\{\"row\":(\\d+),\"code\":");
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private final File input;
+    private final File output;
+    private final int concurrency;
+    private final boolean resume;
+    private final boolean csv;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long skipped;
+    private long total;
+    private long elapsedNanos;
+
+    /**
+     * @param resume 为true时追加到已有的输出文件, 跳过已经完成的行, 否则覆盖输出文件
+     */
+    public BulkCall(File input, File output, int concurrency, boolean resume) {
+        if(concurrency < 1) {
+            throw new RuntimeException("并发数必须大于0");
+        }
+        if(!input.isFile()) {
+            throw new RuntimeException(String.format("文件[%s]不存在", input));
+        }
+        this.input = input;
+        this.output = output;
+        this.concurrency = concurrency;
+        this.resume = resume;
+        this.csv = input.getName().toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * 第一行数据, 用于选择重载方法.
+     */
+    public JsonElement firstRow() throws IOException {
+        try(RowReader rows = new RowReader()) {
+            String line = rows.next();
+            if(line == null) {
+                throw new RuntimeException(String.format("文件[%s]没有数据", input));
+            }
+            return rows.parse(line);
+        }
+    }
+
+    /**
+     * @param call 按一行数据调用, 抛出异常时记录为error
+     */
+    public BulkCall run(Function<JsonElement, ResponseDTO> call) throws IOException, InterruptedException {
+        BitSet completed = resume ? completedRows() : new BitSet();
+        total = countRows();
+        skipped = completed.cardinality();
+        Semaphore permits = new Semaphore(concurrency * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "bulk");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long nextProgress = System.currentTimeMillis() + PROGRESS_INTERVAL_MILLIS;
+        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, resume), StandardCharsets.UTF_8));
+            RowReader rows = new RowReader()) {
+            String line;
+            for(int row = 1; (line = rows.next()) != null; row++) {
+                if(completed.get(row)) {
+                    continue;
+                }
+                while(!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    nextProgress = progress(writer, start, nextProgress);
+                }
+                int number = row;
+                String text = line;
+                executor.execute(() -> {
+                    try {
+                        write(writer, invoke(number, text, rows, call));
+                    } finally {
+                        permits.release();
+                    }
+                });
+                nextProgress = progress(writer, start, nextProgress);
+            }
+            while(!permits.tryAcquire(concurrency * 2, 100, TimeUnit.MILLISECONDS)) {
+                nextProgress = progress(writer, start, nextProgress);
+            }
+            elapsedNanos = System.nanoTime() - start;
+            progress(writer, start, 0);
+            System.err.println();
+        } finally {
+            executor.shutdownNow();
+        }
+        return this;
+    }
+
+    private String invoke(int row, String line, RowReader rows, Function<JsonElement, ResponseDTO> call) {
+        long begin = System.nanoTime();
+        StringWriter buffer = new StringWriter();
+        JsonWriter json = new JsonWriter(buffer);
+        try {
+            ResponseDTO response = call.apply(rows.parse(line));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            json.beginObject().name("row").value(row).name("code").value(response.getCode()).name("ms").value(millis);
+            if(response.getCode() == 0) {
+                succeeded.incrementAndGet();
+                json.name("result");
+                result(json, (String) response.getResult());
+            } else {
+                failed.incrementAndGet();
+                json.name("msg").value(response.getMsg());
+            }
+            json.endObject().flush();
+            return buffer.toString();
+        } catch (RuntimeException | IOException e) {
+            failed.incrementAndGet();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            JsonObject failure = new JsonObject();
+            failure.addProperty("row", row);
+            failure.addProperty("ms", millis);
+            failure.addProperty("error", error);
+            return failure.toString();
+        }
+    }
+
+    /**
+     * 结果是JSON时去掉空白后原样写入, 否则作为字符串写入.
+     */
+    private static void result(JsonWriter json, String result) throws IOException {
+        if(result == null) {
+            json.nullValue();
+            return;
+        }
+        String trimmed = result.trim();
+        try {
+            if(trimmed.startsWith("{") || trimmed.startsWith("[")) {
+                StringWriter compact = new StringWriter();
+                JsonWriter writer = new JsonWriter(compact);
+                JsonPrinter.copy(new JsonReader(new StringReader(trimmed)), writer);
+                writer.flush();
+                json.jsonValue(compact.toString());
+            } else {
+                json.jsonValue(new JsonParser().parse(trimmed).toString());
+            }
+        } catch (JsonParseException | IOException | IllegalStateException e) {
+            json.value(result);
+        }
+    }
+
+    private synchronized void write(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long progress(Writer writer, long start, long nextProgress) throws IOException {
+        long now = System.currentTimeMillis();
+        if(now < nextProgress) {
+            return nextProgress;
+        }
+        synchronized (this) {
+            writer.flush();
+        }
+        long done = succeeded.get() + failed.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = seconds == 0 ? 0 : done / seconds;
+        long remaining = total - skipped - done;
+        System.err.format("\r进度:%d/%d (%.1f%%) 失败:%d 吞吐量:%.1f/s 剩余:%s   ", done + skipped, total,
+                total == 0 ? 100d : (done + skipped) * 100d / total, failed.get(), rate,
+                rate == 0 ? "-" : String.format("%ds", (long) (remaining / rate)));
+        return now + PROGRESS_INTERVAL_MILLIS;
+    }
+
+    /**
+     * 读取已有的输出文件, 先截掉中断时没有写完的最后一行.
+     */
+    private BitSet completedRows() throws IOException {
+        BitSet completed = new BitSet();
+        if(!output.isFile()) {
+            return completed;
+        }
+        try(RandomAccessFile file = new RandomAccessFile(output, "rw")) {
+            long end = file.length();
+            while(end > 0) {
+                file.seek(end - 1);
+                if(file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            file.setLength(end);
+        }
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(output), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                Matcher matcher = COMPLETED.matcher(line);
+                if(matcher.find()) {
+                    completed.set(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return completed;
+    }
+
+    private long countRows() throws IOException {
+        long count = 0;
+        try(RowReader rows = new RowReader()) {
+            while(rows.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public String report() {
+        long done = succeeded.get() + failed.get();
+        double seconds = elapsedNanos / 1e9;
+        return String.format("行数:%d 成功:%d 失败:%d 跳过:%d\n耗时:%.3fs 吞吐量:%.2f/s 并发:%d\n结果:%s",
+                total, succeeded.get(), failed.get(), skipped, seconds, seconds == 0 ? 0d : done / seconds, concurrency, output);
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * 逐行读取数据, 跳过空行, CSV跳过并保存表头.
+     */
+    private class RowReader implements Closeable {
+
+        private final BufferedReader reader;
+        private final List<String> header;
+
+        RowReader() throws IOException {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8));
+            if(csv) {
+                String first = next();
+                if(first == null) {
+                    throw new RuntimeException(String.format("文件[%s]缺少表头", input));
+                }
+                header = splitCsv(first);
+            } else {
+                header = null;
+            }
+        }
+
+        String next() throws IOException {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(!line.trim().isEmpty()) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        JsonElement parse(String line) {
+            if(!csv) {
+                JsonElement json;
+                try {
+                    json = new JsonParser().parse(line);
+                } catch (JsonParseException e) {
+                    throw new RuntimeException(String.format("[%s]不是有效的JSON", line));
+                }
+                if(!json.isJsonArray() && !json.isJsonObject()) {
+                    throw new RuntimeException("参数必须是JSON数组或对象");
+                }
+                return json;
+            }
+            List<String> values = splitCsv(line);
+            if(values.size() != header.size()) {
+                throw new RuntimeException(String.format("列数%d与表头的列数%d不一致", values.size(), header.size()));
+            }
+            JsonObject object = new JsonObject();
+            for(int i = 0;i<header.size();i++) {
+                String value = values.get(i);
+                object.add(header.get(i), value.isEmpty() ? JsonNull.INSTANCE : new JsonPrimitive(value));
+            }
+            return object;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * 按RFC 4180拆分一行, 支持双引号包围的值和其中的两个双引号, 不支持跨行的值.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0;i<line.length();i++) {
+            char c = line.charAt(i);
+            if(quoted) {
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if(c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+}
@@ -0,0 +1,197 @@
+package com.qwen.spring.shell.command;
+
+import com.google.gson.*;
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 方法的参数绑定计划: 每个参数的转换方式按签名计算一次, 之后直接把JSON参数绑定为调用参数.
+ */
+public class CallPlan {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("^<(\\w+)>$");
+
+    private static final int MISMATCH = -1;
+
+    private final MethodInfo method;
+    private final String[] names;
+    private final String[] types;
+    private final ParamConverter[] converters;
+
+    CallPlan(MethodInfo method) {
+        this.method = method;
+        List<FieldInfo> params = method.getParams();
+        names = new String[params.size()];
+        types = new String[params.size()];
+        converters = new ParamConverter[params.size()];
+        for(int i = 0;i<params.size();i++) {
+            names[i] = params.get(i).getName();
+            types[i] = params.get(i).getType();
+            converters[i] = ParamConverter.of(types[i]);
+        }
+    }
+
+    static String signature(MethodInfo method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        for(FieldInfo param: method.getParams()) {
+            sb.append(param.getType()).append(',');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * 按参数个数、参数名和类型从重载中选择最匹配的方法, 匹配程度相同时不做选择.
+     *
+     * @param args JSON数组(按位置)或对象(按参数名)
+     */
+    static Pair<CallPlan, JsonElement[]> select(String methodName, List<CallPlan> plans, String args) {
+        JsonElement json;
+        try {
+            json = new JsonParser().parse(args);
+        } catch (JsonParseException e) {
+            throw new RuntimeException(String.format("参数[%s]不是有效的JSON", args));
+        }
+        if(!json.isJsonArray() && !json.isJsonObject()) {
+            throw new RuntimeException("参数必须是JSON数组或对象");
+        }
+        CallPlan best = null;
+        JsonElement[] bestArgs = null;
+        int bestScore = -1;
+        boolean ambiguous = false;
+        for(CallPlan plan: plans) {
+            JsonElement[] arranged = plan.arrange(json);
+            if(arranged == null) {
+                continue;
+            }
+            int score = plan.score(arranged);
+            if(score > bestScore) {
+                best = plan;
+                bestArgs = arranged;
+                bestScore = score;
+                ambiguous = false;
+            } else if(score == bestScore && score >= 0) {
+                ambiguous = true;
+            }
+        }
+        if(best == null) {
+            throw new RuntimeException(String.format("方法[%s]没有与参数匹配的重载", methodName));
+        }
+        if(ambiguous) {
+            throw new RuntimeException(String.format("参数与方法[%s]的多个重载匹配, 请使用参数名", methodName));
+        }
+        return Pair.of(best, bestArgs);
+    }
+
+    MethodInfo getMethod() {
+        return method;
+    }
+
+    /**
+     * 按位置或参数名排列参数, 参数名不存在时返回null.
+     */
+    JsonElement[] arrange(JsonElement args) {
+        JsonElement[] arranged = new JsonElement[names.length];
+        if(args.isJsonArray()) {
+            JsonArray array = args.getAsJsonArray();
+            if(array.size() != names.length) {
+                return null;
+            }
+            for(int i = 0;i<names.length;i++) {
+                arranged[i] = array.get(i);
+            }
+        } else {
+            JsonObject object = args.getAsJsonObject();
+            int matched = 0;
+            for(int i = 0;i<names.length;i++) {
+                arranged[i] = object.has(names[i]) ? object.get(names[i]) : JsonNull.INSTANCE;
+                matched += object.has(names[i]) ? 1 : 0;
+            }
+            if(matched != object.entrySet().size()) {
+                return null;
+            }
+        }
+        return arranged;
+    }
+
+    /**
+     * 参数与签名的匹配程度, 不匹配时返回负数, 值越大越精确.
+     */
+    int score(JsonElement[] args) {
+        int total = 0;
+        for(int i = 0;i<args.length;i++) {
+            int score = score(args[i], i);
+            if(score == MISMATCH) {
+                return MISMATCH;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    private int score(JsonElement arg, int index) {
+        if(arg.isJsonNull()) {
+            return 0;
+        }
+        ParamConverter converter = converters[index];
+        String type = types[index];
+        if(arg.isJsonPrimitive()) {
+            JsonPrimitive primitive = arg.getAsJsonPrimitive();
+            if(primitive.isString() && VARIABLE_PATTERN.matcher(primitive.getAsString()).matches()) {
+                return 1;
+            }
+            switch (converter) {
+                case TEXT:
+                    return primitive.isString() ? 2 : 1;
+                case DECIMAL:
+                    return primitive.isNumber() ? 2 : NumberUtils.isParsable(primitive.getAsString()) ? 1 : MISMATCH;
+                case INTEGER:
+                    return StringUtils.isNumeric(primitive.getAsString()) ? (primitive.isNumber() ? 2 : 1) : MISMATCH;
+                default:
+                    if(primitive.isBoolean()) {
+                        return type.endsWith("Boolean") || type.equals("boolean") ? 2 : 0;
+                    }
+                    return 0;
+            }
+        }
+        if(converter != ParamConverter.OBJECT) {
+            return MISMATCH;
+        }
+        boolean collection = type.startsWith("java.util.List") || type.startsWith("java.util.Set") || type.endsWith("[]");
+        return arg.isJsonArray() == collection ? 2 : 1;
+    }
+
+    /**
+     * 绑定为调用参数, &lt;NAME&gt;形式的字符串引用已创建的对象.
+     */
+    List<Pair<String, String>> bind(JsonElement[] args, Function<String, Container> containers, Gson gson) {
+        List<Pair<String, String>> params = new ArrayList<>(args.length);
+        for(int i = 0;i<args.length;i++) {
+            JsonElement arg = args[i];
+            if(arg.isJsonNull()) {
+                params.add(Pair.of(types[i], "<NULL>"));
+                continue;
+            }
+            String literal = arg.isJsonPrimitive() ? arg.getAsString() : arg.toString();
+            Matcher matcher = VARIABLE_PATTERN.matcher(literal);
+            if(arg.isJsonPrimitive() && matcher.matches()) {
+                Container container = containers.apply(matcher.group(1));
+                if(!container.getType().equals(types[i])) {
+                    throw new RuntimeException(String.format("类型不正确[%s]", types[i]));
+                }
+                params.add(Pair.of(types[i], (String) ParamConverter.of(container.getType()).convert(container.getValue(), container.getType(), false, gson)));
+            } else {
+                params.add(Pair.of(types[i], (String) converters[i].convert(literal, types[i], false, gson)));
+            }
+        }
+        return params;
+    }
+}
@@ -1,31 +1,52 @@
 package com.qwen.spring.shell.command;
 
+import com.google.common.cache.CacheStats;
 import com.google.gson.*;
 import com.nhsoft.provider.shell.remote.FieldInfo;
 import com.nhsoft.provider.shell.remote.GsonWrapper;
 import com.nhsoft.provider.shell.remote.MethodInfo;
 import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.bench.Benchmark;
+import com.qwen.spring.shell.bench.LoadScenario;
+import com.qwen.spring.shell.bench.LoadTest;
+import com.qwen.spring.shell.bulk.BulkCall;
+import com.qwen.spring.shell.config.HealthMonitor;
+import com.qwen.spring.shell.config.MetadataCache;
+import com.qwen.spring.shell.config.MetadataPrefetch;
+import com.qwen.spring.shell.config.ResultCache;
+import com.qwen.spring.shell.config.Session;
 import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.journal.JournalEntry;
+import com.qwen.spring.shell.json.ClassSchema;
+import com.qwen.spring.shell.json.JsonDiff;
+import com.qwen.spring.shell.json.JsonPath;
+import com.qwen.spring.shell.json.JsonPrinter;
+import com.qwen.spring.shell.log.LogBuffer;
+import com.qwen.spring.shell.stats.CallStats;
+import com.qwen.spring.shell.stats.CallTrace;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.commons.lang3.reflect.TypeUtils;
+import org.apache.commons.lang3.tuple.MutableTriple;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.core.CommandMarker;
 import org.springframework.shell.core.annotation.CliCommand;
 import org.springframework.shell.core.annotation.CliOption;
+import org.springframework.shell.event.ParseResult;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.*;
+import java.lang.annotation.Annotation;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 @Component
@@ -57,14 +78,50 @@ public class Commands implements CommandMarker {
 
     private static final String LOG = "log";
 
+    private static final String BENCH = "bench";
+
+    private static final String NODE = "node";
+
+    private static final String BROADCAST = "broadcast";
+
+    private static final String CACHE = "cache";
+
+    private static final String PREFETCH = "prefetch";
+
+    private static final String TEMPLATE = "template";
+
+    private static final String SESSION = "session";
+
+    private static final String TRANSPORT = "transport";
+
+    private static final String STATS = "stats";
+
+    private static final String JOBS = "jobs";
+
+    private static final String WAIT = "wait";
+
+    private static final String CANCEL = "cancel";
+
+    private static final String HISTORY = "history";
+
+    private static final String REPLAY = "replay";
+
+    private static final String DIFF = "diff";
+
+    private static final String LOAD = "load";
+
     private static final List<String> fundamentalClasses = Arrays.asList("java.lang.String", "java.math.BigDecimal", "java.lang.Integer",
             "java.lang.Long", "java.lang.Boolean");
 
     private static final Pattern variablePattern = Pattern.compile("<(\\w+)>");
+
+    private static final Pattern durationPattern = Pattern.compile("(\\d+)\\s*(ms|s)?");
     @Autowired
     private UserInput userInput;
     @Autowired
     private SpringRemoteShell shell;
+    @Autowired
+    private ShellProperties shellProperties;
     private Gson gson;
     {
         GsonBuilder gsonBuilder = new GsonBuilder();
@@ -133,111 +190,397 @@ public class Commands implements CommandMarker {
     }
 
     @CliCommand(value = CALL, help = "调用特定Component的Method")
-    public String callMethod(@CliOption(mandatory = true, key = {"", "method"}, optionContext = "completion-method disable-string-converter", help = "方法名") String methodName) throws IOException {
-        List<MethodInfo> methods = shell.listMethods(null, false).stream().filter(m -> m.getName().equals(methodName)).collect(Collectors.toList());
-        if(methods.size() == 0) {
-            methods = shell.listMethods(methodName, false);
-            if(methods.size() == 0) {
-                throw new RuntimeException(String.format("方法[%s]不存在", methodName));
-            }
+    public String callMethod(@CliOption(mandatory = true, key = {"", "method"}, optionContext = "completion-method disable-string-converter", help = "方法名") String methodName,
+                             @CliOption(key = "output", help = "结果输出文件") String path,
+                             @CliOption(key = "maxLines", help = "最多显示的行数") Integer maxLines,
+                             @CliOption(key = "no-cache", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "忽略结果缓存, 重新调用") boolean noCache,
+                             @CliOption(key = "async", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "在后台执行, 结果保存到<JOB编号>") boolean async,
+                             @CliOption(key = "path", help = "只显示JSONPath选中的部分, 例如$.items[*].orderId") String jsonPath,
+                             @CliOption(key = "from", help = "按CSV(首行为参数名)或NDJSON文件的每一行调用, 结果以NDJSON写入--output") String from,
+                             @CliOption(key = "concurrency", unspecifiedDefaultValue = "4", help = "--from的并发数") int concurrency,
+                             @CliOption(key = "resume", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "--from跳过输出文件中已经完成的行") boolean resume,
+                             @CliOption(key = "args", help = "JSON数组(按位置)或对象(按参数名)形式的参数, 指定后不再逐个输入") String args) throws IOException {
+        if(from != null) {
+            return bulk(methodName, from, path, concurrency, resume);
         }
-        MethodInfo methodInfo;
-        if(methods.size() > 1) {
-            StringBuilder sb = new StringBuilder();
-            for(int i = 0;i<methods.size();i++) {
-                MethodInfo method = methods.get(i);
-                sb.append(String.format("%d: %s %s(%s)\n", i+1, typeToSimple(method.getReturnType()), method.getName(), method.getParams().stream().map(p -> String.format("%s %s", typeToSimple(p.getType()), p.getName())).collect(Collectors.joining(", "))));
+        JsonPath select = jsonPath != null ? JsonPath.compile(jsonPath) : null;
+        CallTrace trace = CallTrace.start();
+        MethodInfo methodInfo = null;
+        boolean called = false;
+        boolean success = false;
+        try {
+            List<Pair<String, String>> params;
+            if(args != null) {
+                long begin = System.nanoTime();
+                Pair<CallPlan, JsonElement[]> bound = resolve(methodName, args);
+                methodInfo = bound.getLeft().getMethod();
+                params = bound.getLeft().bind(bound.getRight(), shell::getContainer, gson);
+                CallTrace.record(CallTrace.Phase.CONVERT, System.nanoTime() - begin);
+            } else {
+                // 等待输入的时间不计入调用耗时, 期间的参数转换仍然计入
+                long begin = System.nanoTime();
+                long converted = trace.getNanos(CallTrace.Phase.CONVERT);
+                try {
+                    methodInfo = selectMethod(methodName);
+                    if(methodInfo == null) {
+                        return "执行取消";
+                    }
+                    params = promptParams(methodInfo);
+                    if(params == null) {
+                        return null;
+                    }
+                } finally {
+                    trace.exclude(System.nanoTime() - begin - (trace.getNanos(CallTrace.Phase.CONVERT) - converted));
+                }
             }
-            sb.append("请选择执行的函数编号");
-            String value = userInput.prompt(sb.toString(), "<NULL>", true);
-            if("<NULL>".equals(value) || !StringUtils.isNumeric(value)) {
-                return "执行取消";
+            if(async) {
+                return submit(methodInfo, params, path, select);
             }
-            methodInfo = methods.get(Integer.parseInt(value)-1);
-        } else {
-            methodInfo = methods.get(0);
-        }
-        List<Pair<String, String>> params = new ArrayList<>();
-        for(FieldInfo fieldInfo: methodInfo.getParams()) {
-            String variable = userInput.prompt(String.format("请输入[%s]的值(类型[%s])", fieldInfo.getName(), fieldInfo.getType()), "<NULL>", true);
-            String fieldValue;
-            if(variable.equals("<SKIP>")) {
-                return null;
+            called = true;
+            ResultCache.Entry cached = noCache ? null : shell.callFromCache(methodInfo, params);
+            trace.setCached(cached != null);
+            ResponseDTO response = cached != null ? cached.getResponse() : shell.call(methodInfo, params);
+            if(response.getCode() != 0) {
+                throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
             }
-            if(variable.equals("<NULL>")) {
-                params.add(Pair.of(fieldInfo.getType(), variable));
-                continue;
+            String result = (String)response.getResult();
+            shell.putContainer("RESULT", methodInfo.getReturnType(), result);
+            if(cached != null) {
+                System.out.format("[缓存] %d秒前的结果, %d秒后过期, 使用--no-cache重新调用\n", cached.getAgeSeconds(), cached.getRemainingSeconds());
             }
-            if(variable.equals("<CREATE>")) {
-                System.out.format("开始创建[%s]\n", fieldInfo.getName());
-                create(fieldInfo.getType(), "PARAM", null, null);
-                fieldValue = (String)value(shell.getContainer("PARAM").getValue(), fieldInfo.getType(), false);
+            String rendered = render(result, path, maxLines, select);
+            success = true;
+            return rendered;
+        } finally {
+            trace.finish(shell.getCurrentComponent(), methodInfo != null ? methodInfo.getName() : methodName, success);
+            if(called) {
+                shell.getCallStats().record(trace);
             }
-            else if(variable.equals("<SIMPLE>")) {
-                System.out.format("开始创建[%s]\n", fieldInfo.getName());
-                create(fieldInfo.getType(), "PARAM", true, null);
-                fieldValue = (String)value(shell.getContainer("PARAM").getValue(), fieldInfo.getType(), false);
+        }
+    }
+
+    /**
+     * 按文件逐行调用, 结果只写入输出文件, 不保存到容器, 也不修改历史调用.
+     * 按第一行数据选择重载方法, 之后的行使用同一个方法.
+     */
+    private String bulk(String methodName, String from, String path, int concurrency, boolean resume) throws IOException {
+        if(path == null) {
+            throw new RuntimeException("请使用--output指定结果文件");
+        }
+        BulkCall bulk = new BulkCall(new File(from), new File(path), concurrency, resume);
+        CallPlan plan = resolve(methodName, bulk.firstRow().toString()).getLeft();
+        Session session = shell.getSession();
+        String component = session.getCurrentComponent();
+        try {
+            bulk.run(row -> {
+                JsonElement[] arranged = plan.arrange(row);
+                if(arranged == null || plan.score(arranged) < 0) {
+                    throw new RuntimeException(String.format("参数与方法[%s]不匹配", CallPlan.signature(plan.getMethod())));
+                }
+                return session.invoke(component, plan.getMethod(), plan.bind(arranged, session::getContainer, gson));
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "执行取消";
+        }
+        return bulk.report();
+    }
+
+    /**
+     * 在后台执行调用, 结果保存到提交时所在会话的容器JOB{编号}, 指定了--output时同时写入文件.
+     */
+    private String submit(MethodInfo methodInfo, List<Pair<String, String>> params, String path, JsonPath select) {
+        Session session = shell.getSession();
+        String component = session.getCurrentComponent();
+        Job job = shell.getJobs().submit(String.format("%s.%s", component, methodInfo.getName()), current -> {
+            CallTrace trace = CallTrace.start();
+            boolean success = false;
+            try {
+                ResponseDTO response = session.invoke(component, methodInfo, params);
+                if(response.getCode() != 0) {
+                    throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
+                }
+                String result = (String)response.getResult();
+                String name = session.putContainer("JOB" + current.getId(), methodInfo.getReturnType(), result);
+                if(path != null) {
+                    render(result, path, null, select);
+                }
+                success = true;
+                return name;
+            } finally {
+                trace.finish(component, methodInfo.getName(), success);
+                shell.getCallStats().record(trace);
             }
-            else {
-                Matcher matcher = variablePattern.matcher(variable);
-                if(matcher.find()) {
-                    Container container = shell.getContainer(matcher.group(1));
-                    if(!container.getType().equals(fieldInfo.getType())) {
-                        throw new RuntimeException(String.format("类型不正确[%s]", fieldInfo.getType()));
-                    }
-                    fieldValue = (String)value(container.getValue(), container.getType(), false);
-                } else {
-                    fieldValue = (String)value(variable, fieldInfo.getType(), false);
+        });
+        return String.format("任务[%d]已提交", job.getId());
+    }
+
+    @CliCommand(value = JOBS, help = "查看后台任务")
+    public String jobs(@CliOption(key = "clear", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "清除已结束的任务") boolean clear) {
+        if(clear) {
+            return String.format("清除%d个已结束的任务", shell.getJobs().clearFinished());
+        }
+        List<Job> jobs = shell.getJobs().list();
+        if(jobs.isEmpty()) {
+            return "没有后台任务";
+        }
+        return jobs.stream().map(Job::toString).collect(Collectors.joining("\n"));
+    }
+
+    @CliCommand(value = WAIT, help = "等待后台任务结束")
+    public String await(@CliOption(key = {"", "id"}, help = "任务编号, 不指定时等待所有任务") Integer id,
+                        @CliOption(key = "timeout", unspecifiedDefaultValue = "0", help = "超时(秒), 0表示一直等待") long timeout) throws InterruptedException {
+        List<Job> jobs = id != null ? Collections.singletonList(shell.getJobs().get(id)) : shell.getJobs().list();
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout * 1000 : 0;
+        for(Job job: jobs) {
+            if(deadline == 0) {
+                job.await(0);
+            } else {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0 || !job.await(remaining)) {
+                    break;
                 }
             }
-            params.add(Pair.of(fieldInfo.getType(), fieldValue));
         }
-        ResponseDTO response = shell.call(methodInfo, params);
-        if(response.getCode() != 0) {
-            throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
+        return jobs.stream().map(Job::toString).collect(Collectors.joining("\n"));
+    }
+
+    @CliCommand(value = CANCEL, help = "取消后台任务, 进行中的调用会断开连接")
+    public String cancel(@CliOption(key = {"", "id"}, help = "任务编号") Integer id,
+                         @CliOption(key = "all", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "取消所有未结束的任务") boolean all) {
+        if(all) {
+            return String.format("取消%d个任务", shell.getJobs().list().stream().filter(Job::cancel).count());
         }
-        String result = (String)response.getResult();
-        shell.putContainer("RESULT", methodInfo.getReturnType(), result);
-        JsonParser parser = new JsonParser();
-        try {
-            JsonElement jsonElement = parser.parse(result);
-            return gson.toJson(jsonElement);
-        } catch (JsonSyntaxException e) {
-            return result;
+        if(id == null) {
+            throw new RuntimeException("请指定任务编号");
         }
+        Job job = shell.getJobs().get(id);
+        return job.cancel() ? "已取消" : String.format("任务[%d]已经结束", id);
     }
 
     @CliCommand(value = REPEAT, help = "重复调用之前的方法")
-    public String repeat() {
-        ResponseDTO response = shell.repeat();
-        if(response.getCode() != 0) {
-            throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
-        }
-        String result = (String)response.getResult();
-        shell.putContainer("RESULT", shell.getHistory().getMiddle().getReturnType(), result);
-        JsonParser parser = new JsonParser();
+    public String repeat(@CliOption(key = "output", help = "结果输出文件") String path,
+                         @CliOption(key = "maxLines", help = "最多显示的行数") Integer maxLines) throws IOException {
+        CallTrace trace = CallTrace.start();
+        boolean success = false;
+        try {
+            ResponseDTO response = shell.repeat();
+            if(response.getCode() != 0) {
+                throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
+            }
+            String result = (String)response.getResult();
+            shell.putContainer("RESULT", shell.getHistory().getMiddle().getReturnType(), result);
+            String rendered = render(result, path, maxLines, null);
+            success = true;
+            return rendered;
+        } finally {
+            MutableTriple<String, MethodInfo, List<Pair<String, String>>> history = shell.getHistory();
+            trace.finish(history != null ? history.getLeft() : null, history != null ? history.getMiddle().getName() : null, success);
+            if(history != null) {
+                shell.getCallStats().record(trace);
+            }
+        }
+    }
+
+    @CliCommand(value = HISTORY, help = "查询调用日志, 最新的调用在最后")
+    public String history(@CliOption(key = "method", optionContext = "completion-method disable-string-converter", help = "方法名") String method,
+                          @CliOption(key = "slower-than", help = "只显示耗时超过该值的调用, 例如500ms、2s") String slowerThan,
+                          @CliOption(key = "failed", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "只显示失败的调用") boolean failed,
+                          @CliOption(key = "limit", unspecifiedDefaultValue = "20", help = "最多显示的条数") int limit) throws IOException {
+        long slowerThanMillis = 0;
+        if(slowerThan != null) {
+            Matcher matcher = durationPattern.matcher(slowerThan.trim());
+            if(!matcher.matches()) {
+                throw new RuntimeException(String.format("耗时[%s]格式不正确", slowerThan));
+            }
+            slowerThanMillis = Long.parseLong(matcher.group(1)) * ("s".equals(matcher.group(2)) ? 1000 : 1);
+        }
+        List<JournalEntry> entries = shell.getJournal().search(method, slowerThanMillis, failed, limit);
+        if(entries.isEmpty()) {
+            return "没有符合条件的调用";
+        }
+        Collections.reverse(entries);
+        return entries.stream().map(JournalEntry::toString).collect(Collectors.joining("\n"));
+    }
+
+    @CliCommand(value = REPLAY, help = "按调用日志的编号重新调用")
+    public String replay(@CliOption(mandatory = true, key = {"", "id"}, help = "调用编号") long id,
+                         @CliOption(key = "output", help = "结果输出文件") String path,
+                         @CliOption(key = "maxLines", help = "最多显示的行数") Integer maxLines) throws IOException {
+        JournalEntry entry = shell.getJournal().get(id);
+        if(entry == null) {
+            throw new RuntimeException(String.format("调用[%d]不存在", id));
+        }
+        CallTrace trace = CallTrace.start();
+        boolean success = false;
+        try {
+            ResponseDTO response = shell.replay(entry);
+            if(response.getCode() != 0) {
+                throw new RuntimeException(String.format("%s:%s", response.getCode(), response.getMsg()));
+            }
+            String result = (String)response.getResult();
+            shell.putContainer("RESULT", entry.getReturnType(), result);
+            String rendered = render(result, path, maxLines, null);
+            success = true;
+            return rendered;
+        } finally {
+            trace.finish(entry.getComponent(), entry.getMethod(), success);
+            shell.getCallStats().record(trace);
+        }
+    }
+
+    /**
+     * 流式格式化结果, 直接写到终端或文件, 避免构建JSON树和第二份完整字符串.
+     *
+     * @param select 为null时输出完整结果
+     */
+    private String render(String result, String path, Integer maxLines, JsonPath select) throws IOException {
+        if(result == null) {
+            return null;
+        }
+        long begin = System.nanoTime();
         try {
-            JsonElement jsonElement = parser.parse(result);
-            return gson.toJson(jsonElement);
-        } catch (JsonSyntaxException e) {
-            return result;
+            if(path != null) {
+                try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+                    new JsonPrinter(0, select).print(result, writer);
+                }
+                return "完成";
+            }
+            int limit = maxLines != null ? maxLines : shellProperties.getResultMaxLines();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+            boolean complete = new JsonPrinter(limit, select).print(result, writer);
+            writer.write(System.lineSeparator());
+            writer.flush();
+            return complete ? null : String.format("...(超过%d行, 已截断)", limit);
+        } finally {
+            CallTrace.record(CallTrace.Phase.RENDER, System.nanoTime() - begin);
+        }
+    }
+
+    @CliCommand(value = NODE, help = "注册或查看节点组")
+    public String node(@CliOption(key = {"", "group"}, help = "节点组名称") String group,
+                       @CliOption(key = "uris", help = "节点地址, 以逗号分隔") String uris) {
+        if(group != null && uris != null) {
+            shell.registerNodeGroup(group, Arrays.stream(uris.split(",")).map(String::trim).filter(StringUtils::isNotEmpty).collect(Collectors.toList()));
+            return "完成";
+        }
+        return shell.listNodeGroups().entrySet().stream().filter(e -> group == null || e.getKey().equals(group))
+                .map(e -> String.format("%s%s", e.getKey(), e.getValue())).collect(Collectors.joining("\n"));
+    }
+
+    @CliCommand(value = BROADCAST, help = "在节点组的所有节点上调用方法并比较结果")
+    public String broadcast(@CliOption(mandatory = true, key = {"", "method"}, optionContext = "completion-method disable-string-converter", help = "方法名") String methodName,
+                            @CliOption(mandatory = true, key = "group", help = "节点组名称") String group,
+                            @CliOption(key = "timeout", unspecifiedDefaultValue = "10000", help = "单节点超时(毫秒)") long timeout) throws IOException, InterruptedException {
+        MethodInfo methodInfo = selectMethod(methodName);
+        if(methodInfo == null) {
+            return "执行取消";
+        }
+        List<Pair<String, String>> params = promptParams(methodInfo);
+        if(params == null) {
+            return null;
+        }
+        return shell.broadcast(group, methodInfo, params, timeout);
+    }
+
+    @CliCommand(value = BENCH, help = "压测之前调用的方法")
+    public String bench(@CliOption(key = {"", "count"}, unspecifiedDefaultValue = "100", help = "调用次数") long count,
+                        @CliOption(key = "duration", unspecifiedDefaultValue = "0", help = "持续时间(秒), 指定后忽略count") long duration,
+                        @CliOption(key = "warmup", unspecifiedDefaultValue = "10", help = "预热次数") int warmup,
+                        @CliOption(key = "concurrency", unspecifiedDefaultValue = "1", help = "并发数") int concurrency,
+                        @CliOption(key = "output", help = "直方图输出文件") String path) throws InterruptedException, IOException {
+        if(shell.getHistory() == null) {
+            throw new RuntimeException("历史资料不存在");
+        }
+        Benchmark benchmark = new Benchmark(shell.getSession()::invokeHistory, count, duration * 1000, warmup, concurrency).run();
+        if(path != null) {
+            benchmark.writeHistogram(new File(path));
+        }
+        return benchmark.report();
+    }
+
+    @CliCommand(value = LOAD, help = "按场景文件以目标到达率调用多个方法, 耗时从安排的发送时间开始计算")
+    public String load(@CliOption(mandatory = true, key = {"", "scenario"}, help = "场景文件(JSON)") String scenarioPath,
+                       @CliOption(key = "rate", help = "目标每秒请求数, 指定后替代场景文件中的阶段") Double rate,
+                       @CliOption(key = "duration", unspecifiedDefaultValue = "60", help = "--rate的持续时间(秒)") double duration,
+                       @CliOption(key = "ramp", unspecifiedDefaultValue = "0", help = "--rate之前从0线性增加的时间(秒)") double ramp,
+                       @CliOption(key = "concurrency", unspecifiedDefaultValue = "64", help = "线程数") int concurrency,
+                       @CliOption(key = "late", unspecifiedDefaultValue = "10", help = "迟发阈值(毫秒)") long lateMillis,
+                       @CliOption(key = "output", help = "直方图输出文件") String path) throws IOException, InterruptedException {
+        LoadScenario scenario;
+        try(Reader reader = new InputStreamReader(new FileInputStream(scenarioPath), StandardCharsets.UTF_8)) {
+            scenario = gson.fromJson(reader, LoadScenario.class);
+        } catch (JsonParseException e) {
+            throw new RuntimeException(String.format("场景文件[%s]格式不正确: %s", scenarioPath, e.getMessage()));
+        }
+        LoadTest load;
+        if(rate != null) {
+            load = new LoadTest(ramp > 0 ? 0 : rate, concurrency, lateMillis);
+            if(ramp > 0) {
+                load.stage(rate, ramp);
+            }
+            load.stage(rate, duration);
+        } else {
+            load = new LoadTest(scenario.getStartRate(), concurrency, lateMillis);
+            scenario.getStages().forEach(stage -> load.stage(stage.getRate(), stage.getSeconds()));
+        }
+        Session session = shell.getSession();
+        for(LoadScenario.Call call: scenario.getCalls()) {
+            String component = call.getComponent() != null ? call.getComponent() : session.getCurrentComponent();
+            List<MethodInfo> candidates = session.methodsNamed(component, call.getMethod());
+            if(candidates.isEmpty()) {
+                throw new RuntimeException(String.format("方法[%s.%s]不存在", component, call.getMethod()));
+            }
+            String template = call.getArgs() != null ? call.getArgs().toString() : "[]";
+            Pair<CallPlan, JsonElement[]> bound = resolve(session, component, call.getMethod(), candidates, LoadScenario.expand(template, 1));
+            CallPlan plan = bound.getLeft();
+            String name = String.format("%s.%s", component, call.getMethod());
+            if(LoadScenario.hasPlaceholder(template)) {
+                load.target(name, call.getWeight(), seq -> {
+                    JsonElement[] arranged = plan.arrange(new JsonParser().parse(LoadScenario.expand(template, seq)));
+                    return session.invokeDirect(component, plan.getMethod(), plan.bind(arranged, session::getContainer, gson));
+                });
+            } else {
+                List<Pair<String, String>> params = plan.bind(bound.getRight(), session::getContainer, gson);
+                load.target(name, call.getWeight(), seq -> session.invokeDirect(component, plan.getMethod(), params));
+            }
         }
+        load.run();
+        if(path != null) {
+            load.writeHistograms(new File(path));
+        }
+        return load.report();
     }
 
     @CliCommand(value = CREATE, help = "创建对象")
     public String create(@CliOption(mandatory = true, key = {"", "type"}, optionContext = "completion-class disable-string-converter", help = "类名") String className,
                          @CliOption(key = "name", help = "对象名") String objectName,
                          @CliOption(key = "simple", help = "简单模式") Boolean simple,
-                         @CliOption(key = "input", help = "文件路径") String path) throws IOException {
+                         @CliOption(key = "input", help = "文件路径") String path,
+                         @CliOption(key = "from-template", help = "按类型校验后读取的JSON文件, 可以由template命令生成") String templatePath) throws IOException {
         if(path != null) {
             return shell.putContainer(objectName, className, FileUtils.readFileToString(new File(path)));
         }
+        if(templatePath != null) {
+            return createFromTemplate(className, objectName, templatePath);
+        }
         if(fundamentalClasses.contains(className)) {
             return createFundamental(className, objectName);
         }
         return createCustom(className, objectName, simple);
     }
 
+    @CliCommand(value = TEMPLATE, help = "生成类型的完整JSON模板, 嵌套的类一次展开")
+    public String template(@CliOption(mandatory = true, key = {"", "type"}, optionContext = "completion-class disable-string-converter", help = "类名") String className,
+                           @CliOption(key = "output", help = "模板输出文件") String path) throws IOException {
+        String template = shell.getClassSchema().template(className);
+        if(path != null) {
+            FileUtils.writeStringToFile(new File(path), template, StandardCharsets.UTF_8);
+            return "完成";
+        }
+        return template;
+    }
+
     @CliCommand(value = SET, help = "修改对象属性")
     public String set(@CliOption(mandatory = true, key = {"", "name"}, optionContext = "completion-attribute disable-string-converter", help = "") String attributeName,
                          @CliOption(key = "value", help = "值") String value) throws IOException {
@@ -245,18 +588,76 @@ public class Commands implements CommandMarker {
     }
 
     @CliCommand(value = LIST, help = "查看本地缓存对象")
-    public String list() {
+    public String list(@CliOption(key = "detail", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "显示类型、大小和存储位置") boolean detail) {
+        if(detail) {
+            ContainerStore store = shell.getContainerStore();
+            return store.values().stream().map(c -> String.format("%s[%s] %d字符%s", c.getName(), typeToSimple(c.getType()), c.getLength(), c.isSpilled() ? " (磁盘)" : ""))
+                    .collect(Collectors.joining("\n", "", "\n" + store.stats()));
+        }
         return shell.listContainerKeys().stream().collect(Collectors.joining("\n"));
     }
 
-    @CliCommand(value = LOG, help = "打印日志")
-    public String log() {
-        return shell.log();
+    @CliCommand(value = LOG, help = "分页查看日志, 默认显示当前会话上一次调用的最后一页")
+    public String log(@CliOption(key = "level", help = "最低日志等级(TRACE/DEBUG/INFO/WARN/ERROR)") String level,
+                      @CliOption(key = "grep", help = "正则过滤") String grep,
+                      @CliOption(key = "page", help = "页码, 从1开始, 默认最后一页") Integer page,
+                      @CliOption(key = "size", unspecifiedDefaultValue = "100", help = "每页行数") int size,
+                      @CliOption(key = "all", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "包括之前调用的日志") boolean all,
+                      @CliOption(key = "clear", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "清空日志") boolean clear) {
+        LogBuffer buffer = shell.getLogBuffer();
+        if(clear) {
+            buffer.clear();
+            return "完成";
+        }
+        if(size < 1) {
+            throw new RuntimeException("每页行数必须大于0");
+        }
+        Pattern regex;
+        try {
+            regex = grep == null ? null : Pattern.compile(grep);
+        } catch (PatternSyntaxException e) {
+            throw new RuntimeException(String.format("正则[%s]不正确", grep));
+        }
+        long call = shell.getLastCall();
+        if(!all && call == 0) {
+            return null;
+        }
+        List<LogBuffer.Line> lines = buffer.select(all ? 0 : call, level == null ? null : LogBuffer.Level.of(level), regex);
+        if(lines.isEmpty()) {
+            return null;
+        }
+        int pages = (lines.size() + size - 1) / size;
+        int current = page == null ? pages : Math.min(Math.max(page, 1), pages);
+        String text = lines.subList((current - 1) * size, Math.min(current * size, lines.size())).stream()
+                .map(LogBuffer.Line::getText).collect(Collectors.joining("\n"));
+        return String.format("%s\n(第%d/%d页, 共%d行%s)", text, current, pages, lines.size(),
+                buffer.getDropped() > 0 ? String.format(", 更早的%d行已丢弃", buffer.getDropped()) : "");
     }
 
     @CliCommand(value = PRINT, help = "打印对象")
-    public String print(@CliOption(mandatory = true, key = {"", "name"}, optionContext = "completion-dto disable-string-converter", help = "对象名") String objectName) {
+    public String print(@CliOption(mandatory = true, key = {"", "name"}, optionContext = "completion-dto disable-string-converter", help = "对象名") String objectName,
+                        @CliOption(key = "path", help = "只显示JSONPath选中的部分, 例如$.items[*].orderId") String jsonPath) throws IOException {
         Container container = shell.getContainer(objectName);
+        if(jsonPath != null) {
+            JsonPath select = JsonPath.compile(jsonPath);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+            try(Reader reader = container.openReader()) {
+                new JsonPrinter(0, select).print(reader, writer);
+            }
+            writer.write(System.lineSeparator());
+            writer.flush();
+            return null;
+        }
+        if(container.isSpilled()) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+            writer.write(String.format("类型:%s\n值:", container.getType()));
+            try(Reader reader = container.openReader()) {
+                IOUtils.copy(reader, writer);
+            }
+            writer.write(System.lineSeparator());
+            writer.flush();
+            return null;
+        }
         return String.format("类型:%s\n值:%s", container.getType(), container.getValue());
     }
 
@@ -270,10 +671,140 @@ public class Commands implements CommandMarker {
             }
         }
         Container container = shell.getContainer(objectName);
-        FileUtils.writeStringToFile(new File(path), container.getValue());
+        container.writeTo(new File(path));
         return "完成";
     }
 
+    @CliCommand(value = DIFF, help = "比较两个对象的差异, 忽略字段顺序")
+    public String diff(@CliOption(mandatory = true, key = {"", "left"}, optionContext = "completion-dto disable-string-converter", help = "对象名") String left,
+                       @CliOption(mandatory = true, key = "right", optionContext = "completion-dto disable-string-converter", help = "对象名") String right,
+                       @CliOption(key = "key", help = "按该字段匹配数组元素, 默认按下标") String keyField,
+                       @CliOption(key = "limit", help = "最多显示的差异数", unspecifiedDefaultValue = "50") int limit) throws IOException {
+        Container a = shell.getContainer(left);
+        Container b = shell.getContainer(right);
+        try(Reader leftReader = a.openReader(); Reader rightReader = b.openReader()) {
+            return new JsonDiff(keyField, limit).diff(leftReader, rightReader).toString();
+        }
+    }
+
+    /**
+     * 命令文件中的call是否无需交互输入, 可以与其它调用并行执行.
+     */
+    public boolean isUnattended(ParseResult parseResult) {
+        if(parseResult.getInstance() != this || !parseResult.getMethod().getName().equals("callMethod")) {
+            return false;
+        }
+        if(option(parseResult, "from") != null) {
+            return false;
+        }
+        if(option(parseResult, "args") != null) {
+            return true;
+        }
+        List<MethodInfo> methods = candidateMethods((String) option(parseResult, "method"));
+        return methods.size() == 1 && methods.get(0).getParams().isEmpty();
+    }
+
+    /**
+     * 按@CliOption的key取出命令的参数值, 与参数的位置无关.
+     */
+    private static Object option(ParseResult parseResult, String key) {
+        Annotation[][] annotations = parseResult.getMethod().getParameterAnnotations();
+        for(int i = 0; i < annotations.length; i++) {
+            for(Annotation annotation : annotations[i]) {
+                if(annotation instanceof CliOption && Arrays.asList(((CliOption) annotation).key()).contains(key)) {
+                    return parseResult.getArguments()[i];
+                }
+            }
+        }
+        throw new RuntimeException(String.format("命令[%s]没有参数[--%s]", parseResult.getMethod().getName(), key));
+    }
+
+    /**
+     * 按参数个数、参数名和类型选择重载方法, 不需要交互.
+     */
+    private Pair<CallPlan, JsonElement[]> resolve(String methodName, String args) {
+        Session session = shell.getSession();
+        return resolve(session, session.getCurrentComponent(), methodName, candidateMethods(methodName), args);
+    }
+
+    /**
+     * 绑定计划缓存在会话中, 按Component和签名区分, 元数据失效时一起清空.
+     */
+    private Pair<CallPlan, JsonElement[]> resolve(Session session, String component, String methodName, List<MethodInfo> candidates, String args) {
+        List<CallPlan> plans = candidates.stream()
+                .map(method -> session.getCallPlans().computeIfAbsent(component + '#' + CallPlan.signature(method), k -> new CallPlan(method)))
+                .collect(Collectors.toList());
+        return CallPlan.select(methodName, plans, args);
+    }
+
+    private List<MethodInfo> candidateMethods(String methodName) {
+        List<MethodInfo> methods = shell.methodsNamed(methodName);
+        if(methods.size() == 0) {
+            methods = shell.listMethods(methodName, false);
+        }
+        return methods;
+    }
+
+    private MethodInfo selectMethod(String methodName) {
+        List<MethodInfo> methods = candidateMethods(methodName);
+        if(methods.size() == 0) {
+            throw new RuntimeException(String.format("方法[%s]不存在", methodName));
+        }
+        if(methods.size() > 1) {
+            StringBuilder sb = new StringBuilder();
+            for(int i = 0;i<methods.size();i++) {
+                MethodInfo method = methods.get(i);
+                sb.append(String.format("%d: %s %s(%s)\n", i+1, typeToSimple(method.getReturnType()), method.getName(), method.getParams().stream().map(p -> String.format("%s %s", typeToSimple(p.getType()), p.getName())).collect(Collectors.joining(", "))));
+            }
+            sb.append("请选择执行的函数编号");
+            String value = userInput.prompt(sb.toString(), "<NULL>", true);
+            if("<NULL>".equals(value) || !StringUtils.isNumeric(value)) {
+                return null;
+            }
+            return methods.get(Integer.parseInt(value)-1);
+        }
+        return methods.get(0);
+    }
+
+    private List<Pair<String, String>> promptParams(MethodInfo methodInfo) throws IOException {
+        List<Pair<String, String>> params = new ArrayList<>();
+        for(FieldInfo fieldInfo: methodInfo.getParams()) {
+            String variable = userInput.prompt(String.format("请输入[%s]的值(类型[%s])", fieldInfo.getName(), fieldInfo.getType()), "<NULL>", true);
+            String fieldValue;
+            if(variable.equals("<SKIP>")) {
+                return null;
+            }
+            if(variable.equals("<NULL>")) {
+                params.add(Pair.of(fieldInfo.getType(), variable));
+                continue;
+            }
+            if(variable.equals("<CREATE>")) {
+                System.out.format("开始创建[%s]\n", fieldInfo.getName());
+                create(fieldInfo.getType(), "PARAM", null, null, null);
+                fieldValue = (String)value(shell.getContainer("PARAM").getValue(), fieldInfo.getType(), false);
+            }
+            else if(variable.equals("<SIMPLE>")) {
+                System.out.format("开始创建[%s]\n", fieldInfo.getName());
+                create(fieldInfo.getType(), "PARAM", true, null, null);
+                fieldValue = (String)value(shell.getContainer("PARAM").getValue(), fieldInfo.getType(), false);
+            }
+            else {
+                Matcher matcher = variablePattern.matcher(variable);
+                if(matcher.find()) {
+                    Container container = shell.getContainer(matcher.group(1));
+                    if(!container.getType().equals(fieldInfo.getType())) {
+                        throw new RuntimeException(String.format("类型不正确[%s]", fieldInfo.getType()));
+                    }
+                    fieldValue = (String)value(container.getValue(), container.getType(), false);
+                } else {
+                    fieldValue = (String)value(variable, fieldInfo.getType(), false);
+                }
+            }
+            params.add(Pair.of(fieldInfo.getType(), fieldValue));
+        }
+        return params;
+    }
+
     private String createFundamental(String className, String objectName) {
         String value = userInput.prompt(String.format("请输入[%s]的值", className), "<NULL>", true);
         if("<NULL>".equals(value)) {
@@ -283,43 +814,11 @@ public class Commands implements CommandMarker {
     }
 
     private Object value(String literal, String type, boolean toType) {
-        switch (type) {
-            case "java.lang.String":
-            case "java.util.Date":
-                return literal;
-            case "java.math.BigDecimal":
-                if(!NumberUtils.isParsable(literal)) {
-                    throw new RuntimeException(String.format("值[%s]不是[%s]类型", literal, type));
-                }
-                if(toType) {
-                    return new BigDecimal(literal);
-                } else {
-                    return literal;
-                }
-            case "java.lang.Integer":
-            case "java.lang.Long":
-                if(!StringUtils.isNumeric(literal)) {
-                    throw new RuntimeException(String.format("值[%s]不是[%s]类型", literal, type));
-                }
-                if(toType) {
-                    return Long.parseLong(literal);
-                } else {
-                    return literal;
-                }
-            default:
-                if (toType) {
-                    if(literal.startsWith("{")) {
-                        return gson.fromJson(literal, Map.class);
-                    }
-                    else if(literal.startsWith("[")) {
-                        Type t = List.class;
-                        if(!literal.contains("\"") && !literal.contains(".")) {
-                            t = TypeUtils.parameterize(List.class, Integer.class);
-                        }
-                        return gson.fromJson(literal, t);
-                    }
-                }
-                return literal;
+        long begin = System.nanoTime();
+        try {
+            return ParamConverter.of(type).convert(literal, type, toType, gson);
+        } finally {
+            CallTrace.record(CallTrace.Phase.CONVERT, System.nanoTime() - begin);
         }
     }
 
@@ -328,6 +827,23 @@ public class Commands implements CommandMarker {
         return type.substring(index+1);
     }
 
+    /**
+     * 在本地按类型图校验, 不符合时列出所有出错的路径.
+     */
+    private String createFromTemplate(String className, String objectName, String path) throws IOException {
+        JsonElement value;
+        try(Reader reader = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            value = new JsonParser().parse(reader);
+        } catch (JsonParseException e) {
+            throw new RuntimeException(String.format("文件[%s]不是有效的JSON: %s", path, e.getMessage()));
+        }
+        List<String> errors = shell.getClassSchema().validate(className, value);
+        if(!errors.isEmpty()) {
+            throw new RuntimeException(String.format("文件[%s]不符合类型[%s]:\n%s", path, className, String.join("\n", errors)));
+        }
+        return shell.putContainer(objectName, className, value.toString());
+    }
+
     private String createCustom(String className, String objectName, Boolean simple) {
         String value;
         if(simple != null && simple) {
@@ -362,15 +878,42 @@ public class Commands implements CommandMarker {
         return shell.putContainer(objectName, className, value);
     }
 
+    @CliCommand(value = SESSION, help = "查看或切换会话, 每个会话有自己的服务地址、密码、元数据缓存和对象")
+    public String session(@CliOption(key = {"", "name"}, help = "会话名, 不存在时创建") String name,
+                          @CliOption(key = "uri", help = "切换后连接的服务地址") String uri,
+                          @CliOption(key = "close", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "关闭会话") boolean close) {
+        if(name == null) {
+            return shell.listSessions();
+        }
+        if(close) {
+            shell.closeSession(name);
+            return "已关闭";
+        }
+        Session session = shell.useSession(name);
+        if(uri != null) {
+            session.setUrl(uri);
+        }
+        return String.format("当前会话[%s]", session.getName());
+    }
+
     @CliCommand(value = CONFIG, help = "config")
     public String configServer(@CliOption(key = {"", "uri"}, help = "Spring服务的地址")String uri,
                                @CliOption(key = "prefix", help = "需要扫描的包前缀")String prefix,
                                @CliOption(key = "logLevel", help = "日志等级")String logLevel,
                                @CliOption(key = "pass", help = "密码")String pass,
-                               @CliOption(key = "enableDatabaseLog", help = "启用数据库日志")Boolean enableDatabaseLog) {
+                               @CliOption(key = "enableDatabaseLog", help = "启用数据库日志")Boolean enableDatabaseLog,
+                               @CliOption(key = "metadataCacheTtl", help = "方法列表缓存时间(秒)")Long metadataCacheTtl,
+                               @CliOption(key = "transport", help = "传输方式(simple/pooled)")String transport,
+                               @CliOption(key = "connectTimeout", help = "连接超时(毫秒)")Integer connectTimeout,
+                               @CliOption(key = "readTimeout", help = "读取超时(毫秒)")Integer readTimeout,
+                               @CliOption(key = "compression", help = "压缩方式(off/gzip/deflate)")String compression,
+                               @CliOption(key = "fuzzy", help = "启用驼峰/模糊匹配")Boolean fuzzy) {
         if(pass != null) {
             shell.setPass(pass);
         }
+        if(transport != null || connectTimeout != null || readTimeout != null || compression != null) {
+            shell.setTransport(transport, connectTimeout, readTimeout, compression);
+        }
         if(uri != null) {
             shell.setUrl(uri);
         }
@@ -383,9 +926,89 @@ public class Commands implements CommandMarker {
         if(enableDatabaseLog != null) {
             shell.setEnableDatabaseLog(enableDatabaseLog);
         }
+        if(fuzzy != null) {
+            shell.setFuzzy(fuzzy);
+        }
+        if(metadataCacheTtl != null) {
+            shell.setMetadataCacheTtl(metadataCacheTtl);
+        }
         return "完成";
     }
 
+    @CliCommand(value = STATS, help = "查看call各阶段的耗时统计")
+    public String stats(@CliOption(key = {"", "method"}, optionContext = "completion-method disable-string-converter", help = "过滤方法") String method,
+                        @CliOption(key = "export", help = "导出文件") String path,
+                        @CliOption(key = "format", help = "导出格式(csv/json), 默认按文件扩展名") String format,
+                        @CliOption(key = "reset", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "清空统计") boolean reset) throws IOException {
+        CallStats stats = shell.getCallStats();
+        if(reset) {
+            stats.reset();
+            return "完成";
+        }
+        if(path != null) {
+            if(format == null) {
+                format = path.toLowerCase().endsWith(".json") ? "json" : "csv";
+            }
+            switch (format) {
+                case "csv":
+                    stats.writeCsv(new File(path));
+                    break;
+                case "json":
+                    stats.writeJson(new File(path));
+                    break;
+                default:
+                    throw new RuntimeException(String.format("导出格式[%s]不存在", format));
+            }
+            return "完成";
+        }
+        return stats.report(method);
+    }
+
+    @CliCommand(value = TRANSPORT, help = "查看连接统计和服务端健康状态")
+    public String transport() {
+        HealthMonitor health = shell.getHealth();
+        return health == null ? shell.getTransport().stats() : shell.getTransport().stats() + "\n" + health.stats();
+    }
+
+    @CliCommand(value = CACHE, help = "查看方法列表缓存和结果缓存")
+    public String cache(@CliOption(key = "clear", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "清空缓存") boolean clear,
+                        @CliOption(key = "method", optionContext = "completion-method disable-string-converter", help = "缓存结果的方法名, 或Component.方法名") String method,
+                        @CliOption(key = "ttl", help = "结果缓存时间(秒), 0表示不缓存") Long ttl) {
+        MetadataCache cache = shell.getMetadataCache();
+        ResultCache resultCache = shell.getResultCache();
+        if(method != null) {
+            if(ttl == null) {
+                throw new RuntimeException("请指定--ttl");
+            }
+            resultCache.setTtl(method, ttl);
+            return "完成";
+        }
+        if(clear) {
+            shell.invalidateMetadata();
+            resultCache.invalidateAll();
+            return "完成";
+        }
+        CacheStats stats = cache.stats();
+        CacheStats classStats = cache.classFieldsStats();
+        return String.format("方法列表缓存 容量:%d/%d\nTTL:%ds\n命中:%d\n未命中:%d\n命中率:%.2f%%\n淘汰:%d\n字段列表缓存 容量:%d/%d\n命中:%d\n未命中:%d\n%s",
+                cache.size(), cache.getMaxSize(), cache.getTtlSeconds(), stats.hitCount(), stats.missCount(), stats.hitRate() * 100, stats.evictionCount(),
+                cache.classFieldsSize(), cache.getMaxSize(), classStats.hitCount(), classStats.missCount(), resultCache.stats());
+    }
+
+    @CliCommand(value = PREFETCH, help = "在后台预取所有Component的方法列表和参数类型的字段列表")
+    public String prefetch(@CliOption(key = "start", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "重新开始预取") boolean start,
+                           @CliOption(key = "cancel", specifiedDefaultValue = "true", unspecifiedDefaultValue = "false", help = "取消预取") boolean cancel) {
+        MetadataPrefetch prefetch = shell.getPrefetch();
+        if(cancel) {
+            shell.cancelPrefetch();
+            return prefetch == null ? "没有进行中的预取" : "已取消";
+        }
+        if(start || prefetch == null) {
+            prefetch = shell.startPrefetch();
+        }
+        return prefetch.status();
+    }
+
 
 
 }
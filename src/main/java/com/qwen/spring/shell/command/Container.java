@@ -1,9 +1,24 @@
 package com.qwen.spring.shell.command;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 可能被后台任务读取的同时由会话写入磁盘: 写入时先设置spillFile再清空value, 读取时先读value再读spillFile,
+ * 看到value为null时一定能看到spillFile.
+ */
 public class Container {
     private String name;
     private String type;
-    private String value;
+    private volatile String value;
+    private volatile long length;
+    private volatile File spillFile;
 
     public String getName() {
         return name;
@@ -21,11 +36,124 @@ public class Container {
         this.type = type;
     }
 
+    /**
+     * 值已写入磁盘时从映射文件中读回, 不会重新驻留在内存中.
+     */
     public String getValue() {
-        return value;
+        String current = value;
+        File file = current == null ? spillFile : null;
+        if(file != null) {
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return StandardCharsets.UTF_8.decode(map(channel)).toString();
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("读取对象[%s]失败:%s", name, e.getMessage()));
+            }
+        }
+        return current;
     }
 
     public void setValue(String value) {
         this.value = value;
+        this.length = value == null ? 0 : value.length();
+        release();
+    }
+
+    /**
+     * 值的字符数.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public Reader openReader() throws IOException {
+        String current = value;
+        File file = current == null ? spillFile : null;
+        if(file != null) {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            MappedByteBuffer buffer = map(channel);
+            channel.close();
+            return new InputStreamReader(new ByteBufferInputStream(buffer), StandardCharsets.UTF_8);
+        }
+        return new StringReader(current == null ? "null" : current);
+    }
+
+    /**
+     * 写入文件, 已写入磁盘的值直接在文件之间复制.
+     */
+    public void writeTo(File target) throws IOException {
+        String current = value;
+        File file = current == null ? spillFile : null;
+        if(file != null) {
+            try(FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                long size = in.size();
+                while(position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        } else {
+            try(Writer writer = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8)) {
+                if(current != null) {
+                    writer.write(current);
+                }
+            }
+        }
+    }
+
+    void spill(File file) throws IOException {
+        String current = value;
+        if(current == null) {
+            return;
+        }
+        try(Writer writer = Channels.newWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8.newEncoder(), 64 * 1024)) {
+            writer.write(current);
+        }
+        spillFile = file;
+        value = null;
+    }
+
+    void release() {
+        if(spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 }
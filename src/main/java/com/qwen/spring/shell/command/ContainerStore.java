@@ -0,0 +1,106 @@
+package com.qwen.spring.shell.command;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * 有内存上限的对象存储. 超过阈值的大对象直接写入会话目录,
+ * 内存占用超过预算时按最近最少使用的顺序把对象写入磁盘.
+ */
+public class ContainerStore {
+
+    private final long heapBudget;
+    private final long spillThreshold;
+    private final File baseDirectory;
+    private final LinkedHashMap<String, Container> containers = new LinkedHashMap<>(16, 0.75f, true);
+    private File sessionDirectory;
+    private long heapBytes;
+    private long spillCount;
+
+    /**
+     * @param heapBudget 内存中对象值的总字节数上限(按每字符2字节估算)
+     * @param spillThreshold 超过该字节数的对象直接写入磁盘
+     * @param baseDirectory 会话目录的父目录, 为null时使用系统临时目录
+     */
+    public ContainerStore(long heapBudget, long spillThreshold, File baseDirectory) {
+        this.heapBudget = heapBudget;
+        this.spillThreshold = spillThreshold;
+        this.baseDirectory = baseDirectory;
+    }
+
+    public synchronized void put(Container container) {
+        Container old = containers.remove(container.getName());
+        if(old != null) {
+            heapBytes -= heapSize(old);
+            old.release();
+        }
+        containers.put(container.getName(), container);
+        if(heapSize(container) > spillThreshold) {
+            spill(container);
+        } else {
+            heapBytes += heapSize(container);
+        }
+        Iterator<Container> iterator = containers.values().iterator();
+        while(heapBytes > heapBudget && iterator.hasNext()) {
+            Container cold = iterator.next();
+            if(cold != container && !cold.isSpilled()) {
+                heapBytes -= heapSize(cold);
+                spill(cold);
+            }
+        }
+    }
+
+    public synchronized Container get(String name) {
+        return containers.get(name);
+    }
+
+    public synchronized List<String> keys() {
+        return new ArrayList<>(containers.keySet());
+    }
+
+    public synchronized List<Container> values() {
+        return new ArrayList<>(containers.values());
+    }
+
+    public synchronized String stats() {
+        long spilled = containers.values().stream().filter(Container::isSpilled).count();
+        return String.format("对象:%d 磁盘:%d 内存占用:%dKB/%dKB 累计写入磁盘:%d次", containers.size(), spilled,
+                heapBytes / 1024, heapBudget / 1024, spillCount);
+    }
+
+    public synchronized void close() {
+        containers.values().forEach(Container::release);
+        containers.clear();
+        heapBytes = 0;
+        if(sessionDirectory != null) {
+            FileUtils.deleteQuietly(sessionDirectory);
+            sessionDirectory = null;
+        }
+    }
+
+    private void spill(Container container) {
+        try {
+            container.spill(File.createTempFile("obj-" + container.getName().replaceAll("\\W", "_") + "-", ".json", directory()));
+            spillCount++;
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("对象[%s]写入磁盘失败:%s", container.getName(), e.getMessage()));
+        }
+    }
+
+    private File directory() throws IOException {
+        if(sessionDirectory == null) {
+            sessionDirectory = baseDirectory == null ? Files.createTempDirectory("spring-shell-").toFile()
+                    : Files.createTempDirectory(baseDirectory.toPath(), "spring-shell-").toFile();
+            sessionDirectory.deleteOnExit();
+        }
+        return sessionDirectory;
+    }
+
+    private static long heapSize(Container container) {
+        return container.isSpilled() ? 0 : container.getLength() * 2;
+    }
+}
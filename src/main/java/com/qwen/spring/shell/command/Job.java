@@ -0,0 +1,151 @@
+package com.qwen.spring.shell.command;
+
+import com.qwen.spring.shell.config.RequestAbort;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 后台执行的调用.
+ */
+public class Job {
+
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @return 完成时显示的信息, 例如结果所在的容器
+         */
+        String run(Job job) throws Exception;
+    }
+
+    private final int id;
+    private final String description;
+    private final long submittedAt = System.currentTimeMillis();
+    private final RequestAbort abort = new RequestAbort();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile State state = State.PENDING;
+    private volatile String message;
+    private Future<?> future;
+
+    Job(int id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    void run(Task task) {
+        synchronized (this) {
+            if(state == State.CANCELLED) {
+                return;
+            }
+            startedAt = System.currentTimeMillis();
+            state = State.RUNNING;
+        }
+        abort.bind();
+        try {
+            String result = task.run(this);
+            finish(State.DONE, result);
+        } catch (Exception e) {
+            finish(State.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        } finally {
+            abort.unbind();
+        }
+    }
+
+    private synchronized void finish(State state, String message) {
+        if(this.state == State.CANCELLED) {
+            return;
+        }
+        this.state = state;
+        this.message = message;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * 取消任务: 未开始的任务不再执行, 进行中的任务断开HTTP连接.
+     */
+    public synchronized boolean cancel() {
+        if(isFinished()) {
+            return false;
+        }
+        state = State.CANCELLED;
+        message = "已取消";
+        finishedAt = System.currentTimeMillis();
+        abort.cancel();
+        if(future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * 等待任务结束.
+     *
+     * @return 超时返回false
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        try {
+            if(timeoutMillis > 0) {
+                future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                future.get();
+            }
+        } catch (CancellationException | ExecutionException e) {
+            // 状态和信息已经记录在任务中
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    /**
+     * 执行耗时(毫秒), 未开始时为0, 进行中时为到现在的时间.
+     */
+    public long getElapsedMillis() {
+        if(startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %-9s %8.1fs %s%s", id, state, getElapsedMillis() / 1000d, description,
+                message != null ? " " + message : "");
+    }
+}
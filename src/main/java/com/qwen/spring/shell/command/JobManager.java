@@ -0,0 +1,73 @@
+package com.qwen.spring.shell.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台调用的线程池和任务列表. 任务按编号保存, 直到被清除.
+ */
+public class JobManager {
+
+    private final ExecutorService executor;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, Job> jobs = new TreeMap<>();
+
+    public JobManager(int threads) {
+        if(threads < 1) {
+            throw new RuntimeException("后台任务线程数必须大于0");
+        }
+        AtomicInteger index = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "job-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Job submit(String description, Job.Task task) {
+        Job job = new Job(ids.incrementAndGet(), description);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        job.setFuture(executor.submit(() -> job.run(task)));
+        return job;
+    }
+
+    public Job get(int id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        if(job == null) {
+            throw new RuntimeException(String.format("任务[%d]不存在", id));
+        }
+        return job;
+    }
+
+    public List<Job> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * 清除已经结束的任务.
+     */
+    public int clearFinished() {
+        synchronized (jobs) {
+            int size = jobs.size();
+            jobs.values().removeIf(Job::isFinished);
+            return size - jobs.size();
+        }
+    }
+
+    public void close() {
+        list().forEach(Job::cancel);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.qwen.spring.shell.command;
+
+import com.google.gson.Gson;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.reflect.TypeUtils;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 参数类型对应的转换方式, 按类型名选择一次后可以重复使用.
+ */
+enum ParamConverter {
+
+    TEXT {
+        @Override
+        Object convert(String literal, String type, boolean toType, Gson gson) {
+            return literal;
+        }
+    },
+
+    DECIMAL {
+        @Override
+        Object convert(String literal, String type, boolean toType, Gson gson) {
+            if(!NumberUtils.isParsable(literal)) {
+                throw new RuntimeException(String.format("值[%s]不是[%s]类型", literal, type));
+            }
+            return toType ? new BigDecimal(literal) : literal;
+        }
+    },
+
+    INTEGER {
+        @Override
+        Object convert(String literal, String type, boolean toType, Gson gson) {
+            if(!StringUtils.isNumeric(literal)) {
+                throw new RuntimeException(String.format("值[%s]不是[%s]类型", literal, type));
+            }
+            return toType ? (Object) Long.parseLong(literal) : literal;
+        }
+    },
+
+    OBJECT {
+        @Override
+        Object convert(String literal, String type, boolean toType, Gson gson) {
+            if (toType) {
+                if(literal.startsWith("{")) {
+                    return gson.fromJson(literal, Map.class);
+                }
+                else if(literal.startsWith("[")) {
+                    Type t = List.class;
+                    if(!literal.contains("\"") && !literal.contains(".")) {
+                        t = TypeUtils.parameterize(List.class, Integer.class);
+                    }
+                    return gson.fromJson(literal, t);
+                }
+            }
+            return literal;
+        }
+    };
+
+    /**
+     * @param toType true时转换为对应的Java对象, 否则校验后返回字面值
+     */
+    abstract Object convert(String literal, String type, boolean toType, Gson gson);
+
+    static ParamConverter of(String type) {
+        switch (type) {
+            case "java.lang.String":
+            case "java.util.Date":
+                return TEXT;
+            case "java.math.BigDecimal":
+                return DECIMAL;
+            case "java.lang.Integer":
+            case "java.lang.Long":
+                return INTEGER;
+            default:
+                return OBJECT;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.qwen.spring.shell.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 在多个节点上并行调用同一方法, 按返回的JSON结构分组并列出组间差异.
+ */
+public class Broadcast {
+
+    private final int threads;
+    private final long timeoutMillis;
+    private final int maxDiffs;
+
+    public Broadcast(int threads, long timeoutMillis, int maxDiffs) {
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+        this.maxDiffs = maxDiffs;
+    }
+
+    public List<NodeResult> run(Map<String, Callable<ResponseDTO>> calls) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, calls.size())), r -> {
+            Thread thread = new Thread(r, "broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Long> startTimes = new ConcurrentHashMap<>();
+        Map<String, RequestAbort> aborts = new HashMap<>();
+        Map<String, Future<NodeResult>> futures = new LinkedHashMap<>();
+        try {
+            for(Map.Entry<String, Callable<ResponseDTO>> entry: calls.entrySet()) {
+                String node = entry.getKey();
+                RequestAbort abort = new RequestAbort();
+                aborts.put(node, abort);
+                futures.put(node, executor.submit(() -> {
+                    long start = System.nanoTime();
+                    startTimes.put(node, start);
+                    abort.bind();
+                    try {
+                        ResponseDTO response = entry.getValue().call();
+                        return new NodeResult(node, System.nanoTime() - start, response.getCode(), response.getMsg(), (String) response.getResult());
+                    } catch (Exception e) {
+                        return NodeResult.error(node, System.nanoTime() - start, String.valueOf(e.getMessage()));
+                    } finally {
+                        abort.unbind();
+                    }
+                }));
+            }
+            List<NodeResult> results = new ArrayList<>();
+            for(Map.Entry<String, Future<NodeResult>> entry: futures.entrySet()) {
+                results.add(await(entry.getKey(), entry.getValue(), startTimes, aborts.get(entry.getKey())));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 超时后断开节点的连接, 中断线程不能打断阻塞在读取响应上的HTTP请求.
+     */
+    private NodeResult await(String node, Future<NodeResult> future, Map<String, Long> startTimes, RequestAbort abort) throws InterruptedException {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(true) {
+            Long start = startTimes.get(node);
+            long wait = start == null ? timeoutNanos : start + timeoutNanos - System.nanoTime();
+            try {
+                return future.get(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                return NodeResult.error(node, 0, String.valueOf(e.getCause().getMessage()));
+            } catch (TimeoutException e) {
+                start = startTimes.get(node);
+                if(start != null && System.nanoTime() - start >= timeoutNanos) {
+                    abort.cancel();
+                    future.cancel(true);
+                    return NodeResult.error(node, System.nanoTime() - start, String.format("超时(%dms)", timeoutMillis));
+                }
+            }
+        }
+    }
+
+    /**
+     * 将JSON结果相同(忽略字段顺序)的节点归为一组, 人数最多的组作为基准, 其余组列出与基准不同的路径.
+     */
+    public String report(List<NodeResult> results) {
+        Map<Object, List<NodeResult>> groups = new LinkedHashMap<>();
+        for(NodeResult result: results) {
+            groups.computeIfAbsent(result.groupKey(), k -> new ArrayList<>()).add(result);
+        }
+        List<Map.Entry<Object, List<NodeResult>>> sorted = new ArrayList<>(groups.entrySet());
+        sorted.sort((a, b) -> b.getValue().size() - a.getValue().size());
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("节点:%d 分组:%d", results.size(), sorted.size()));
+        Object baseline = sorted.get(0).getKey();
+        for(int i = 0;i<sorted.size();i++) {
+            Map.Entry<Object, List<NodeResult>> group = sorted.get(i);
+            sb.append(String.format("\n[组%d] %d个节点", i+1, group.getValue().size()));
+            for(NodeResult result: group.getValue()) {
+                sb.append(String.format("\n  %s %.1fms", result.getNode(), result.getLatencyNanos() / 1e6));
+                if(result.getError() != null) {
+                    sb.append(" ").append(result.getError());
+                }
+            }
+            if(i > 0 && baseline instanceof JsonElement && group.getKey() instanceof JsonElement) {
+                List<String> diffs = new ArrayList<>();
+                int count = diff("$", (JsonElement) baseline, (JsonElement) group.getKey(), diffs);
+                sb.append(String.format("\n  与组1的差异(%d处):", count));
+                diffs.forEach(d -> sb.append("\n    ").append(d));
+                if(count > diffs.size()) {
+                    sb.append("\n    ...");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 统计全部差异, 只列出前{@link #maxDiffs}处.
+     *
+     * @return 差异的数量
+     */
+    private int diff(String path, JsonElement left, JsonElement right, List<String> diffs) {
+        int count = 0;
+        if(left.isJsonObject() && right.isJsonObject()) {
+            Set<String> keys = new TreeSet<>();
+            left.getAsJsonObject().entrySet().forEach(e -> keys.add(e.getKey()));
+            right.getAsJsonObject().entrySet().forEach(e -> keys.add(e.getKey()));
+            for(String key: keys) {
+                JsonElement l = left.getAsJsonObject().get(key);
+                JsonElement r = right.getAsJsonObject().get(key);
+                count += diff(path + "." + key, l == null ? JsonNull.INSTANCE : l, r == null ? JsonNull.INSTANCE : r, diffs);
+            }
+        } else if(left.isJsonArray() && right.isJsonArray()) {
+            int size = Math.max(left.getAsJsonArray().size(), right.getAsJsonArray().size());
+            for(int i = 0;i<size;i++) {
+                JsonElement l = i < left.getAsJsonArray().size() ? left.getAsJsonArray().get(i) : JsonNull.INSTANCE;
+                JsonElement r = i < right.getAsJsonArray().size() ? right.getAsJsonArray().get(i) : JsonNull.INSTANCE;
+                count += diff(path + "[" + i + "]", l, r, diffs);
+            }
+        } else if(!left.equals(right)) {
+            if(diffs.size() < maxDiffs) {
+                diffs.add(String.format("%s: %s -> %s", path, abbreviate(left), abbreviate(right)));
+            }
+            count = 1;
+        }
+        return count;
+    }
+
+    private static String abbreviate(JsonElement element) {
+        String text = element.toString();
+        return text.length() > 80 ? text.substring(0, 77) + "..." : text;
+    }
+
+    public static class NodeResult {
+
+        private final String node;
+        private final long latencyNanos;
+        private final int code;
+        private final String msg;
+        private final String result;
+        private final String error;
+
+        NodeResult(String node, long latencyNanos, int code, String msg, String result) {
+            this(node, latencyNanos, code, msg, result, code == 0 ? null : String.format("%s:%s", code, msg));
+        }
+
+        private NodeResult(String node, long latencyNanos, int code, String msg, String result, String error) {
+            this.node = node;
+            this.latencyNanos = latencyNanos;
+            this.code = code;
+            this.msg = msg;
+            this.result = result;
+            this.error = error;
+        }
+
+        static NodeResult error(String node, long latencyNanos, String error) {
+            return new NodeResult(node, latencyNanos, -1, null, null, error);
+        }
+
+        Object groupKey() {
+            if(error != null) {
+                return error;
+            }
+            if(result == null) {
+                return JsonNull.INSTANCE;
+            }
+            try {
+                return new JsonParser().parse(result);
+            } catch (JsonSyntaxException e) {
+                return new JsonPrimitive(result);
+            }
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
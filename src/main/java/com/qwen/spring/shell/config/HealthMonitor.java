@@ -0,0 +1,182 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import org.springframework.remoting.RemoteAccessException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端的健康状态: 后台定时调用echo估算往返时间, 并作为熔断器保护所有调用.
+ * <ul>
+ * <li>CLOSED: 正常调用, 连续失败达到阈值后打开.</li>
+ * <li>OPEN: 调用立即失败, 不再等待连接超时; 经过openMillis后转为HALF_OPEN.</li>
+ * <li>HALF_OPEN: 只放行一个试探请求(心跳或调用), 成功后关闭, 失败后重新打开.</li>
+ * </ul>
+ * 只有{@link RemoteAccessException}(连接失败、超时等)计为失败, 服务端抛出的业务异常说明连接正常.
+ */
+public class HealthMonitor {
+
+    /**
+     * 往返时间的平滑系数, 与TCP的SRTT相同.
+     */
+    private static final double RTT_GAIN = 0.125;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String url;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialRunning;
+    private long rejected;
+    private volatile double rttMillis = -1;
+
+    /**
+     * @param probe 心跳请求, 不经过{@link #guard}
+     * @param intervalMillis 心跳间隔, 0表示不发送心跳
+     * @param failureThreshold 打开熔断器的连续失败次数
+     * @param openMillis 打开后快速失败的时长
+     */
+    public HealthMonitor(String url, Runnable probe, long intervalMillis, int failureThreshold, long openMillis) {
+        this.url = url;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        if(intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> heartbeat(probe), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 经过熔断器的代理, 所有方法调用前检查状态, 调用后记录结果.
+     */
+    public ShellRemoteService guard(ShellRemoteService target) {
+        return (ShellRemoteService) Proxy.newProxyInstance(ShellRemoteService.class.getClassLoader(), new Class<?>[]{ShellRemoteService.class},
+                (proxy, method, args) -> {
+                    if(method.getDeclaringClass() == Object.class) {
+                        return method.invoke(target, args);
+                    }
+                    acquire();
+                    try {
+                        Object result = method.invoke(target, args);
+                        succeeded(-1);
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        Throwable cause = e.getCause();
+                        if(RequestAbort.isCurrentCancelled()) {
+                            released();
+                        } else if(cause instanceof RemoteAccessException) {
+                            failed();
+                        } else {
+                            succeeded(-1);
+                        }
+                        throw cause;
+                    }
+                });
+    }
+
+    void heartbeat(Runnable probe) {
+        if(!tryAcquire()) {
+            return;
+        }
+        long begin = System.nanoTime();
+        try {
+            probe.run();
+            succeeded((System.nanoTime() - begin) / 1e6);
+        } catch (RuntimeException e) {
+            failed();
+        }
+    }
+
+    private synchronized void acquire() {
+        if(!tryAcquire()) {
+            rejected++;
+            long wait = Math.max(0, openedAt + openMillis - System.currentTimeMillis());
+            throw new RuntimeException(wait > 0 ? String.format("服务[%s]不可用, %d秒后重试", url, TimeUnit.MILLISECONDS.toSeconds(wait) + 1)
+                    : String.format("服务[%s]不可用, 正在检测", url));
+        }
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN:
+                if(System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialRunning = true;
+                return true;
+            case HALF_OPEN:
+                if(trialRunning) {
+                    return false;
+                }
+                trialRunning = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @param rttMillis 心跳的往返时间, 普通调用包含服务端的执行时间, 传入-1不计入
+     */
+    private synchronized void succeeded(double rttMillis) {
+        state = State.CLOSED;
+        failures = 0;
+        trialRunning = false;
+        if(rttMillis >= 0) {
+            this.rttMillis = this.rttMillis < 0 ? rttMillis : this.rttMillis + RTT_GAIN * (rttMillis - this.rttMillis);
+        }
+    }
+
+    private synchronized void failed() {
+        failures++;
+        trialRunning = false;
+        if(state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    private synchronized void released() {
+        trialRunning = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 平滑后的心跳往返时间, 还没有成功的心跳时为-1.
+     */
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    public synchronized String stats() {
+        return String.format("状态:%s\n往返时间:%s\n连续失败:%d\n快速失败:%d", state,
+                rttMillis < 0 ? "-" : String.format("%.1fms", rttMillis), failures, rejected);
+    }
+
+    public void close() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.stats.CallTrace;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.remoting.httpinvoker.HttpComponentsHttpInvokerRequestExecutor;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.httpinvoker.HttpInvokerRequestExecutor;
+import org.springframework.remoting.httpinvoker.SimpleHttpInvokerRequestExecutor;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HttpInvoker的请求执行器.
+ * simple: JDK自带的HttpURLConnection;
+ * pooled: Apache HttpClient连接池, 保持长连接并统计连接复用情况.
+ * 两种方式都把序列化、请求和反序列化的耗时记录到当前线程的{@link CallTrace},
+ * 并向当前线程的{@link RequestAbort}登记中止连接的方法.
+ * 请求体和响应体的压缩由{@link WireCodec}完成.
+ */
+public class HttpTransport {
+
+    public static final String SIMPLE = "simple";
+
+    public static final String POOLED = "pooled";
+
+    private final String type;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxConnections;
+    private final WireCodec codec;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final HttpInvokerRequestExecutor executor;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    public HttpTransport(String type, int connectTimeout, int readTimeout, int maxConnections, WireCodec codec) {
+        this.type = type;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxConnections = maxConnections;
+        this.codec = codec;
+        switch (type) {
+            case SIMPLE:
+                SimpleHttpInvokerRequestExecutor simple = new TracingSimpleExecutor(codec);
+                simple.setConnectTimeout(connectTimeout);
+                simple.setReadTimeout(readTimeout);
+                executor = simple;
+                break;
+            case POOLED:
+                connectionManager = new PoolingHttpClientConnectionManager((route, config) -> {
+                    connections.incrementAndGet();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+                });
+                connectionManager.setMaxTotal(maxConnections);
+                connectionManager.setDefaultMaxPerRoute(maxConnections);
+                connectionManager.setValidateAfterInactivity(2000);
+                HttpRequestInterceptor counter = (request, context) -> requests.incrementAndGet();
+                HttpClientBuilder builder = HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .addInterceptorFirst(counter)
+                        .evictIdleConnections(60, TimeUnit.SECONDS);
+                if(codec.isEnabled()) {
+                    // 由WireCodec处理Accept-Encoding和解压
+                    builder.disableContentCompression();
+                }
+                httpClient = builder.build();
+                HttpComponentsHttpInvokerRequestExecutor pooled = new TracingPooledExecutor(httpClient, codec);
+                pooled.setConnectTimeout(connectTimeout);
+                pooled.setConnectionRequestTimeout(connectTimeout);
+                pooled.setReadTimeout(readTimeout);
+                executor = pooled;
+                break;
+            default:
+                throw new RuntimeException(String.format("传输方式[%s]不存在", type));
+        }
+    }
+
+    public HttpInvokerRequestExecutor getExecutor() {
+        return executor;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public WireCodec getCodec() {
+        return codec;
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("传输方式:%s\n连接超时:%dms\n读取超时:%dms", type, connectTimeout, readTimeout));
+        if(connectionManager != null) {
+            long requestCount = requests.get();
+            long connectionCount = connections.get();
+            PoolStats poolStats = connectionManager.getTotalStats();
+            sb.append(String.format("\n请求数:%d\n新建连接:%d\n复用连接:%d\n复用率:%.2f%%\n连接池(使用/空闲/等待/上限):%d/%d/%d/%d",
+                    requestCount, connectionCount, Math.max(0, requestCount - connectionCount),
+                    requestCount == 0 ? 0d : Math.max(0, requestCount - connectionCount) * 100d / requestCount,
+                    poolStats.getLeased(), poolStats.getAvailable(), poolStats.getPending(), poolStats.getMax()));
+        }
+        sb.append('\n').append(codec.stats());
+        return sb.toString();
+    }
+
+    public void close() {
+        if(httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private static void serialize(IOExceptionRunnable write) throws IOException {
+        long begin = System.nanoTime();
+        write.run();
+        CallTrace.record(CallTrace.Phase.SERIALIZE, System.nanoTime() - begin);
+    }
+
+    private static RemoteInvocationResult deserialize(InputStream is, DeserializeFunction read) throws IOException, ClassNotFoundException {
+        long begin = System.nanoTime();
+        CountingInputStream counting = new CountingInputStream(is);
+        RemoteInvocationResult result = read.apply(counting);
+        long elapsed = System.nanoTime() - begin;
+        CallTrace.record(CallTrace.Phase.DESERIALIZE, elapsed);
+        // 反序列化发生在请求的计时之内, 从REMOTE中扣除
+        CallTrace.record(CallTrace.Phase.REMOTE, -elapsed);
+        CallTrace.transferred(0, counting.getByteCount());
+        return result;
+    }
+
+    private static RemoteInvocationResult execute(ByteArrayOutputStream baos, RequestFunction request) throws IOException, ClassNotFoundException {
+        long begin = System.nanoTime();
+        try {
+            return request.apply();
+        } finally {
+            CallTrace.record(CallTrace.Phase.REMOTE, System.nanoTime() - begin);
+            CallTrace.transferred(baos.size(), 0);
+        }
+    }
+
+    private interface IOExceptionRunnable {
+        void run() throws IOException;
+    }
+
+    private interface DeserializeFunction {
+        RemoteInvocationResult apply(InputStream is) throws IOException, ClassNotFoundException;
+    }
+
+    private interface RequestFunction {
+        RemoteInvocationResult apply() throws IOException, ClassNotFoundException;
+    }
+
+    private static class TracingSimpleExecutor extends SimpleHttpInvokerRequestExecutor {
+
+        private final WireCodec codec;
+
+        TracingSimpleExecutor(WireCodec codec) {
+            this.codec = codec;
+            setAcceptGzipEncoding(!codec.isEnabled());
+        }
+
+        @Override
+        protected HttpURLConnection openConnection(HttpInvokerClientConfiguration config) throws IOException {
+            HttpURLConnection connection = super.openConnection(config);
+            RequestAbort.register(connection::disconnect);
+            return connection;
+        }
+
+        @Override
+        protected void prepareConnection(HttpURLConnection connection, int contentLength) throws IOException {
+            super.prepareConnection(connection, contentLength);
+            if(codec.isEnabled()) {
+                connection.setRequestProperty(WireCodec.ACCEPT_ENCODING, codec.acceptEncoding());
+            }
+        }
+
+        @Override
+        protected void writeRequestBody(HttpInvokerClientConfiguration config, HttpURLConnection con, ByteArrayOutputStream baos) throws IOException {
+            if(WireCodec.isEncoded(baos)) {
+                con.setRequestProperty(WireCodec.CONTENT_ENCODING, codec.getCodec());
+            }
+            super.writeRequestBody(config, con, baos);
+        }
+
+        @Override
+        protected InputStream readResponseBody(HttpInvokerClientConfiguration config, HttpURLConnection con) throws IOException {
+            if(!codec.isEnabled()) {
+                return super.readResponseBody(config, con);
+            }
+            codec.negotiate(config.getServiceUrl(), con.getHeaderField(WireCodec.ACCEPT_ENCODING));
+            return codec.decode(con.getContentEncoding(), con.getInputStream());
+        }
+
+        @Override
+        protected void writeRemoteInvocation(RemoteInvocation invocation, OutputStream os) throws IOException {
+            serialize(() -> super.writeRemoteInvocation(invocation, os));
+        }
+
+        @Override
+        protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos) throws IOException, ClassNotFoundException {
+            ByteArrayOutputStream body = codec.encode(config.getServiceUrl(), baos);
+            return execute(body, () -> super.doExecuteRequest(config, body));
+        }
+
+        @Override
+        protected RemoteInvocationResult readRemoteInvocationResult(InputStream is, String codebaseUrl) throws IOException, ClassNotFoundException {
+            return deserialize(is, in -> super.readRemoteInvocationResult(in, codebaseUrl));
+        }
+    }
+
+    private static class TracingPooledExecutor extends HttpComponentsHttpInvokerRequestExecutor {
+
+        private final WireCodec codec;
+
+        TracingPooledExecutor(HttpClient httpClient, WireCodec codec) {
+            super(httpClient);
+            this.codec = codec;
+        }
+
+        @Override
+        protected HttpPost createHttpPost(HttpInvokerClientConfiguration config) throws IOException {
+            HttpPost post = super.createHttpPost(config);
+            if(codec.isEnabled()) {
+                post.setHeader(WireCodec.ACCEPT_ENCODING, codec.acceptEncoding());
+            }
+            RequestAbort.register(post::abort);
+            return post;
+        }
+
+        @Override
+        protected void setRequestBody(HttpInvokerClientConfiguration config, HttpPost httpPost, ByteArrayOutputStream baos) throws IOException {
+            super.setRequestBody(config, httpPost, baos);
+            if(WireCodec.isEncoded(baos)) {
+                httpPost.setHeader(WireCodec.CONTENT_ENCODING, codec.getCodec());
+            }
+        }
+
+        @Override
+        protected InputStream getResponseBody(HttpInvokerClientConfiguration config, HttpResponse httpResponse) throws IOException {
+            if(!codec.isEnabled()) {
+                return super.getResponseBody(config, httpResponse);
+            }
+            Header accept = httpResponse.getFirstHeader(WireCodec.ACCEPT_ENCODING);
+            Header encoding = httpResponse.getFirstHeader(WireCodec.CONTENT_ENCODING);
+            codec.negotiate(config.getServiceUrl(), accept != null ? accept.getValue() : null);
+            return codec.decode(encoding != null ? encoding.getValue() : null, httpResponse.getEntity().getContent());
+        }
+
+        @Override
+        protected void writeRemoteInvocation(RemoteInvocation invocation, OutputStream os) throws IOException {
+            serialize(() -> super.writeRemoteInvocation(invocation, os));
+        }
+
+        @Override
+        protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos) throws IOException, ClassNotFoundException {
+            ByteArrayOutputStream body = codec.encode(config.getServiceUrl(), baos);
+            return execute(body, () -> super.doExecuteRequest(config, body));
+        }
+
+        @Override
+        protected RemoteInvocationResult readRemoteInvocationResult(InputStream is, String codebaseUrl) throws IOException, ClassNotFoundException {
+            return deserialize(is, in -> super.readRemoteInvocationResult(in, codebaseUrl));
+        }
+    }
+}
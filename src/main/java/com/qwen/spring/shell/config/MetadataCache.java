@@ -0,0 +1,100 @@
+package com.qwen.spring.shell.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按Component缓存方法列表, 按类名缓存字段列表, 超过容量时按LRU淘汰, 超过TTL后重新从服务端获取.
+ * 同一个键同时只加载一次, 后台预取和交互命令不会重复请求.
+ */
+public class MetadataCache {
+
+    private final long maxSize;
+    private final long ttlSeconds;
+    private final Cache<String, List<MethodInfo>> methods;
+    private final Cache<String, List<FieldInfo>> classFields;
+
+    public MetadataCache(long maxSize, long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlSeconds = ttlSeconds;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats();
+        if(ttlSeconds > 0) {
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
+        this.methods = builder.build();
+        this.classFields = builder.build();
+    }
+
+    public List<MethodInfo> getMethods(String component, Callable<List<MethodInfo>> loader) {
+        return load(methods, component, loader);
+    }
+
+    public List<FieldInfo> getClassFields(String className, Callable<List<FieldInfo>> loader) {
+        return load(classFields, className, loader);
+    }
+
+    /**
+     * 已缓存的方法列表, 不触发加载.
+     */
+    public List<MethodInfo> getMethodsIfPresent(String component) {
+        return methods.getIfPresent(component);
+    }
+
+    public List<FieldInfo> getClassFieldsIfPresent(String className) {
+        return classFields.getIfPresent(className);
+    }
+
+    private static <T> T load(Cache<String, T> cache, String key, Callable<T> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    public void invalidate(String component) {
+        methods.invalidate(component);
+    }
+
+    public void invalidateAll() {
+        methods.invalidateAll();
+        classFields.invalidateAll();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public long size() {
+        return methods.size();
+    }
+
+    public CacheStats stats() {
+        return methods.stats();
+    }
+
+    public long classFieldsSize() {
+        return classFields.size();
+    }
+
+    public CacheStats classFieldsStats() {
+        return classFields.stats();
+    }
+}
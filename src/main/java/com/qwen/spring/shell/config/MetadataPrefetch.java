@@ -0,0 +1,205 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 连接后在后台预取所有Component的方法列表, 以及这些方法的参数类型(包括嵌套字段的类型)的字段列表,
+ * 结果写入{@link MetadataCache}, 之后的cd和create不再等待服务端.
+ * <p>
+ * 交互命令优先: 交互命令加载元数据期间({@link #foreground})预取线程不开始新的请求, 已经发出的请求不受影响.
+ * 同一个键由{@link MetadataCache}去重, 交互命令需要的正好是预取中的数据时等待同一个请求.
+ * 取消时断开所有进行中的请求.
+ */
+public class MetadataPrefetch {
+
+    private static final Pattern CLASS_NAME = Pattern.compile("[\\w$]+(?:\\.[\\w$]+)+");
+
+    private final ExecutorService executor;
+    private final Function<String, List<MethodInfo>> methodLoader;
+    private final Function<String, List<FieldInfo>> fieldLoader;
+    private final Set<String> classes = ConcurrentHashMap.newKeySet();
+    private final Set<RequestAbort> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger componentsDone = new AtomicInteger();
+    private final AtomicInteger classesDone = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final Object lock = new Object();
+    private volatile int componentCount;
+    private long begin;
+    private int foreground;
+    private volatile long elapsedMillis = -1;
+    private volatile boolean cancelled;
+
+    /**
+     * @param methodLoader 经过缓存的方法列表
+     * @param fieldLoader 经过缓存的字段列表
+     */
+    public MetadataPrefetch(int parallelism, Function<String, List<MethodInfo>> methodLoader, Function<String, List<FieldInfo>> fieldLoader) {
+        this.methodLoader = methodLoader;
+        this.fieldLoader = fieldLoader;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public MetadataPrefetch start(List<String> components) {
+        componentCount = components.size();
+        begin = System.currentTimeMillis();
+        pending.incrementAndGet();
+        components.forEach(component -> submit(() -> prefetchComponent(component)));
+        finished();
+        return this;
+    }
+
+    private void submit(Runnable task) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    if(awaitForeground()) {
+                        task.run();
+                    }
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished();
+        }
+    }
+
+    private void finished() {
+        if(pending.decrementAndGet() == 0) {
+            elapsedMillis = System.currentTimeMillis() - begin;
+            executor.shutdown();
+        }
+    }
+
+    private void prefetchComponent(String component) {
+        List<MethodInfo> methods = load(methodLoader, component);
+        if(methods == null) {
+            return;
+        }
+        componentsDone.incrementAndGet();
+        methods.forEach(method -> {
+            referencedClasses(method.getReturnType());
+            method.getParams().forEach(param -> referencedClasses(param.getType()));
+        });
+    }
+
+    private void prefetchClass(String className) {
+        List<FieldInfo> fields = load(fieldLoader, className);
+        if(fields == null) {
+            return;
+        }
+        classesDone.incrementAndGet();
+        fields.forEach(field -> referencedClasses(field.getType()));
+    }
+
+    /**
+     * 类型中出现的所有非JDK类, 泛型参数也包括在内, 每个类只预取一次.
+     */
+    private void referencedClasses(String type) {
+        if(type == null) {
+            return;
+        }
+        Matcher matcher = CLASS_NAME.matcher(type);
+        while(matcher.find()) {
+            String className = matcher.group();
+            if(!className.startsWith("java.") && !className.startsWith("javax.") && classes.add(className)) {
+                submit(() -> prefetchClass(className));
+            }
+        }
+    }
+
+    private <T> T load(Function<String, T> loader, String key) {
+        RequestAbort abort = new RequestAbort();
+        abort.bind();
+        running.add(abort);
+        try {
+            return cancelled ? null : loader.apply(key);
+        } catch (RuntimeException e) {
+            if(!cancelled) {
+                failures.incrementAndGet();
+            }
+            return null;
+        } finally {
+            running.remove(abort);
+            abort.unbind();
+        }
+    }
+
+    /**
+     * 等待交互命令加载结束, 取消时返回false.
+     */
+    private boolean awaitForeground() {
+        synchronized (lock) {
+            while(foreground > 0 && !cancelled) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !cancelled;
+        }
+    }
+
+    /**
+     * 交互命令加载元数据, 执行期间预取暂停.
+     */
+    public <T> T foreground(Supplier<T> loader) {
+        synchronized (lock) {
+            foreground++;
+        }
+        try {
+            return loader.get();
+        } finally {
+            synchronized (lock) {
+                foreground--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        running.forEach(RequestAbort::cancel);
+        executor.shutdownNow();
+    }
+
+    public boolean isDone() {
+        return elapsedMillis >= 0;
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit) && isDone();
+    }
+
+    public String status() {
+        String state = cancelled ? "已取消" : isDone() ? String.format("完成, 耗时%dms", elapsedMillis) : "进行中";
+        return String.format("预取%s\nComponent:%d/%d\n类:%d/%d\n失败:%d", state, componentsDone.get(), componentCount,
+                classesDone.get(), classes.size(), failures.get());
+    }
+}
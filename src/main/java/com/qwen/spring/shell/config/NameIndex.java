@@ -0,0 +1,143 @@
+package com.qwen.spring.shell.config;
+
+import java.util.*;
+
+/**
+ * 名称索引: 按小写排序的数组, 前缀查找使用二分法; 模糊查找支持驼峰缩写(如gOI匹配getOrderId)和子序列.
+ */
+public class NameIndex {
+
+    public static final NameIndex EMPTY = new NameIndex(Collections.emptyList());
+
+    private final String[] names;
+    private final String[] keys;
+
+    public NameIndex(Collection<String> source) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for(String name: source) {
+            sorted.putIfAbsent(name.toLowerCase() + '\u0000' + name, name);
+        }
+        names = sorted.values().toArray(new String[0]);
+        keys = new String[names.length];
+        for(int i = 0;i<names.length;i++) {
+            keys[i] = names[i].toLowerCase();
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public List<String> all() {
+        return Arrays.asList(names);
+    }
+
+    /**
+     * 忽略大小写的前缀匹配.
+     */
+    public List<String> prefix(String prefix) {
+        if(prefix == null || prefix.isEmpty()) {
+            return all();
+        }
+        String key = prefix.toLowerCase();
+        int from = lowerBound(key);
+        int to = from;
+        while(to < keys.length && keys[to].startsWith(key)) {
+            to++;
+        }
+        return Arrays.asList(names).subList(from, to);
+    }
+
+    public boolean contains(String name) {
+        String key = name.toLowerCase();
+        for(int i = lowerBound(key);i<keys.length && keys[i].equals(key);i++) {
+            if(names[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 模糊匹配, 结果按前缀匹配、驼峰匹配、子序列匹配的顺序排列, 同类中较短的名称在前.
+     */
+    public List<String> fuzzy(String query) {
+        if(query == null || query.isEmpty()) {
+            return all();
+        }
+        String key = query.toLowerCase();
+        List<String> prefixed = new ArrayList<>();
+        List<String> humps = new ArrayList<>();
+        List<String> subsequences = new ArrayList<>();
+        for(int i = 0;i<names.length;i++) {
+            if(keys[i].startsWith(key)) {
+                prefixed.add(names[i]);
+            } else if(matchesHumps(query, names[i])) {
+                humps.add(names[i]);
+            } else if(isSubsequence(key, keys[i])) {
+                subsequences.add(names[i]);
+            }
+        }
+        Comparator<String> shortestFirst = Comparator.comparingInt(String::length);
+        humps.sort(shortestFirst);
+        subsequences.sort(shortestFirst);
+        prefixed.addAll(humps);
+        prefixed.addAll(subsequences);
+        return prefixed;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 查询的每个字符要么紧接上一个匹配字符, 要么落在名称中某个单词的开头(大写字母、数字或分隔符之后).
+     */
+    private static boolean matchesHumps(String query, String name) {
+        if(Character.toLowerCase(query.charAt(0)) != Character.toLowerCase(name.charAt(0))) {
+            return false;
+        }
+        int j = 1;
+        for(int i = 1;i<query.length();i++) {
+            char c = Character.toLowerCase(query.charAt(i));
+            if(j < name.length() && Character.toLowerCase(name.charAt(j)) == c && !Character.isUpperCase(query.charAt(i))) {
+                j++;
+                continue;
+            }
+            while(j < name.length() && !(isHumpStart(name, j) && Character.toLowerCase(name.charAt(j)) == c)) {
+                j++;
+            }
+            if(j == name.length()) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    private static boolean isHumpStart(String name, int index) {
+        char c = name.charAt(index);
+        char previous = name.charAt(index - 1);
+        return Character.isUpperCase(c) || (Character.isDigit(c) && !Character.isDigit(previous)) || !Character.isLetterOrDigit(previous);
+    }
+
+    private static boolean isSubsequence(String query, String key) {
+        int j = 0;
+        for(int i = 0;i<key.length() && j<query.length();i++) {
+            if(key.charAt(i) == query.charAt(j)) {
+                j++;
+            }
+        }
+        return j == query.length();
+    }
+}
@@ -23,8 +23,10 @@ import org.springframework.shell.plugin.PromptProvider;
 import org.springframework.stereotype.Component;
 
 /**
- * A provider that sets the shell prompt to 'dataflow' if the server is available,
- * 'server-unknown' otherwise.
+ * A provider that sets the shell prompt to 'spring' with the smoothed heartbeat round
+ * trip time if the server is available, 'spring[down]' while the circuit breaker is
+ * open and 'server-unknown' before connecting. Sessions other than the default one are
+ * shown after an '@', for example 'spring@staging'.
  *
  * @author Ilayaperumal Gopinathan
  */
@@ -42,11 +44,16 @@ public class RemotePromptProvider implements PromptProvider {
 
 	@Override
 	public String getPrompt() {
-		try {
-			shell.get();
-			return "spring:>";
-		} catch (Exception e) {
-			return "server-unknown:>";
+		Session session = shell.getSession();
+		HealthMonitor health = session.getHealth();
+		String name = SpringRemoteShell.DEFAULT_SESSION.equals(session.getName()) ? "" : "@" + session.getName();
+		if (health == null) {
+			return String.format("server-unknown%s:>", name);
 		}
+		if (health.getState() != HealthMonitor.State.CLOSED) {
+			return String.format("spring%s[down]:>", name);
+		}
+		double rtt = health.getRttMillis();
+		return rtt < 0 ? String.format("spring%s:>", name) : String.format("spring%s[%dms]:>", name, Math.round(rtt));
 	}
 }
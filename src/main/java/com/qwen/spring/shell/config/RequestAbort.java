@@ -0,0 +1,56 @@
+package com.qwen.spring.shell.config;
+
+/**
+ * 中止正在进行的远程调用. 执行调用的线程先绑定一个RequestAbort, HttpInvoker在建立请求时登记
+ * 中止连接的方法, 其它线程调用{@link #cancel()}时直接断开连接, 阻塞在读取响应上的线程随即失败.
+ */
+public class RequestAbort {
+
+    private static final ThreadLocal<RequestAbort> CURRENT = new ThreadLocal<>();
+
+    private volatile Runnable abort;
+    private volatile boolean cancelled;
+
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public void unbind() {
+        CURRENT.remove();
+        abort = null;
+    }
+
+    /**
+     * 登记当前线程请求的中止方法, 已经取消时立即中止.
+     */
+    static void register(Runnable abort) {
+        RequestAbort current = CURRENT.get();
+        if(current == null) {
+            return;
+        }
+        current.abort = abort;
+        if(current.cancelled) {
+            abort.run();
+        }
+    }
+
+    /**
+     * 当前线程的请求是否已被取消, 取消造成的连接失败不说明服务端不可用.
+     */
+    static boolean isCurrentCancelled() {
+        RequestAbort current = CURRENT.get();
+        return current != null && current.cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        Runnable current = abort;
+        if(current != null) {
+            current.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
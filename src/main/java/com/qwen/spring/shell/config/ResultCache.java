@@ -0,0 +1,167 @@
+package com.qwen.spring.shell.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 调用结果缓存, 只缓存配置了TTL的方法(幂等的查询方法).
+ * 规则以<code>方法名</code>或<code>Component.方法名</code>为键, 后者优先;
+ * 按结果和日志的字符数计算容量, 超过时按LRU淘汰, 每条结果按所属规则的TTL过期.
+ */
+public class ResultCache {
+
+    private final long maxChars;
+    private final Cache<String, Entry> results;
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxChars 缓存的结果、日志和键的字符总数上限
+     */
+    public ResultCache(long maxChars, Map<String, Long> ttls) {
+        this.maxChars = maxChars;
+        // 只有一个分段, 容量和LRU顺序对整个缓存生效
+        this.results = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxChars)
+                .weigher((String key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, key.length() + entry.getChars()))
+                .recordStats()
+                .build();
+        if(ttls != null) {
+            ttls.forEach(this::setTtl);
+        }
+    }
+
+    /**
+     * 设置方法的缓存时间(秒), 小于等于0时取消缓存.
+     */
+    public void setTtl(String method, long ttlSeconds) {
+        if(ttlSeconds > 0) {
+            ttls.put(method, ttlSeconds);
+        } else {
+            ttls.remove(method);
+        }
+    }
+
+    public Map<String, Long> getTtls() {
+        return new TreeMap<>(ttls);
+    }
+
+    public long ttlFor(String component, String method) {
+        Long ttl = ttls.get(component + "." + method);
+        if(ttl == null) {
+            ttl = ttls.get(method);
+        }
+        return ttl == null ? 0 : ttl;
+    }
+
+    public static String key(String component, MethodInfo method, List<Pair<String, String>> params, String logLevel, boolean enableDatabaseLog) {
+        StringBuilder sb = new StringBuilder(component).append('\n').append(method.getName()).append('(');
+        sb.append(method.getParams().stream().map(FieldInfo::getType).collect(Collectors.joining(",")));
+        sb.append(")\n");
+        for(Pair<String, String> param: params) {
+            sb.append(param.getLeft()).append('=').append(param.getRight()).append('\n');
+        }
+        return sb.append(logLevel).append('\n').append(enableDatabaseLog).toString();
+    }
+
+    /**
+     * 查找未过期的结果, 同时记录该方法的命中率.
+     */
+    public Entry get(String key, String component, String method) {
+        Entry entry = results.getIfPresent(key);
+        if(entry != null && entry.isExpired()) {
+            results.invalidate(key);
+            entry = null;
+        }
+        counters.computeIfAbsent(component + "." + method, k -> new LongAdder[]{new LongAdder(), new LongAdder()})[entry != null ? 0 : 1].increment();
+        return entry;
+    }
+
+    public void put(String key, ResponseDTO response, long ttlSeconds) {
+        results.put(key, new Entry(response, ttlSeconds));
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    public String stats() {
+        long hits = 0;
+        long misses = 0;
+        StringBuilder sb = new StringBuilder();
+        for(Map.Entry<String, LongAdder[]> e: new TreeMap<>(counters).entrySet()) {
+            long hit = e.getValue()[0].sum();
+            long miss = e.getValue()[1].sum();
+            hits += hit;
+            misses += miss;
+            sb.append(String.format("\n  %s 命中:%d 未命中:%d 命中率:%.2f%%", e.getKey(), hit, miss, ratio(hit, miss)));
+        }
+        long chars = results.asMap().values().stream().mapToLong(Entry::getChars).sum();
+        return String.format("结果缓存 条数:%d 字符数:%d/%d 淘汰:%d\n规则:%s\n命中:%d\n未命中:%d\n命中率:%.2f%%%s",
+                results.size(), chars, maxChars, results.stats().evictionCount(), getTtls(), hits, misses, ratio(hits, misses), sb);
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : hits * 100.0 / (hits + misses);
+    }
+
+    public static class Entry {
+
+        private final ResponseDTO response;
+        private final long createdAt;
+        private final long expiresAt;
+        private final long chars;
+
+        Entry(ResponseDTO response, long ttlSeconds) {
+            this.response = response;
+            long chars = response.getResult() instanceof String ? ((String) response.getResult()).length() : 0;
+            if(response.getLogs() != null) {
+                for(String log: response.getLogs()) {
+                    chars += log.length();
+                }
+            }
+            this.chars = chars;
+            this.createdAt = System.currentTimeMillis();
+            this.expiresAt = createdAt + ttlSeconds * 1000;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        /**
+         * 结果和日志的字符数.
+         */
+        long getChars() {
+            return chars;
+        }
+
+        public ResponseDTO getResponse() {
+            return response;
+        }
+
+        public long getAgeSeconds() {
+            return (System.currentTimeMillis() - createdAt) / 1000;
+        }
+
+        public long getRemainingSeconds() {
+            return Math.max(0, (expiresAt - System.currentTimeMillis()) / 1000);
+        }
+    }
+}
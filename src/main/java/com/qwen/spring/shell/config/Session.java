@@ -0,0 +1,602 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.CallPlan;
+import com.qwen.spring.shell.command.Container;
+import com.qwen.spring.shell.command.ContainerStore;
+import com.qwen.spring.shell.journal.JournalEntry;
+import com.qwen.spring.shell.json.ClassSchema;
+import com.qwen.spring.shell.log.LogBuffer;
+import com.qwen.spring.shell.log.LogTailer;
+import org.apache.commons.lang3.tuple.MutableTriple;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 一个命名会话: 服务地址、密码、元数据缓存、当前位置和对象都属于会话, 连接池、任务、统计和调用日志由所有会话共享.
+ * <p>
+ * 可以被后台任务并发访问: Component列表和当前位置保存在不可变的快照中整体替换, 其它状态使用volatile字段或线程安全的容器.
+ * 连接相关的修改(setUrl、setPass、setPrefix)在会话上互斥, 不影响其它会话.
+ */
+public class Session {
+
+    private final String name;
+    private final SpringRemoteShell shell;
+    private final ShellProperties shellProperties;
+    private final ContainerStore containers;
+    private final ResultCache resultCache;
+    private final AtomicInteger tempIndex = new AtomicInteger();
+    private final Map<String, CallPlan> callPlans = new ConcurrentHashMap<>();
+    private volatile ShellRemoteService shellRemoteService;
+    private volatile HealthMonitor health;
+    private volatile String url;
+    private volatile String prefix;
+    private volatile String pass;
+    private volatile String logLevel;
+    private volatile boolean enableDatabaseLog;
+    private volatile Catalog catalog = Catalog.EMPTY;
+    private volatile Location location = Location.ROOT;
+    private volatile MutableTriple<String, MethodInfo, List<Pair<String, String>>> history;
+    private volatile long lastCall;
+    private volatile LogTailer logTailer;
+    private volatile MetadataCache metadataCache;
+    private volatile MetadataPrefetch prefetch;
+    private volatile ClassSchema classSchema;
+
+    Session(String name, SpringRemoteShell shell, ShellProperties shellProperties) {
+        this.name = name;
+        this.shell = shell;
+        this.shellProperties = shellProperties;
+        metadataCache = new MetadataCache(shellProperties.getMetadataCacheSize(), shellProperties.getMetadataCacheTtl());
+        resultCache = new ResultCache(shellProperties.getResultCacheMaxChars(), shellProperties.getResultCacheTtls());
+        containers = new ContainerStore(shellProperties.getContainerHeapBudget(), shellProperties.getContainerSpillThreshold(),
+                shellProperties.getSpillDirectory() == null ? null : new File(shellProperties.getSpillDirectory()));
+    }
+
+    void close() {
+        cancelPrefetch();
+        if(logTailer != null) {
+            logTailer.close();
+        }
+        if(health != null) {
+            health.close();
+        }
+        containers.close();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized void setUrl(String url) {
+        cancelPrefetch();
+        this.url = url;
+        if(url != null) {
+            shell.getTransport().getCodec().reset(url);
+        }
+        connect();
+        invalidateMetadata();
+        resultCache.invalidateAll();
+        resetLogTailer();
+        try {
+            echo();
+            refresh();
+        } catch (Exception e) {
+            throw new RuntimeException("连接失败");
+        }
+    }
+
+    /**
+     * 创建当前地址的代理, 调用经过新的熔断器, 心跳直接使用代理.
+     */
+    synchronized void connect() {
+        if(url == null) {
+            return;
+        }
+        ShellRemoteService target = shell.createProxy(url);
+        if(health != null) {
+            health.close();
+        }
+        health = new HealthMonitor(url, () -> target.echo(pass), shellProperties.getHeartbeatInterval(),
+                shellProperties.getBreakerFailureThreshold(), shellProperties.getBreakerOpenDuration());
+        shellRemoteService = health.guard(target);
+    }
+
+    private void resetLogTailer() {
+        if(logTailer != null) {
+            logTailer.close();
+            logTailer = null;
+        }
+        if(url != null && shellProperties.getLogTailPath() != null) {
+            HttpTransport transport = shell.getTransport();
+            logTailer = new LogTailer(url, shellProperties.getLogTailPath(), pass, transport.getConnectTimeout(),
+                    transport.getReadTimeout(), shellProperties.getLogTailInterval());
+        }
+    }
+
+    public synchronized void setPrefix(String prefix) {
+        cancelPrefetch();
+        this.prefix = prefix;
+        invalidateMetadata();
+        if(shellRemoteService != null) {
+            refresh();
+        }
+    }
+
+    public synchronized void setPass(String pass) {
+        cancelPrefetch();
+        this.pass = pass;
+        invalidateMetadata();
+        resultCache.invalidateAll();
+        resetLogTailer();
+        if(shellRemoteService != null) {
+            try {
+                refresh();
+            } catch (Exception e) {
+
+            }
+        }
+    }
+
+    public void setLogLevel(String logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public void setEnableDatabaseLog(boolean enableDatabaseLog) {
+        this.enableDatabaseLog = enableDatabaseLog;
+    }
+
+    public void setMetadataCacheTtl(long ttlSeconds) {
+        metadataCache = new MetadataCache(metadataCache.getMaxSize(), ttlSeconds);
+        classSchema = null;
+        callPlans.clear();
+    }
+
+    /**
+     * 清空方法列表、字段列表以及由它们构建的类型图和参数绑定计划.
+     */
+    public void invalidateMetadata() {
+        metadataCache.invalidateAll();
+        classSchema = null;
+        callPlans.clear();
+    }
+
+    /**
+     * 参数绑定计划, 键为Component#签名.
+     */
+    public Map<String, CallPlan> getCallPlans() {
+        return callPlans;
+    }
+
+    /**
+     * 当前连接的类型图, 字段列表经过缓存, 元数据失效后重新构建.
+     */
+    public ClassSchema getClassSchema() {
+        ClassSchema schema = classSchema;
+        if(schema == null) {
+            schema = new ClassSchema(this::listClassFields);
+            classSchema = schema;
+        }
+        return schema;
+    }
+
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    private void refresh() {
+        List<FieldInfo> components = get().listComponents(pass, prefix);
+        catalog = new Catalog(components);
+        if(shellProperties.isPrefetch()) {
+            startPrefetch();
+        }
+    }
+
+    /**
+     * 在后台预取所有Component的方法列表和参数类型的字段列表, 取消之前的预取.
+     */
+    public MetadataPrefetch startPrefetch() {
+        get();
+        cancelPrefetch();
+        MetadataPrefetch started = new MetadataPrefetch(shellProperties.getPrefetchParallelism(),
+                component -> metadataCache.getMethods(component, () -> get().listMethods(pass, component)),
+                className -> metadataCache.getClassFields(className, () -> get().listClassFields(pass, className)));
+        prefetch = started;
+        return started.start(catalog.components.stream().map(FieldInfo::getName).collect(Collectors.toList()));
+    }
+
+    public void cancelPrefetch() {
+        MetadataPrefetch current = prefetch;
+        if(current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 没有预取过时返回null.
+     */
+    public MetadataPrefetch getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * 交互命令加载元数据, 优先于后台预取.
+     */
+    private <T> T foreground(Supplier<T> loader) {
+        MetadataPrefetch current = prefetch;
+        return current == null ? loader.get() : current.foreground(loader);
+    }
+
+    public String getCurrentComponent() {
+        return location.component;
+    }
+
+    public MutableTriple<String, MethodInfo, List<Pair<String, String>>> getHistory() {
+        return history;
+    }
+
+    /**
+     * 本会话上一次前台调用在日志缓冲区中的编号, 还没有调用时返回0.
+     * 后台任务和其它会话的调用不会改变它.
+     */
+    public long getLastCall() {
+        return lastCall;
+    }
+
+    /**
+     * 心跳和熔断状态, 还没有连接时返回null.
+     */
+    public HealthMonitor getHealth() {
+        return health;
+    }
+
+    String getPass() {
+        return pass;
+    }
+
+    ShellRemoteService get() {
+        ShellRemoteService service = shellRemoteService;
+        if(service == null) {
+            throw new RuntimeException("服务未初始化");
+        }
+        return service;
+    }
+
+    public String echo() {
+        return get().echo(pass);
+    }
+
+    public List<FieldInfo> listComponents(String filter, boolean prefix) {
+        Catalog catalog = this.catalog;
+        if(filter == null) {
+            return catalog.components;
+        }
+        if(prefix) {
+            return catalog.components.stream().filter(c -> c.getName().startsWith(filter)).collect(Collectors.toList());
+        } else if(shell.isFuzzy()) {
+            return byName(catalog.components, catalog.componentIndex.fuzzy(filter), FieldInfo::getName);
+        } else {
+            return catalog.components.stream().filter(c -> c.getName().contains(filter)).collect(Collectors.toList());
+        }
+    }
+
+    public void useComponent(String component) {
+        if(component == null) {
+            location = Location.ROOT;
+            return;
+        }
+        Catalog catalog = this.catalog;
+        String name = component;
+        if(!catalog.componentIndex.contains(name)) {
+            List<String> matched = shell.isFuzzy() ? catalog.componentIndex.fuzzy(name) : Collections.emptyList();
+            if(matched.size() != 1) {
+                throw new RuntimeException(String.format("component[%s]不存在", component));
+            }
+            name = matched.get(0);
+        }
+        String target = name;
+        List<MethodInfo> methods = foreground(() -> metadataCache.getMethods(target, () -> get().listMethods(pass, target)));
+        location = new Location(target, methods);
+    }
+
+    public List<MethodInfo> listMethods(String filter, boolean prefix) {
+        Location location = this.location;
+        if(filter == null) {
+            return location.methods;
+        }
+        if(prefix) {
+            return location.methods.stream().filter(m -> m.getName().startsWith(filter)).collect(Collectors.toList());
+        } else if(shell.isFuzzy()) {
+            return byName(location.methods, location.methodIndex.fuzzy(filter), MethodInfo::getName);
+        } else {
+            return location.methods.stream().filter(m -> m.getName().contains(filter)).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 名称完全相同的方法(重载).
+     */
+    public List<MethodInfo> methodsNamed(String name) {
+        return location.methodsByName.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 任意组件中名称为name的方法, 不切换当前组件.
+     */
+    public List<MethodInfo> methodsNamed(String component, String name) {
+        return metadataCache.getMethods(component, () -> get().listMethods(pass, component)).stream()
+                .filter(m -> m.getName().equals(name)).collect(Collectors.toList());
+    }
+
+    public List<String> listClasses(String filter, boolean prefix) {
+        Location location = this.location;
+        if(location.component == null) {
+            return Collections.emptyList();
+        }
+        if(prefix) {
+            return location.classIndex.prefix(filter);
+        } else {
+            return location.classIndex.all().stream().filter(p -> filter == null || p.contains(filter)).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * TAB补全使用的前缀查找, 忽略大小写.
+     */
+    public List<String> completeComponents(String prefix) {
+        return catalog.componentIndex.prefix(prefix);
+    }
+
+    public List<String> completeMethods(String prefix) {
+        return location.methodIndex.prefix(prefix);
+    }
+
+    public List<String> completeClasses(String prefix) {
+        return location.classIndex.prefix(prefix);
+    }
+
+    public List<String> completeContainers(String prefix) {
+        return containers.keys().stream().filter(k -> prefix == null || k.toLowerCase().startsWith(prefix.toLowerCase())).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * 按模糊匹配的名称顺序返回对象.
+     */
+    private static <T> List<T> byName(List<T> items, List<String> names, Function<T, String> nameOf) {
+        Map<String, List<T>> grouped = items.stream().collect(Collectors.groupingBy(nameOf));
+        return names.stream().flatMap(n -> grouped.getOrDefault(n, Collections.emptyList()).stream()).collect(Collectors.toList());
+    }
+
+    public List<FieldInfo> listClassFields(String className) {
+        return foreground(() -> metadataCache.getClassFields(className, () -> get().listClassFields(pass, className)));
+    }
+
+    public String putContainer(String name, String type, String json) {
+        if(name == null) {
+            name = "TEMP"+tempIndex.getAndIncrement();
+        }
+        Container container = new Container();
+        container.setName(name);
+        container.setType(type);
+        container.setValue(json);
+        containers.put(container);
+        return String.format("<%s>", name);
+    }
+
+    public List<String> listContainerKeys() {
+        return containers.keys();
+    }
+
+    public ContainerStore getContainerStore() {
+        return containers;
+    }
+
+    public Container getContainer(String name) {
+        Container container = containers.get(name);
+        if(container == null) {
+            throw new RuntimeException(String.format("对象[%s]不存在", name));
+        }
+        return container;
+    }
+
+    /**
+     * 从结果缓存中取得调用结果, 未配置缓存或未命中时返回null. 命中时同样记录为历史调用.
+     */
+    public ResultCache.Entry callFromCache(MethodInfo method, List<Pair<String, String>> params) {
+        String component = location.component;
+        if(resultCache.ttlFor(component, method.getName()) <= 0) {
+            return null;
+        }
+        ResultCache.Entry entry = resultCache.get(ResultCache.key(component, method, params, logLevel, enableDatabaseLog), component, method.getName());
+        if(entry != null) {
+            history = MutableTriple.of(component, method, params);
+        }
+        return entry;
+    }
+
+    public ResponseDTO call(MethodInfo method, List<Pair<String, String>> params) {
+        return call(location.component, method, params);
+    }
+
+    /**
+     * 按调用日志中的组件、方法和参数重新调用, 和call一样记录为历史调用.
+     * 只在记录的服务地址上重新调用, 避免把一个环境的调用发到另一个环境.
+     */
+    public ResponseDTO replay(JournalEntry entry) {
+        if(entry.getUrl() != null && !entry.getUrl().equals(url)) {
+            throw new RuntimeException(String.format("调用[%d]发往[%s](会话[%s]), 与当前会话的地址不同", entry.getId(), entry.getUrl(), entry.getSession()));
+        }
+        List<MethodInfo> candidates = metadataCache.getMethods(entry.getComponent(), () -> get().listMethods(pass, entry.getComponent()));
+        MethodInfo method = candidates.stream()
+                .filter(m -> m.getName().equals(entry.getMethod()))
+                .filter(m -> m.getParams().stream().map(FieldInfo::getType).collect(Collectors.toList()).equals(entry.getParamTypes()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException(String.format("方法[%s.%s]不存在", entry.getComponent(), entry.getSignature())));
+        return call(entry.getComponent(), method, entry.getParams());
+    }
+
+    private ResponseDTO call(String component, MethodInfo method, List<Pair<String, String>> params) {
+        history = MutableTriple.of(component, method, params);
+        LogBuffer logBuffer = shell.getLogBuffer();
+        long call = logBuffer.newCall();
+        lastCall = call;
+        ResponseDTO dto = invoke(call, component, method, params, shellProperties.isLogTailEcho());
+        List<LogBuffer.Line> lines = logBuffer.select(call, null, null);
+        if(!lines.isEmpty()) {
+            putContainer("LOG", "String", lines.stream().map(LogBuffer.Line::getText).collect(Collectors.joining("\n")));
+        }
+        return dto;
+    }
+
+    /**
+     * 后台任务使用的调用, 不修改历史调用和LOG, 日志只保存在缓冲区中, 不输出到终端.
+     */
+    public ResponseDTO invoke(String component, MethodInfo method, List<Pair<String, String>> params) {
+        return invoke(shell.getLogBuffer().newCall(), component, method, params, false);
+    }
+
+    private ResponseDTO invoke(long call, String component, MethodInfo method, List<Pair<String, String>> params, boolean echo) {
+        String logLevel = this.logLevel;
+        boolean enableDatabaseLog = this.enableDatabaseLog;
+        ResponseDTO dto = withLogs(call, echo, () -> shell.journaled(this, component, method, params,
+                () -> get().callMethod(pass, component, method.getName(), params, logLevel, enableDatabaseLog)));
+        long ttl = resultCache.ttlFor(component, method.getName());
+        if(ttl > 0 && dto.getCode() == 0) {
+            resultCache.put(ResultCache.key(component, method, params, logLevel, enableDatabaseLog), dto, ttl);
+        }
+        return dto;
+    }
+
+    public ResponseDTO repeat() {
+        MutableTriple<String, MethodInfo, List<Pair<String, String>>> last = history;
+        if(last == null) {
+            throw new RuntimeException("历史资料不存在");
+        }
+        long call = shell.getLogBuffer().newCall();
+        lastCall = call;
+        return withLogs(call, shellProperties.isLogTailEcho(), () -> shell.journaled(this, last.left, last.middle, last.right,
+                () -> get().callMethod(pass, last.left, last.middle.getName(), last.right, logLevel, enableDatabaseLog)));
+    }
+
+    /**
+     * 调用期间轮询服务端日志, 服务端不支持轮询或没有取得日志时使用ResponseDTO中的日志.
+     * 日志只保存在环形缓冲区中, 不再拼接成一个字符串.
+     */
+    private ResponseDTO withLogs(long call, boolean echo, Supplier<ResponseDTO> invocation) {
+        LogBuffer logBuffer = shell.getLogBuffer();
+        LogTailer tailer = logTailer;
+        LogTailer.Tail tail = tailer == null ? null : tailer.start(text -> {
+            logBuffer.append(call, text);
+            if(echo) {
+                System.out.print(text.endsWith("\n") ? text : text + "\n");
+            }
+        });
+        ResponseDTO dto;
+        long tailed = 0;
+        try {
+            dto = invocation.get();
+        } finally {
+            if(tail != null) {
+                tailed = tail.stop();
+            }
+        }
+        if(tailed == 0 && dto.getLogs() != null) {
+            for(String text: dto.getLogs()) {
+                logBuffer.append(call, text);
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * 重新调用上一次的方法, 不记录日志和结果.
+     */
+    public ResponseDTO invokeHistory() {
+        MutableTriple<String, MethodInfo, List<Pair<String, String>>> last = history;
+        if(last == null) {
+            throw new RuntimeException("历史资料不存在");
+        }
+        return get().callMethod(pass, last.left, last.middle.getName(), last.right, logLevel, enableDatabaseLog);
+    }
+
+    /**
+     * 压测使用的调用, 与其它调用使用同一个代理, 不记录历史调用、调用日志和LOG.
+     */
+    public ResponseDTO invokeDirect(String component, MethodInfo method, List<Pair<String, String>> params) {
+        return get().callMethod(pass, component, method.getName(), params, logLevel, enableDatabaseLog);
+    }
+
+    /**
+     * 使用会话的密码和日志设置调用其它节点.
+     */
+    ResponseDTO callMethod(ShellRemoteService service, String component, String method, List<Pair<String, String>> params) {
+        return service.callMethod(pass, component, method, params, logLevel, enableDatabaseLog);
+    }
+
+    /**
+     * session命令列出的一行.
+     */
+    String summary() {
+        HealthMonitor health = this.health;
+        String state = health == null ? "未连接" : health.getState().toString();
+        return String.format("%s %s 位置:%s 对象:%d 状态:%s", name, url == null ? "-" : url,
+                location.component == null ? "/" : location.component, containers.keys().size(), state);
+    }
+
+    /**
+     * Component列表和名称索引.
+     */
+    private static final class Catalog {
+
+        static final Catalog EMPTY = new Catalog(Collections.emptyList());
+
+        final List<FieldInfo> components;
+        final NameIndex componentIndex;
+
+        Catalog(List<FieldInfo> components) {
+            this.components = components;
+            this.componentIndex = new NameIndex(components.stream().map(FieldInfo::getName).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * 当前Component和它的方法、方法名和参数类型的索引, cd时整体替换.
+     */
+    private static final class Location {
+
+        static final Location ROOT = new Location(null, Collections.emptyList());
+
+        final String component;
+        final List<MethodInfo> methods;
+        final NameIndex methodIndex;
+        final Map<String, List<MethodInfo>> methodsByName;
+        final NameIndex classIndex;
+
+        Location(String component, List<MethodInfo> methods) {
+            this.component = component;
+            this.methods = methods;
+            this.methodIndex = new NameIndex(methods.stream().map(MethodInfo::getName).collect(Collectors.toList()));
+            this.methodsByName = methods.stream().collect(Collectors.groupingBy(MethodInfo::getName));
+            this.classIndex = new NameIndex(methods.stream().flatMap(m -> m.getParams().stream().map(FieldInfo::getType)).collect(Collectors.toSet()));
+        }
+    }
+}
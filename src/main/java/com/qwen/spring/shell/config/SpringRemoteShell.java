@@ -4,192 +4,423 @@ import com.nhsoft.provider.shell.remote.FieldInfo;
 import com.nhsoft.provider.shell.remote.MethodInfo;
 import com.nhsoft.provider.shell.remote.ResponseDTO;
 import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import com.qwen.spring.shell.ShellProperties;
 import com.qwen.spring.shell.command.Container;
+import com.qwen.spring.shell.command.ContainerStore;
+import com.qwen.spring.shell.command.JobManager;
+import com.qwen.spring.shell.journal.CallJournal;
+import com.qwen.spring.shell.journal.JournalEntry;
+import com.qwen.spring.shell.json.ClassSchema;
+import com.qwen.spring.shell.log.LogBuffer;
+import com.qwen.spring.shell.stats.CallStats;
 import org.apache.commons.lang3.tuple.MutableTriple;
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.remoting.httpinvoker.HttpInvokerProxyFactoryBean;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * 命令使用的入口. 服务地址、元数据和对象属于{@link Session}, 以下方法作用于当前会话;
+ * 后台任务应先取得{@link #getSession()}再调用, 切换会话不影响已经开始的任务.
+ * 连接池、后台任务、统计、日志缓冲区和调用日志由所有会话共享.
+ */
 @Component
 public class SpringRemoteShell {
 
-    private ShellRemoteService shellRemoteService;
-    private String prefix;
-    private String pass;
-    private String currentComponent;
-    private Map<String, Container> containers = new HashMap<>();
-    private List<FieldInfo> components = Collections.emptyList();
-    private List<MethodInfo> methods = Collections.emptyList();
-    private int tempIndex = 0;
-    private MutableTriple<String, MethodInfo, List<Pair<String, String>>> history;
-    private String log;
-    private String logLevel;
-    private boolean enableDatabaseLog;
+    public static final String DEFAULT_SESSION = "default";
+
+    @Autowired
+    private ShellProperties shellProperties;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private volatile Session session;
+    private volatile boolean fuzzy;
+    private LogBuffer logBuffer;
+    private CallStats callStats;
+    private JobManager jobs;
+    private HttpTransport transport;
+    private CallJournal journal;
+    private volatile boolean journalFailed;
+    private final Map<String, List<String>> nodeGroups = new ConcurrentHashMap<>();
+    /**
+     * 节点的代理, 按地址共享, 更换连接池时清空.
+     */
+    private final Map<String, ShellRemoteService> nodeProxies = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        callStats = new CallStats(shellProperties.getStatsMaxRecords());
+        logBuffer = new LogBuffer(shellProperties.getLogBufferLines());
+        jobs = new JobManager(shellProperties.getJobThreads());
+        fuzzy = shellProperties.isFuzzyMatch();
+        session = new Session(DEFAULT_SESSION, this, shellProperties);
+        sessions.put(DEFAULT_SESSION, session);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sessions.values().forEach(Session::close);
+        jobs.close();
+        if(transport != null) {
+            transport.close();
+        }
+        if(journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    /**
+     * 当前会话.
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * 切换到名为name的会话, 不存在时创建一个未连接的会话.
+     */
+    public Session useSession(String name) {
+        Session target = sessions.computeIfAbsent(name, n -> new Session(n, this, shellProperties));
+        session = target;
+        return target;
+    }
+
+    /**
+     * 关闭会话, 释放它的连接、预取和对象. 不能关闭当前会话.
+     */
+    public void closeSession(String name) {
+        Session target = sessions.get(name);
+        if(target == null) {
+            throw new RuntimeException(String.format("会话[%s]不存在", name));
+        }
+        if(target == session) {
+            throw new RuntimeException("不能关闭当前会话");
+        }
+        sessions.remove(name, target);
+        target.close();
+    }
+
+    public String listSessions() {
+        Session current = session;
+        return sessions.values().stream().sorted(Comparator.comparing(Session::getName))
+                .map(s -> (s == current ? "* " : "  ") + s.summary()).collect(Collectors.joining("\n"));
+    }
 
     public void setUrl(String url) {
+        session.setUrl(url);
+    }
+
+    ShellRemoteService createProxy(String url) {
         HttpInvokerProxyFactoryBean bean = new HttpInvokerProxyFactoryBean();
         bean.setServiceInterface(ShellRemoteService.class);
         bean.setServiceUrl(url+"/shellRemote");
+        bean.setHttpInvokerRequestExecutor(getTransport().getExecutor());
         bean.afterPropertiesSet();
-        shellRemoteService = (ShellRemoteService) bean.getObject();
-        try {
-            echo();
-            refresh();
-        } catch (Exception e) {
-            throw new RuntimeException("连接失败");
+        return (ShellRemoteService) bean.getObject();
+    }
+
+    /**
+     * 所有会话使用新的连接池重新创建代理, 节点组的代理在下次广播时重新创建.
+     */
+    public synchronized void setTransport(String type, Integer connectTimeout, Integer readTimeout, String compression) {
+        HttpTransport old = getTransport();
+        WireCodec codec = old.getCodec();
+        if(compression != null) {
+            codec = new WireCodec(compression, codec.getThreshold(), codec.getLevel());
         }
+        transport = new HttpTransport(type != null ? type : old.getType(),
+                connectTimeout != null ? connectTimeout : old.getConnectTimeout(),
+                readTimeout != null ? readTimeout : old.getReadTimeout(), old.getMaxConnections(), codec);
+        old.close();
+        nodeProxies.clear();
+        sessions.values().forEach(Session::connect);
     }
 
-    public void setPrefix(String prefix) {
-        this.prefix = prefix;
-        if(shellRemoteService != null) {
-            refresh();
+    /**
+     * 第一次连接时才创建, 连接池会初始化SSL, 不在启动时执行.
+     */
+    public synchronized HttpTransport getTransport() {
+        if(transport == null) {
+            transport = new HttpTransport(shellProperties.getTransport(), shellProperties.getConnectTimeout(),
+                    shellProperties.getReadTimeout(), shellProperties.getMaxConnections(),
+                    new WireCodec(shellProperties.getCompression(), shellProperties.getCompressionThreshold(), shellProperties.getCompressionLevel()));
         }
+        return transport;
     }
 
-    public void setPass(String pass) {
-        this.pass = pass;
-        if(shellRemoteService != null) {
-            try {
-                refresh();
-            } catch (Exception e) {
+    public void registerNodeGroup(String name, List<String> urls) {
+        nodeGroups.put(name, new ArrayList<>(new LinkedHashSet<>(urls)));
+    }
 
-            }
+    public Map<String, List<String>> listNodeGroups() {
+        return new TreeMap<>(nodeGroups);
+    }
+
+    /**
+     * 在节点组的所有节点上并行调用当前Component的方法, 使用当前会话的密码和日志设置.
+     */
+    public String broadcast(String group, MethodInfo method, List<Pair<String, String>> params, long timeoutMillis) throws InterruptedException {
+        List<String> nodes = nodeGroups.get(group);
+        if(nodes == null) {
+            throw new RuntimeException(String.format("节点组[%s]不存在", group));
+        }
+        Session current = session;
+        String component = current.getCurrentComponent();
+        if(component == null) {
+            throw new RuntimeException("未选择Component");
         }
+        Map<String, Callable<ResponseDTO>> calls = new LinkedHashMap<>();
+        for(String node: nodes) {
+            ShellRemoteService service = nodeProxies.computeIfAbsent(node, this::createProxy);
+            calls.put(node, () -> current.callMethod(service, component, method.getName(), params));
+        }
+        Broadcast broadcast = new Broadcast(shellProperties.getBroadcastThreads(), timeoutMillis, 20);
+        return broadcast.report(broadcast.run(calls));
+    }
+
+    public void setPrefix(String prefix) {
+        session.setPrefix(prefix);
+    }
+
+    public void setPass(String pass) {
+        session.setPass(pass);
     }
 
     public void setLogLevel(String logLevel) {
-        this.logLevel = logLevel;
+        session.setLogLevel(logLevel);
     }
 
     public void setEnableDatabaseLog(boolean enableDatabaseLog) {
-        this.enableDatabaseLog = enableDatabaseLog;
+        session.setEnableDatabaseLog(enableDatabaseLog);
+    }
+
+    public void setMetadataCacheTtl(long ttlSeconds) {
+        session.setMetadataCacheTtl(ttlSeconds);
+    }
+
+    public void invalidateMetadata() {
+        session.invalidateMetadata();
+    }
+
+    public ClassSchema getClassSchema() {
+        return session.getClassSchema();
+    }
+
+    public MetadataCache getMetadataCache() {
+        return session.getMetadataCache();
+    }
+
+    public ResultCache getResultCache() {
+        return session.getResultCache();
     }
 
-    private void refresh() {
-        components = get().listComponents(pass, prefix);
+    public CallStats getCallStats() {
+        return callStats;
+    }
+
+    public JobManager getJobs() {
+        return jobs;
+    }
+
+    public MetadataPrefetch startPrefetch() {
+        return session.startPrefetch();
+    }
+
+    public void cancelPrefetch() {
+        session.cancelPrefetch();
+    }
+
+    public MetadataPrefetch getPrefetch() {
+        return session.getPrefetch();
+    }
+
+    public void setFuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+    }
+
+    boolean isFuzzy() {
+        return fuzzy;
     }
 
     public String getCurrentComponent() {
-        return currentComponent;
+        return session.getCurrentComponent();
     }
 
     public MutableTriple<String, MethodInfo, List<Pair<String, String>>> getHistory() {
-        return history;
+        return session.getHistory();
     }
 
-    ShellRemoteService get() {
-        if(shellRemoteService == null) {
-            throw new RuntimeException("服务未初始化");
+    public long getLastCall() {
+        return session.getLastCall();
+    }
+
+    /**
+     * 当前会话的心跳和熔断状态, 还没有连接时返回null.
+     */
+    public HealthMonitor getHealth() {
+        return session.getHealth();
+    }
+
+    /**
+     * 第一次使用时打开调用日志.
+     */
+    public synchronized CallJournal getJournal() {
+        if(!shellProperties.isJournalEnabled()) {
+            throw new RuntimeException("调用日志未启用");
         }
-        return shellRemoteService;
+        if(journal == null) {
+            File directory = shellProperties.getJournalDirectory() != null ? new File(shellProperties.getJournalDirectory())
+                    : new File(System.getProperty("user.home"), ".spring-remote-shell/journal");
+            try {
+                journal = new CallJournal(directory, shellProperties.getJournalSegmentSize(), shellProperties.getJournalMaxSegments());
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("无法打开调用日志[%s]: %s", directory, e.getMessage()));
+            }
+        }
+        return journal;
+    }
+
+    ShellRemoteService get() {
+        return session.get();
     }
 
     public String echo() {
-        return get().echo(pass);
+        return session.echo();
     }
 
     public List<FieldInfo> listComponents(String filter, boolean prefix) {
-        if(filter == null) {
-            return components;
-        }
-        if(prefix) {
-            return components.stream().filter(c -> c.getName().startsWith(filter)).collect(Collectors.toList());
-        } else {
-            return components.stream().filter(c -> c.getName().contains(filter)).collect(Collectors.toList());
-        }
+        return session.listComponents(filter, prefix);
     }
 
     public void useComponent(String component) {
-        if(component != null) {
-            components.stream().filter(c -> c.getName().equals(component)).findAny().orElseThrow(() -> new RuntimeException(String.format("component[%s]不存在", component)));
-            methods = get().listMethods(pass, component);
-        } else {
-            methods = Collections.emptyList();
-        }
-        currentComponent = component;
+        session.useComponent(component);
     }
 
     public List<MethodInfo> listMethods(String filter, boolean prefix) {
-        if(filter == null) {
-            return methods;
-        }
-        if(prefix) {
-            return methods.stream().filter(m -> m.getName().startsWith(filter)).collect(Collectors.toList());
-        } else {
-            return methods.stream().filter(m -> m.getName().contains(filter)).collect(Collectors.toList());
-        }
+        return session.listMethods(filter, prefix);
+    }
+
+    public List<MethodInfo> methodsNamed(String name) {
+        return session.methodsNamed(name);
+    }
+
+    public List<MethodInfo> methodsNamed(String component, String name) {
+        return session.methodsNamed(component, name);
     }
 
     public List<String> listClasses(String filter, boolean prefix) {
-        if(currentComponent == null) {
-            return Collections.emptyList();
-        }
-        if(prefix) {
-            return methods.stream().flatMap(m -> m.getParams().stream().map(FieldInfo::getType)).filter(p -> p.startsWith(filter)).collect(Collectors.toList());
-        } else {
-            return methods.stream().flatMap(m -> m.getParams().stream().map(FieldInfo::getType)).filter(p -> p.contains(filter)).collect(Collectors.toList());
-        }
+        return session.listClasses(filter, prefix);
+    }
+
+    public List<String> completeComponents(String prefix) {
+        return session.completeComponents(prefix);
+    }
+
+    public List<String> completeMethods(String prefix) {
+        return session.completeMethods(prefix);
+    }
+
+    public List<String> completeClasses(String prefix) {
+        return session.completeClasses(prefix);
+    }
+
+    public List<String> completeContainers(String prefix) {
+        return session.completeContainers(prefix);
     }
 
     public List<FieldInfo> listClassFields(String className) {
-        return get().listClassFields(pass, className);
+        return session.listClassFields(className);
     }
 
     public String putContainer(String name, String type, String json) {
-        if(name == null) {
-            name = "TEMP"+tempIndex++;
-        }
-        Container container = new Container();
-        container.setName(name);
-        container.setType(type);
-        container.setValue(json);
-        containers.put(name, container);
-        return String.format("<%s>", name);
+        return session.putContainer(name, type, json);
     }
 
     public List<String> listContainerKeys() {
-        return new ArrayList<>(containers.keySet());
+        return session.listContainerKeys();
+    }
+
+    public ContainerStore getContainerStore() {
+        return session.getContainerStore();
     }
 
     public Container getContainer(String name) {
-        Container container = containers.get(name);
-        if(container == null) {
-            throw new RuntimeException(String.format("对象[%s]不存在", name));
-        }
-        return container;
+        return session.getContainer(name);
+    }
+
+    public ResultCache.Entry callFromCache(MethodInfo method, List<Pair<String, String>> params) {
+        return session.callFromCache(method, params);
     }
 
     public ResponseDTO call(MethodInfo method, List<Pair<String, String>> params) {
-        if(history == null) {
-            history = new MutableTriple<>();
-        }
-        history.setLeft(currentComponent);
-        history.setMiddle(method);
-        history.setRight(params);
-        ResponseDTO dto = get().callMethod(pass, currentComponent, method.getName(), params, logLevel, enableDatabaseLog);
-        if(dto.getLogs() != null) {
-            log = dto.getLogs().stream().collect(Collectors.joining());
-            putContainer("LOG", "String", log);
-        }
-        return dto;
+        return session.call(method, params);
+    }
+
+    public ResponseDTO replay(JournalEntry entry) {
+        return session.replay(entry);
+    }
+
+    public ResponseDTO invoke(String component, MethodInfo method, List<Pair<String, String>> params) {
+        return session.invoke(component, method, params);
     }
 
     public ResponseDTO repeat() {
-        if(history == null) {
-            throw new RuntimeException("历史资料不存在");
+        return session.repeat();
+    }
+
+    public ResponseDTO invokeHistory() {
+        return session.invokeHistory();
+    }
+
+    public ResponseDTO invokeDirect(String component, MethodInfo method, List<Pair<String, String>> params) {
+        return session.invokeDirect(component, method, params);
+    }
+
+    /**
+     * 把调用写入调用日志. 写入失败只提示一次, 不影响调用.
+     */
+    ResponseDTO journaled(Session session, String component, MethodInfo method, List<Pair<String, String>> params, Supplier<ResponseDTO> invocation) {
+        if(!shellProperties.isJournalEnabled() || journalFailed) {
+            return invocation.get();
         }
-        ResponseDTO dto = get().callMethod(pass, history.left, history.middle.getName(), history.right, logLevel, enableDatabaseLog);
-        if(dto.getLogs() != null) {
-            log = dto.getLogs().stream().collect(Collectors.joining());
+        long begin = System.nanoTime();
+        ResponseDTO dto = null;
+        String error = null;
+        try {
+            dto = invocation.get();
+            return dto;
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            throw e;
+        } finally {
+            long latencyUs = (System.nanoTime() - begin) / 1000;
+            Object result = dto != null ? dto.getResult() : null;
+            JournalEntry entry = new JournalEntry(session.getName(), session.getUrl(), component, method.getName(), method.getReturnType(), params,
+                    dto != null ? dto.getCode() : -1, dto != null ? dto.getMsg() : error,
+                    result instanceof String ? ((String) result).length() : 0, latencyUs);
+            try {
+                getJournal().append(entry);
+            } catch (IOException | RuntimeException e) {
+                journalFailed = true;
+                System.err.format("写入调用日志失败, 不再记录: %s\n", e.getMessage());
+            }
         }
-        return dto;
     }
 
-    public String log() {
-        return log;
+    public LogBuffer getLogBuffer() {
+        return logBuffer;
     }
 }
@@ -0,0 +1,257 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.stats.CallTrace;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HttpInvoker请求体和响应体的压缩.
+ * <ul>
+ * <li>响应: 请求头<code>Accept-Encoding</code>声明支持gzip和deflate, 按响应的<code>Content-Encoding</code>解压.</li>
+ * <li>请求: 服务端在响应头<code>Accept-Encoding</code>中声明接受该编码后(RFC 7694), 超过阈值的请求体才压缩,
+ * 不了解该约定的服务端只会收到未压缩的请求. 是否接受按服务端(协议、主机和端口)分别记录.</li>
+ * </ul>
+ * deflate与gzip压缩率相同, 少了gzip的头和CRC, 配合较低的压缩级别用作更快的编码.
+ */
+public class WireCodec {
+
+    public static final String OFF = "off";
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private final String codec;
+    private final int threshold;
+    private final int level;
+    private final Map<String, Boolean> requestEncodingAccepted = new ConcurrentHashMap<>();
+    private final LongAdder rawSent = new LongAdder();
+    private final LongAdder wireSent = new LongAdder();
+    private final LongAdder rawReceived = new LongAdder();
+    private final LongAdder wireReceived = new LongAdder();
+    private final LongAdder codecNanos = new LongAdder();
+
+    /**
+     * @param codec off/gzip/deflate
+     * @param threshold 请求体小于该字节数时不压缩
+     * @param level 压缩级别(1-9), -1为默认级别
+     */
+    public WireCodec(String codec, int threshold, int level) {
+        switch (codec) {
+            case OFF:
+            case GZIP:
+            case DEFLATE:
+                break;
+            default:
+                throw new RuntimeException(String.format("压缩方式[%s]不存在", codec));
+        }
+        if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new RuntimeException(String.format("压缩级别[%d]不正确", level));
+        }
+        this.codec = codec;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    public boolean isEnabled() {
+        return !OFF.equals(codec);
+    }
+
+    public String acceptEncoding() {
+        return GZIP + ", " + DEFLATE;
+    }
+
+    /**
+     * 记录服务端是否接受压缩的请求体.
+     */
+    void negotiate(String url, String acceptEncoding) {
+        if(acceptEncoding != null) {
+            requestEncodingAccepted.put(endpoint(url), acceptEncoding.toLowerCase(Locale.ENGLISH).contains(codec));
+        }
+    }
+
+    /**
+     * 忘记服务端是否接受压缩的请求体, 重新连接后按下一次响应重新协商.
+     */
+    public void reset(String url) {
+        requestEncodingAccepted.remove(endpoint(url));
+    }
+
+    private static String endpoint(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getAuthority();
+    }
+
+    /**
+     * 压缩请求体. 在发送请求之前执行, 耗时不包含在REMOTE中.
+     *
+     * @return 不需要压缩时返回原来的请求体
+     */
+    ByteArrayOutputStream encode(String url, ByteArrayOutputStream body) throws IOException {
+        if(!isEnabled()) {
+            return body;
+        }
+        rawSent.add(body.size());
+        if(body.size() < threshold || !requestEncodingAccepted.getOrDefault(endpoint(url), false)) {
+            wireSent.add(body.size());
+            return body;
+        }
+        long begin = System.nanoTime();
+        EncodedBody encoded = new EncodedBody(Math.max(64, body.size() / 4));
+        try(DeflaterOutputStream out = GZIP.equals(codec) ? new LevelGZIPOutputStream(encoded, level) : new LevelDeflaterOutputStream(encoded, level)) {
+            body.writeTo(out);
+        }
+        long elapsed = System.nanoTime() - begin;
+        codecNanos.add(elapsed);
+        CallTrace.record(CallTrace.Phase.CODEC, elapsed);
+        CallTrace.compressed(body.size() - encoded.size());
+        wireSent.add(encoded.size());
+        return encoded;
+    }
+
+    /**
+     * 请求体是否经过压缩, 是则需要设置<code>Content-Encoding</code>.
+     */
+    static boolean isEncoded(ByteArrayOutputStream body) {
+        return body instanceof EncodedBody;
+    }
+
+    /**
+     * 按Content-Encoding解压响应体. 压缩的响应先完整读入, 使解压的耗时与网络和反序列化分开.
+     */
+    InputStream decode(String contentEncoding, InputStream wire) throws IOException {
+        String encoding = contentEncoding == null ? null : contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+        if(encoding == null || encoding.isEmpty() || "identity".equals(encoding)) {
+            return new CountingInput(wire);
+        }
+        byte[] compressed = IOUtils.toByteArray(wire);
+        long begin = System.nanoTime();
+        InputStream in;
+        switch (encoding) {
+            case GZIP:
+            case "x-gzip":
+                in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                break;
+            case DEFLATE:
+                in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+                break;
+            default:
+                throw new IOException(String.format("不支持的响应编码[%s]", contentEncoding));
+        }
+        byte[] raw = IOUtils.toByteArray(in);
+        long elapsed = System.nanoTime() - begin;
+        codecNanos.add(elapsed);
+        CallTrace.record(CallTrace.Phase.CODEC, elapsed);
+        // 解压发生在请求的计时之内, 从REMOTE中扣除
+        CallTrace.record(CallTrace.Phase.REMOTE, -elapsed);
+        CallTrace.compressed(raw.length - compressed.length);
+        rawReceived.add(raw.length);
+        wireReceived.add(compressed.length);
+        return new ByteArrayInputStream(raw);
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String stats() {
+        if(!isEnabled()) {
+            return "压缩:off";
+        }
+        long sent = rawSent.sum();
+        long received = rawReceived.sum();
+        long accepted = requestEncodingAccepted.values().stream().filter(Boolean::booleanValue).count();
+        return String.format("压缩:%s 级别:%d 阈值:%d字节 接受压缩请求的服务端:%d/%d\n请求:%d -> %d字节(%.1f%%)\n响应:%d -> %d字节(%.1f%%)\n压缩耗时:%.3fms",
+                codec, level, threshold, accepted, requestEncodingAccepted.size(),
+                sent, wireSent.sum(), percent(wireSent.sum(), sent), received, wireReceived.sum(), percent(wireReceived.sum(), received),
+                codecNanos.sum() / 1e6);
+    }
+
+    private static double percent(long wire, long raw) {
+        return raw == 0 ? 100 : wire * 100.0 / raw;
+    }
+
+    /**
+     * 统计未压缩响应的字节数.
+     */
+    private class CountingInput extends CountingInputStream {
+
+        private boolean counted;
+
+        CountingInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if(!counted) {
+                counted = true;
+                rawReceived.add(getByteCount());
+                wireReceived.add(getByteCount());
+            }
+        }
+    }
+
+    private static class EncodedBody extends ByteArrayOutputStream {
+
+        EncodedBody(int size) {
+            super(size);
+        }
+    }
+
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+
+        LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out);
+            this.def.setLevel(level);
+        }
+    }
+
+    /**
+     * 关闭时释放Deflater.
+     */
+    private static class LevelDeflaterOutputStream extends DeflaterOutputStream {
+
+        LevelDeflaterOutputStream(OutputStream out, int level) {
+            super(out, new Deflater(level));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                this.def.end();
+            }
+        }
+    }
+}
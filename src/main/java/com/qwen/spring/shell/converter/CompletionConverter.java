@@ -16,8 +16,6 @@
 
 package com.qwen.spring.shell.converter;
 
-import com.nhsoft.provider.shell.remote.FieldInfo;
-import com.nhsoft.provider.shell.remote.MethodInfo;
 import com.qwen.spring.shell.config.SpringRemoteShell;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.core.Completion;
@@ -30,7 +28,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * A converter that provides DSL completion wherever parts of stream definitions may
@@ -76,31 +73,33 @@ public class CompletionConverter implements Converter<String> {
 	@Override
 	public boolean getAllPossibleValues(List<Completion> completions, Class<?> targetType, String existingData,
 			String optionContext, MethodTarget target) {
-			String kind = completionKind(optionContext);
+		String kind = completionKind(optionContext);
 		List<String> proposals = Collections.emptyList();
 		switch (kind) {
 			case "component":
-				proposals = shell.listComponents(existingData, true).stream().map(FieldInfo::getName).collect(Collectors.toList());
+				proposals = shell.completeComponents(existingData);
 				break;
 			case "method":
-				proposals = shell.listMethods(existingData, true).stream().map(MethodInfo::getName).collect(Collectors.toList());
+				proposals = shell.completeMethods(existingData);
 				break;
 			case "common":
 				if(shell.getCurrentComponent() == null) {
-					proposals = shell.listComponents(existingData, true).stream().map(FieldInfo::getName).collect(Collectors.toList());
+					proposals = shell.completeComponents(existingData);
 				} else {
-					proposals = shell.listMethods(existingData, true).stream().map(MethodInfo::getName).collect(Collectors.toList());
+					proposals = shell.completeMethods(existingData);
 				}
 				break;
 			case "dto":
-				shell.listContainerKeys();
+				proposals = shell.completeContainers(existingData);
 				break;
 			case "class":
-				proposals = shell.listClasses(existingData, false);
+				proposals = shell.completeClasses(existingData);
 				break;
 
 		}
-		completions.addAll(proposals.stream().map(Completion::new).collect(Collectors.toList()));
+		for (String proposal : proposals) {
+			completions.add(new Completion(proposal));
+		}
 		return false;
 	}
 
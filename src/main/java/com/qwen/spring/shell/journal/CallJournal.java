@@ -0,0 +1,332 @@
+package com.qwen.spring.shell.journal;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 只追加的调用日志, 按大小分段保存在目录中.
+ * <ul>
+ * <li>journal-{首个编号}.dat: 每行一个{@link JournalEntry}的JSON.</li>
+ * <li>journal-{首个编号}.idx: 每条调用40字节的定长索引: 编号、时间、数据偏移、数据长度、耗时(毫秒)、code、方法名的hashCode.</li>
+ * </ul>
+ * 按编号查找时直接计算索引位置; 按条件查找时从最新的索引向前扫描, 只读取匹配的数据行, 不会把日志读入内存.
+ * 启动时截掉最后一段中未写完整的索引和数据.
+ * <p>
+ * 多个进程可以共用一个目录: 写入时持有目录中journal.lock的文件锁, 并在锁内重新读取最后一段的末尾和其它进程轮换出的新段.
+ */
+public class CallJournal implements Closeable {
+
+    private static final int RECORD_SIZE = 40;
+
+    private static final int SCAN_RECORDS = 4096;
+
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d{20})\\.idx");
+
+    /**
+     * 同一进程内对同一目录的互斥, 文件锁只在进程之间互斥, 同一进程重复加锁会抛出异常.
+     */
+    private static final Map<String, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final Gson gson = new Gson();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Object monitor;
+    private final FileChannel lock;
+    private FileChannel data;
+    private FileChannel index;
+    private long dataSize;
+    private long nextId;
+
+    /**
+     * @param segmentSize 数据文件超过该字节数后开始新的一段
+     * @param maxSegments 保留的段数, 超过后删除最早的段, 0表示全部保留
+     */
+    public CallJournal(File directory, long segmentSize, int maxSegments) throws IOException {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(String.format("无法创建目录[%s]", directory));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.monitor = MONITORS.computeIfAbsent(directory.getCanonicalPath(), k -> new Object());
+        this.lock = FileChannel.open(new File(directory, "journal.lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            synchronized (monitor) {
+                try(FileLock ignored = lock.lock()) {
+                    scanSegments();
+                    openActive();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    private void scanSegments() {
+        List<Segment> found = listSegments();
+        synchronized (this) {
+            segments.clear();
+            segments.addAll(found);
+        }
+    }
+
+    private List<Segment> listSegments() {
+        List<Segment> found = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                Matcher matcher = SEGMENT.matcher(file.getName());
+                if(matcher.matches()) {
+                    found.add(new Segment(directory, Long.parseLong(matcher.group(1))));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(segment -> segment.firstId));
+        if(found.isEmpty()) {
+            found.add(new Segment(directory, 1));
+        }
+        return found;
+    }
+
+    private void openActive() throws IOException {
+        Segment active = segments.get(segments.size() - 1);
+        index = FileChannel.open(active.index.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        data = FileChannel.open(active.data.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readTail();
+    }
+
+    /**
+     * 按索引的条数计算下一个编号和数据的末尾, 截掉未写完整的部分. 只在持有文件锁时调用, 此时没有其它进程正在写入.
+     */
+    private void readTail() throws IOException {
+        Segment active = segments.get(segments.size() - 1);
+        long count = index.size() / RECORD_SIZE;
+        index.truncate(count * RECORD_SIZE);
+        dataSize = 0;
+        if(count > 0) {
+            ByteBuffer last = read(index, (count - 1) * RECORD_SIZE, RECORD_SIZE);
+            dataSize = last.getLong(16) + last.getInt(24);
+        }
+        data.truncate(dataSize);
+        nextId = active.firstId + count;
+    }
+
+    /**
+     * 追加一条调用, 先写数据再写索引, 写入索引后才能被查到.
+     *
+     * @return 分配的编号
+     */
+    public synchronized long append(JournalEntry entry) throws IOException {
+        synchronized (monitor) {
+            try(FileLock ignored = lock.lock()) {
+                catchUp();
+                return write(entry);
+            }
+        }
+    }
+
+    /**
+     * 读取其它进程在上次写入之后追加的调用; 其它进程轮换过时, 当前段之后会出现以下一个编号命名的段, 此时重新扫描目录.
+     */
+    private void catchUp() throws IOException {
+        Segment active = segments.get(segments.size() - 1);
+        if(new Segment(directory, active.firstId + index.size() / RECORD_SIZE).index.exists()) {
+            data.close();
+            index.close();
+            scanSegments();
+            openActive();
+        } else {
+            readTail();
+        }
+    }
+
+    private long write(JournalEntry entry) throws IOException {
+        entry.setId(nextId);
+        byte[] line = (gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        if(dataSize > 0 && dataSize + line.length > segmentSize) {
+            rotate();
+        }
+        Segment active = segments.get(segments.size() - 1);
+        write(data, ByteBuffer.wrap(line), dataSize);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(nextId)
+                .putLong(entry.getTime())
+                .putLong(dataSize)
+                .putInt(line.length)
+                .putInt((int) Math.min(Integer.MAX_VALUE, entry.getLatencyUs() / 1000))
+                .putInt(entry.getCode())
+                .putInt(entry.getMethod().hashCode());
+        record.flip();
+        write(index, record, (nextId - active.firstId) * RECORD_SIZE);
+        dataSize += line.length;
+        return nextId++;
+    }
+
+    private void rotate() throws IOException {
+        data.close();
+        index.close();
+        segments.add(new Segment(directory, nextId));
+        while(maxSegments > 0 && segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            oldest.index.delete();
+            oldest.data.delete();
+        }
+        openActive();
+    }
+
+    /**
+     * @return 编号不存在或已经随最早的段删除时返回null
+     */
+    public JournalEntry get(long id) throws IOException {
+        List<Segment> snapshot = snapshot();
+        for(int i = snapshot.size() - 1; i >= 0; i--) {
+            Segment segment = snapshot.get(i);
+            if(segment.firstId > id) {
+                continue;
+            }
+            try(FileChannel index = FileChannel.open(segment.index.toPath(), StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(segment.data.toPath(), StandardOpenOption.READ)) {
+                long position = (id - segment.firstId) * RECORD_SIZE;
+                if(position + RECORD_SIZE > index.size()) {
+                    return null;
+                }
+                ByteBuffer record = read(index, position, RECORD_SIZE);
+                return readEntry(data, record.getLong(16), record.getInt(24));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从最新的调用向前查找.
+     *
+     * @param method 方法名, 为null时不过滤
+     * @param slowerThanMillis 只返回耗时超过该毫秒数的调用, 0表示不过滤
+     * @param failed 只返回code不为0的调用
+     * @param limit 最多返回的条数
+     * @return 按编号从新到旧排列
+     */
+    public List<JournalEntry> search(String method, long slowerThanMillis, boolean failed, int limit) throws IOException {
+        List<JournalEntry> found = new ArrayList<>();
+        List<Segment> snapshot = snapshot();
+        for(int i = snapshot.size() - 1; i >= 0 && found.size() < limit; i--) {
+            Segment segment = snapshot.get(i);
+            try(FileChannel index = FileChannel.open(segment.index.toPath(), StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(segment.data.toPath(), StandardOpenOption.READ)) {
+                long end = index.size() / RECORD_SIZE;
+                while(end > 0 && found.size() < limit) {
+                    long start = Math.max(0, end - SCAN_RECORDS);
+                    ByteBuffer block = read(index, start * RECORD_SIZE, (int) (end - start) * RECORD_SIZE);
+                    for(long n = end - 1; n >= start && found.size() < limit; n--) {
+                        int offset = (int) (n - start) * RECORD_SIZE;
+                        if(slowerThanMillis > 0 && block.getInt(offset + 28) <= slowerThanMillis) {
+                            continue;
+                        }
+                        if(failed && block.getInt(offset + 32) == 0) {
+                            continue;
+                        }
+                        if(method != null && block.getInt(offset + 36) != method.hashCode()) {
+                            continue;
+                        }
+                        JournalEntry entry = readEntry(data, block.getLong(offset + 16), block.getInt(offset + 24));
+                        if(method == null || method.equals(entry.getMethod())) {
+                            found.add(entry);
+                        }
+                    }
+                    end = start;
+                }
+            } catch (NoSuchFileException e) {
+                // 扫描期间被轮换删除的段
+            }
+        }
+        return found;
+    }
+
+    private JournalEntry readEntry(FileChannel data, long offset, int length) throws IOException {
+        ByteBuffer line = read(data, offset, length);
+        return gson.fromJson(new String(line.array(), 0, length, StandardCharsets.UTF_8), JournalEntry.class);
+    }
+
+    /**
+     * 还保存在磁盘上的最早的编号.
+     */
+    public long getFirstId() {
+        return snapshot().get(0).firstId;
+    }
+
+    /**
+     * 最近一次调用的编号, 没有调用时为首个编号减1.
+     */
+    public synchronized long getLastId() {
+        return nextId - 1;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 查询时重新列出目录, 包含其它进程轮换出的段.
+     */
+    private List<Segment> snapshot() {
+        return listSegments();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        index.close();
+        lock.close();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("调用日志不完整");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static class Segment {
+
+        private final long firstId;
+        private final File index;
+        private final File data;
+
+        Segment(File directory, long firstId) {
+            this.firstId = firstId;
+            this.index = new File(directory, String.format("journal-%020d.idx", firstId));
+            this.data = new File(directory, String.format("journal-%020d.dat", firstId));
+        }
+    }
+}
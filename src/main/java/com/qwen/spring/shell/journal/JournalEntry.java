@@ -0,0 +1,126 @@
+package com.qwen.spring.shell.journal;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 调用日志中的一次调用, 以一行JSON保存在数据文件中.
+ */
+public class JournalEntry {
+
+    private long id;
+    private final long time;
+    private final String session;
+    private final String url;
+    private final String component;
+    private final String method;
+    private final String returnType;
+    private final List<String[]> params;
+    private final int code;
+    private final String msg;
+    private final long resultSize;
+    private final long latencyUs;
+
+    /**
+     * @param session 发起调用的会话
+     * @param url 会话当时连接的服务地址
+     * @param params 参数类型和JSON值
+     * @param code 服务端返回的code, 调用失败(没有返回)时为-1
+     * @param resultSize 结果的字符数
+     */
+    public JournalEntry(String session, String url, String component, String method, String returnType, List<Pair<String, String>> params,
+                        int code, String msg, long resultSize, long latencyUs) {
+        this.time = System.currentTimeMillis();
+        this.session = session;
+        this.url = url;
+        this.component = component;
+        this.method = method;
+        this.returnType = returnType;
+        this.params = new ArrayList<>(params.size());
+        for(Pair<String, String> param: params) {
+            this.params.add(new String[]{param.getLeft(), param.getRight()});
+        }
+        this.code = code;
+        this.msg = msg;
+        this.resultSize = resultSize;
+        this.latencyUs = latencyUs;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    /**
+     * 早期的调用日志没有记录地址, 此时为null.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public List<Pair<String, String>> getParams() {
+        return params.stream().map(param -> Pair.of(param[0], param[1])).collect(Collectors.toList());
+    }
+
+    public List<String> getParamTypes() {
+        return params.stream().map(param -> param[0]).collect(Collectors.toList());
+    }
+
+    /**
+     * 方法名和参数类型, 例如<code>getOrder(Long, String)</code>.
+     */
+    public String getSignature() {
+        return String.format("%s(%s)", method, String.join(", ", getParamTypes()));
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMsg() {
+        return msg;
+    }
+
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    public long getLatencyUs() {
+        return latencyUs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s.%s code:%d %.1fms %d字符%s", id,
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time)), component, getSignature(),
+                code, latencyUs / 1000d, resultSize, msg != null ? " " + msg : "");
+    }
+}
@@ -0,0 +1,339 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 由服务端的字段列表构建的类型图, 嵌套的类递归解析, 同一个类只解析一次, 循环引用指向同一个节点.
+ * 用于生成完整的JSON模板和在本地校验对象, 不需要逐层询问服务端.
+ * <p>
+ * 类型名与服务端返回的一致, 例如<code>java.util.List&lt;com.example.OrderItem&gt;</code>、<code>int[]</code>.
+ */
+public class ClassSchema {
+
+    private static final Set<String> STRINGS = new HashSet<>(Arrays.asList("java.lang.String", "char", "java.lang.Character",
+            "java.util.Date", "java.sql.Date", "java.sql.Timestamp", "java.time.LocalDate", "java.time.LocalDateTime", "java.time.LocalTime"));
+
+    private static final Set<String> INTEGERS = new HashSet<>(Arrays.asList("byte", "short", "int", "long", "java.lang.Byte",
+            "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.math.BigInteger"));
+
+    private static final Set<String> DECIMALS = new HashSet<>(Arrays.asList("float", "double", "java.lang.Float", "java.lang.Double",
+            "java.math.BigDecimal"));
+
+    private static final Set<String> BOOLEANS = new HashSet<>(Arrays.asList("boolean", "java.lang.Boolean"));
+
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList("java.lang.Iterable", "java.util.Collection", "java.util.List",
+            "java.util.ArrayList", "java.util.LinkedList", "java.util.Set", "java.util.HashSet", "java.util.LinkedHashSet",
+            "java.util.SortedSet", "java.util.TreeSet", "java.util.Queue", "java.util.Deque"));
+
+    private static final Set<String> MAPS = new HashSet<>(Arrays.asList("java.util.Map", "java.util.HashMap", "java.util.LinkedHashMap",
+            "java.util.SortedMap", "java.util.TreeMap"));
+
+    private static final Pattern PRIMITIVE = Pattern.compile("byte|short|int|long|float|double|boolean|char");
+
+    /**
+     * 校验时最多报告的错误数.
+     */
+    private static final int MAX_ERRORS = 20;
+
+    public enum Kind {
+        STRING, INTEGER, DECIMAL, BOOLEAN, ARRAY, MAP, OBJECT, ANY
+    }
+
+    public static class Node {
+
+        private final Kind kind;
+        private final String type;
+        private Node element;
+        private final Map<String, Node> fields = new LinkedHashMap<>();
+
+        Node(Kind kind, String type) {
+            this.kind = kind;
+            this.type = type;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * 数组的元素或Map的值.
+         */
+        public Node getElement() {
+            return element;
+        }
+
+        public Map<String, Node> getFields() {
+            return fields;
+        }
+    }
+
+    private final Function<String, List<FieldInfo>> loader;
+    private final Map<String, Node> classes = new HashMap<>();
+
+    /**
+     * @param loader 类名对应的字段列表, 通常经过{@link com.qwen.spring.shell.config.MetadataCache}
+     */
+    public ClassSchema(Function<String, List<FieldInfo>> loader) {
+        this.loader = loader;
+    }
+
+    public synchronized Node resolve(String type) {
+        type = type.trim();
+        if(type.startsWith("? super ") || "?".equals(type)) {
+            return new Node(Kind.ANY, type);
+        }
+        if(type.startsWith("? extends ")) {
+            type = type.substring("? extends ".length()).trim();
+        }
+        if(type.endsWith("[]")) {
+            Node node = new Node(Kind.ARRAY, type);
+            node.element = resolve(type.substring(0, type.length() - 2));
+            return node;
+        }
+        int generic = type.indexOf('<');
+        String raw = generic < 0 ? type : type.substring(0, generic).trim();
+        List<String> arguments = generic < 0 ? Collections.emptyList() : splitArguments(type.substring(generic + 1, type.lastIndexOf('>')));
+        if(STRINGS.contains(raw)) {
+            return new Node(Kind.STRING, type);
+        } else if(INTEGERS.contains(raw)) {
+            return new Node(Kind.INTEGER, type);
+        } else if(DECIMALS.contains(raw)) {
+            return new Node(Kind.DECIMAL, type);
+        } else if(BOOLEANS.contains(raw)) {
+            return new Node(Kind.BOOLEAN, type);
+        } else if(COLLECTIONS.contains(raw)) {
+            Node node = new Node(Kind.ARRAY, type);
+            node.element = arguments.size() == 1 ? resolve(arguments.get(0)) : new Node(Kind.ANY, "java.lang.Object");
+            return node;
+        } else if(MAPS.contains(raw)) {
+            Node node = new Node(Kind.MAP, type);
+            node.element = arguments.size() == 2 ? resolve(arguments.get(1)) : new Node(Kind.ANY, "java.lang.Object");
+            return node;
+        } else if(raw.startsWith("java.") || raw.startsWith("javax.") || raw.indexOf('.') < 0) {
+            // Object、未知的JDK类型和类型变量
+            return new Node(Kind.ANY, type);
+        }
+        return resolveClass(raw);
+    }
+
+    /**
+     * 先登记节点再解析字段, 循环引用的类得到同一个节点.
+     */
+    private Node resolveClass(String className) {
+        Node node = classes.get(className);
+        if(node != null) {
+            return node;
+        }
+        node = new Node(Kind.OBJECT, className);
+        classes.put(className, node);
+        try {
+            for(FieldInfo field: loader.apply(className)) {
+                node.fields.put(field.getName(), resolve(field.getType()));
+            }
+        } catch (RuntimeException e) {
+            classes.remove(className);
+            throw e;
+        }
+        return node;
+    }
+
+    private static List<String> splitArguments(String arguments) {
+        List<String> result = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for(int i = 0; i < arguments.length(); i++) {
+            char c = arguments.charAt(i);
+            if(c == '<') {
+                depth++;
+            } else if(c == '>') {
+                depth--;
+            } else if(c == ',' && depth == 0) {
+                result.add(arguments.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(arguments.substring(start));
+        return result;
+    }
+
+    /**
+     * 类型的JSON模板: 字符串为"", 数字为0, 布尔为false, 集合包含一个元素, Map为空, 其它为null.
+     * 循环引用的类在第二次出现时为null.
+     */
+    public String template(String type) {
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writer.setIndent("  ");
+            writer.setSerializeNulls(true);
+            writeTemplate(resolve(type), writer, new HashSet<>());
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    private static void writeTemplate(Node node, JsonWriter writer, Set<Node> path) throws IOException {
+        switch (node.kind) {
+            case STRING:
+                if(isText(node.type)) {
+                    writer.value("");
+                } else {
+                    writer.nullValue();
+                }
+                break;
+            case INTEGER:
+            case DECIMAL:
+                writer.value(0);
+                break;
+            case BOOLEAN:
+                writer.value(false);
+                break;
+            case ARRAY:
+                writer.beginArray();
+                if(node.element.kind != Kind.ANY && !path.contains(node.element)) {
+                    writeTemplate(node.element, writer, path);
+                }
+                writer.endArray();
+                break;
+            case MAP:
+                writer.beginObject().endObject();
+                break;
+            case OBJECT:
+                if(!path.add(node)) {
+                    writer.nullValue();
+                    break;
+                }
+                writer.beginObject();
+                for(Map.Entry<String, Node> field: node.fields.entrySet()) {
+                    writer.name(field.getKey());
+                    writeTemplate(field.getValue(), writer, path);
+                }
+                writer.endObject();
+                path.remove(node);
+                break;
+            default:
+                writer.nullValue();
+        }
+    }
+
+    /**
+     * 按类型校验对象, 返回带路径的错误, 最多{@value #MAX_ERRORS}个.
+     */
+    public List<String> validate(String type, JsonElement value) {
+        List<String> errors = new ArrayList<>();
+        validate(resolve(type), value, "$", errors);
+        return errors;
+    }
+
+    private static void validate(Node node, JsonElement value, String path, List<String> errors) {
+        if(errors.size() >= MAX_ERRORS) {
+            return;
+        }
+        if(value == null || value.isJsonNull()) {
+            if(PRIMITIVE.matcher(node.type).matches()) {
+                errors.add(String.format("%s: [%s]不能为null", path, node.type));
+            }
+            return;
+        }
+        switch (node.kind) {
+            case STRING:
+                if(!value.isJsonPrimitive() || isText(node.type) && !value.getAsJsonPrimitive().isString()) {
+                    errors.add(String.format("%s: 应为[%s]", path, node.type));
+                }
+                break;
+            case INTEGER:
+            case DECIMAL:
+                BigDecimal number = number(value);
+                if(number == null) {
+                    errors.add(String.format("%s: 应为数字[%s]", path, node.type));
+                } else if(node.kind == Kind.INTEGER && number.stripTrailingZeros().scale() > 0) {
+                    errors.add(String.format("%s: 应为整数[%s]", path, node.type));
+                }
+                break;
+            case BOOLEAN:
+                if(!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isBoolean()) {
+                    errors.add(String.format("%s: 应为true或false", path));
+                }
+                break;
+            case ARRAY:
+                if(!value.isJsonArray()) {
+                    errors.add(String.format("%s: 应为数组[%s]", path, node.type));
+                    break;
+                }
+                JsonArray array = value.getAsJsonArray();
+                for(int i = 0; i < array.size(); i++) {
+                    validate(node.element, array.get(i), path + "[" + i + "]", errors);
+                }
+                break;
+            case MAP:
+                if(!value.isJsonObject()) {
+                    errors.add(String.format("%s: 应为对象[%s]", path, node.type));
+                    break;
+                }
+                for(Map.Entry<String, JsonElement> entry: value.getAsJsonObject().entrySet()) {
+                    validate(node.element, entry.getValue(), path + JsonDiff.segment(entry.getKey()), errors);
+                }
+                break;
+            case OBJECT:
+                if(!value.isJsonObject()) {
+                    errors.add(String.format("%s: 应为对象[%s]", path, node.type));
+                    break;
+                }
+                JsonObject object = value.getAsJsonObject();
+                for(Map.Entry<String, JsonElement> entry: object.entrySet()) {
+                    Node field = node.fields.get(entry.getKey());
+                    String child = path + JsonDiff.segment(entry.getKey());
+                    if(field == null) {
+                        if(errors.size() < MAX_ERRORS) {
+                            errors.add(String.format("%s: [%s]没有这个字段", child, node.type));
+                        }
+                    } else {
+                        validate(field, entry.getValue(), child, errors);
+                    }
+                }
+                break;
+            default:
+        }
+    }
+
+    /**
+     * 字符串和字符, 日期等其它类型也可以写成数字.
+     */
+    private static boolean isText(String type) {
+        return "java.lang.String".equals(type) || "char".equals(type) || "java.lang.Character".equals(type);
+    }
+
+    private static BigDecimal number(JsonElement value) {
+        if(!value.isJsonPrimitive()) {
+            return null;
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if(primitive.isNumber() || primitive.isString() && NumberUtils.isParsable(primitive.getAsString())) {
+            try {
+                return new BigDecimal(primitive.getAsString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,419 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * 比较两个JSON文档的结构差异, 不在内存中构建树.
+ * <p>
+ * 逐个token读取文档, 把每个叶子值写成一行"路径\t值", 例如<code>$.order.items[0].price\t12.5</code>,
+ * 空对象和空数组作为值<code>{}</code>和<code>[]</code>. 两边的行分别排序后合并比较, 所以对象的字段顺序不影响结果.
+ * 行数较多时分块排序写入临时文件再多路归并, 内存占用与文档大小无关.
+ * <p>
+ * 指定keyField时, 数组中含有该字段的对象用<code>[id=5]</code>代替下标定位, 数组元素的顺序也不影响结果;
+ * 这样的数组元素在读完之前保存在内存中.
+ */
+public class JsonDiff {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private static final int DEFAULT_CHUNK_CHARS = 8 * 1024 * 1024;
+
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    private final String keyField;
+    private final int maxChanges;
+    private final int chunkChars;
+    private final File tempDirectory;
+
+    /**
+     * @param keyField 数组元素的匹配字段, 为null时按下标匹配
+     * @param maxChanges 最多列出的差异数, 超过的只计数
+     */
+    public JsonDiff(String keyField, int maxChanges) {
+        this(keyField, maxChanges, DEFAULT_CHUNK_CHARS, null);
+    }
+
+    /**
+     * @param chunkChars 内存中排序的字符数, 超过后写入临时文件
+     * @param tempDirectory 临时文件目录, 为null时使用系统临时目录
+     */
+    public JsonDiff(String keyField, int maxChanges, int chunkChars, File tempDirectory) {
+        this.keyField = keyField;
+        this.maxChanges = maxChanges;
+        this.chunkChars = chunkChars;
+        this.tempDirectory = tempDirectory;
+    }
+
+    public Result diff(Reader left, Reader right) throws IOException {
+        try(LeafSorter leftLeaves = sort(left); LeafSorter rightLeaves = sort(right)) {
+            Result result = new Result();
+            LineSource a = leftLeaves.sorted();
+            LineSource b = rightLeaves.sorted();
+            while(a.peek() != null || b.peek() != null) {
+                int compare;
+                if(a.peek() == null) {
+                    compare = 1;
+                } else if(b.peek() == null) {
+                    compare = -1;
+                } else {
+                    compare = path(a.peek()).compareTo(path(b.peek()));
+                }
+                if(compare == 0) {
+                    String before = a.next();
+                    String after = b.next();
+                    if(!before.equals(after)) {
+                        result.modified++;
+                        result.add(String.format("~ %s: %s -> %s", path(before), value(before), value(after)));
+                    }
+                } else if(compare < 0) {
+                    String before = a.next();
+                    result.removed++;
+                    result.add(String.format("- %s: %s", path(before), value(before)));
+                } else {
+                    String after = b.next();
+                    result.added++;
+                    result.add(String.format("+ %s: %s", path(after), value(after)));
+                }
+            }
+            return result;
+        }
+    }
+
+    public Result diff(String left, String right) throws IOException {
+        return diff(new StringReader(left), new StringReader(right));
+    }
+
+    private LeafSorter sort(Reader source) throws IOException {
+        LeafSorter sorter = new LeafSorter();
+        try {
+            JsonReader reader = new JsonReader(source);
+            reader.setLenient(true);
+            if(reader.peek() != JsonToken.END_DOCUMENT) {
+                walk(reader, "$", sorter);
+            }
+        } catch (IOException | RuntimeException e) {
+            sorter.close();
+            throw e;
+        }
+        return sorter;
+    }
+
+    private void walk(JsonReader reader, String path, Sink sink) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                if(!reader.hasNext()) {
+                    sink.leaf(path, "{}");
+                }
+                while(reader.hasNext()) {
+                    walk(reader, path + segment(reader.nextName()), sink);
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                if(!reader.hasNext()) {
+                    sink.leaf(path, "[]");
+                }
+                for(int i = 0; reader.hasNext(); i++) {
+                    if(keyField != null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        walkElement(reader, path, i, sink);
+                    } else {
+                        walk(reader, path + "[" + i + "]", sink);
+                    }
+                }
+                reader.endArray();
+                break;
+            default:
+                sink.leaf(path, primitive(reader));
+        }
+    }
+
+    /**
+     * 读完一个数组元素后才知道匹配字段的值, 先把元素内的叶子记在内存中.
+     */
+    private void walkElement(JsonReader reader, String arrayPath, int index, Sink sink) throws IOException {
+        List<String[]> leaves = new ArrayList<>();
+        Sink buffer = (path, value) -> leaves.add(new String[]{path, value});
+        String label = null;
+        reader.beginObject();
+        if(!reader.hasNext()) {
+            buffer.leaf("", "{}");
+        }
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if(label == null && name.equals(keyField) && isPrimitive(reader.peek())) {
+                String value = primitive(reader);
+                label = String.format("[%s=%s]", keyField, value);
+                buffer.leaf(segment(name), value);
+            } else {
+                walk(reader, segment(name), buffer);
+            }
+        }
+        reader.endObject();
+        String path = arrayPath + (label != null ? label : "[" + index + "]");
+        for(String[] leaf: leaves) {
+            sink.leaf(path + leaf[0], leaf[1]);
+        }
+    }
+
+    private static boolean isPrimitive(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN;
+    }
+
+    private static String primitive(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return quote(reader.nextString());
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return "null";
+            default:
+                throw new IllegalStateException(String.format("意外的[%s] %s", reader.peek(), reader.getPath()));
+        }
+    }
+
+    /**
+     * 字段名对应的路径片段, 与JSONPath的写法相同.
+     */
+    static String segment(String name) {
+        return IDENTIFIER.matcher(name).matches() ? "." + name : "[" + quote(name) + "]";
+    }
+
+    /**
+     * 转义后的字符串不含制表符和换行, 可以安全地写在一行中.
+     */
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for(int i = 0;i<value.length();i++) {
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if(c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String path(String line) {
+        return line.substring(0, line.indexOf('\t'));
+    }
+
+    private static String value(String line) {
+        String value = line.substring(line.indexOf('\t') + 1);
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "..." : value;
+    }
+
+    private interface Sink {
+        void leaf(String path, String value) throws IOException;
+    }
+
+    private interface LineSource {
+        String peek();
+
+        String next() throws IOException;
+    }
+
+    /**
+     * 按行排序, 制表符小于路径中可能出现的任何字符, 所以行的顺序就是路径的顺序.
+     */
+    private class LeafSorter implements Sink, Closeable {
+
+        private final List<String> lines = new ArrayList<>();
+        private final List<File> chunks = new ArrayList<>();
+        private final List<Reader> readers = new ArrayList<>();
+        private long chars;
+
+        @Override
+        public void leaf(String path, String value) throws IOException {
+            String line = path + '\t' + value;
+            lines.add(line);
+            chars += line.length();
+            if(chars >= chunkChars) {
+                spill();
+            }
+        }
+
+        private void spill() throws IOException {
+            Collections.sort(lines);
+            File chunk = tempDirectory == null ? Files.createTempFile("diff-", ".txt").toFile()
+                    : Files.createTempFile(tempDirectory.toPath(), "diff-", ".txt").toFile();
+            chunks.add(chunk);
+            try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(chunk), StandardCharsets.UTF_8))) {
+                for(String line: lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+            lines.clear();
+            chars = 0;
+        }
+
+        LineSource sorted() throws IOException {
+            if(chunks.isEmpty()) {
+                Collections.sort(lines);
+                return new ListSource(lines);
+            }
+            if(!lines.isEmpty()) {
+                spill();
+            }
+            List<LineSource> sources = new ArrayList<>();
+            for(File chunk: chunks) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(chunk), StandardCharsets.UTF_8));
+                readers.add(reader);
+                sources.add(new FileSource(reader));
+            }
+            return new MergeSource(sources);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for(Reader reader: readers) {
+                reader.close();
+            }
+            for(File chunk: chunks) {
+                Files.deleteIfExists(chunk.toPath());
+            }
+        }
+    }
+
+    private static class ListSource implements LineSource {
+
+        private final List<String> lines;
+        private int position;
+
+        ListSource(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public String peek() {
+            return position < lines.size() ? lines.get(position) : null;
+        }
+
+        @Override
+        public String next() {
+            return lines.get(position++);
+        }
+    }
+
+    private static class FileSource implements LineSource {
+
+        private final BufferedReader reader;
+        private String line;
+
+        FileSource(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            this.line = reader.readLine();
+        }
+
+        @Override
+        public String peek() {
+            return line;
+        }
+
+        @Override
+        public String next() throws IOException {
+            String current = line;
+            line = reader.readLine();
+            return current;
+        }
+    }
+
+    private static class MergeSource implements LineSource {
+
+        private final PriorityQueue<LineSource> queue = new PriorityQueue<>((a, b) -> a.peek().compareTo(b.peek()));
+
+        MergeSource(List<LineSource> sources) {
+            for(LineSource source: sources) {
+                if(source.peek() != null) {
+                    queue.add(source);
+                }
+            }
+        }
+
+        @Override
+        public String peek() {
+            return queue.isEmpty() ? null : queue.peek().peek();
+        }
+
+        @Override
+        public String next() throws IOException {
+            LineSource source = queue.poll();
+            String line = source.next();
+            if(source.peek() != null) {
+                queue.add(source);
+            }
+            return line;
+        }
+    }
+
+    /**
+     * 按路径排序的差异, <code>~</code>修改, <code>-</code>只在左边, <code>+</code>只在右边.
+     */
+    public class Result {
+
+        private final List<String> changes = new ArrayList<>();
+        private long modified;
+        private long removed;
+        private long added;
+
+        private void add(String change) {
+            if(changes.size() < maxChanges) {
+                changes.add(change);
+            }
+        }
+
+        public List<String> getChanges() {
+            return changes;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public long getRemoved() {
+            return removed;
+        }
+
+        public long getAdded() {
+            return added;
+        }
+
+        public long getTotal() {
+            return modified + removed + added;
+        }
+
+        @Override
+        public String toString() {
+            if(getTotal() == 0) {
+                return "没有差异";
+            }
+            StringBuilder builder = new StringBuilder();
+            for(String change: changes) {
+                builder.append(change).append('\n');
+            }
+            if(getTotal() > changes.size()) {
+                builder.append(String.format("...只显示前%d处\n", changes.size()));
+            }
+            return builder.append(String.format("共%d处差异(修改:%d 删除:%d 新增:%d)", getTotal(), modified, removed, added)).toString();
+        }
+    }
+}
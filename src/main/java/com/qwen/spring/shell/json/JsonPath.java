@@ -0,0 +1,310 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 在逐个token读取JSON的同时按JSONPath选择节点, 不匹配的子树用{@link JsonReader#skipValue()}跳过, 不会构建对象.
+ * <p>
+ * 支持的语法: <code>$</code>、<code>.name</code>、<code>['name']</code>、<code>[0]</code>、<code>[0,2]</code>、
+ * <code>[1:3]</code>、<code>[*]</code>、<code>.*</code>和递归查找<code>..name</code>. 不支持过滤表达式和负数下标,
+ * 它们需要先读完整个数组. 匹配节点内部不再继续查找.
+ */
+public class JsonPath {
+
+    private final String expression;
+    private final List<Step> steps;
+    private final boolean definite;
+
+    private JsonPath(String expression, List<Step> steps) {
+        this.expression = expression;
+        this.steps = steps;
+        this.definite = steps.stream().allMatch(Step::isDefinite);
+    }
+
+    /**
+     * @param expression 以<code>$</code>开头的路径, 省略时从根开始, 例如<code>items[*].orderId</code>
+     */
+    public static JsonPath compile(String expression) {
+        String source = expression.trim();
+        if(!source.startsWith("$")) {
+            source = source.startsWith(".") || source.startsWith("[") ? "$" + source : "$." + source;
+        }
+        List<Step> steps = new ArrayList<>();
+        int i = 1;
+        while(i < source.length()) {
+            boolean descendant = false;
+            if(source.startsWith("..", i)) {
+                descendant = true;
+                i += 2;
+            } else if(source.charAt(i) == '.') {
+                i++;
+            } else if(source.charAt(i) != '[') {
+                throw invalid(expression, i);
+            }
+            if(i < source.length() && source.charAt(i) == '[') {
+                int end = closing(source, i, expression);
+                steps.add(bracket(source.substring(i + 1, end).trim(), descendant, expression));
+                i = end + 1;
+            } else {
+                int end = i;
+                while(end < source.length() && source.charAt(end) != '.' && source.charAt(end) != '[') {
+                    end++;
+                }
+                String name = source.substring(i, end);
+                if(name.isEmpty()) {
+                    throw invalid(expression, i);
+                }
+                steps.add("*".equals(name) ? Step.wildcard(descendant) : Step.names(Collections.singletonList(name), descendant));
+                i = end;
+            }
+        }
+        if(steps.size() >= Long.SIZE) {
+            throw new RuntimeException(String.format("路径[%s]过长", expression));
+        }
+        return new JsonPath(expression, steps);
+    }
+
+    private static int closing(String source, int open, String expression) {
+        char quote = 0;
+        for(int i = open + 1;i<source.length();i++) {
+            char c = source.charAt(i);
+            if(quote != 0) {
+                if(c == '\\') {
+                    i++;
+                } else if(c == quote) {
+                    quote = 0;
+                }
+            } else if(c == '\'' || c == '"') {
+                quote = c;
+            } else if(c == ']') {
+                return i;
+            }
+        }
+        throw new RuntimeException(String.format("无效的路径[%s]: 缺少]", expression));
+    }
+
+    private static Step bracket(String content, boolean descendant, String expression) {
+        if("*".equals(content)) {
+            return Step.wildcard(descendant);
+        }
+        if(content.startsWith("?") || content.startsWith("(")) {
+            throw new RuntimeException(String.format("路径[%s]: 不支持表达式[%s]", expression, content));
+        }
+        try {
+            if(content.startsWith("'") || content.startsWith("\"")) {
+                return Step.names(splitQuoted(content), descendant);
+            }
+            if(content.contains(":")) {
+                String[] bounds = content.split(":", -1);
+                int start = bounds[0].trim().isEmpty() ? 0 : Integer.parseInt(bounds[0].trim());
+                int end = bounds[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1].trim());
+                int step = bounds.length > 2 && !bounds[2].trim().isEmpty() ? Integer.parseInt(bounds[2].trim()) : 1;
+                if(start < 0 || end < 0 || step <= 0) {
+                    throw new RuntimeException(String.format("路径[%s]: 不支持负数下标[%s]", expression, content));
+                }
+                return Step.slice(start, end, step, descendant);
+            }
+            List<Integer> indexes = new ArrayList<>();
+            for(String part: content.split(",")) {
+                int index = Integer.parseInt(part.trim());
+                if(index < 0) {
+                    throw new RuntimeException(String.format("路径[%s]: 不支持负数下标[%s]", expression, content));
+                }
+                indexes.add(index);
+            }
+            return Step.indexes(indexes, descendant);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("无效的路径[%s]: [%s]", expression, content));
+        }
+    }
+
+    private static List<String> splitQuoted(String content) {
+        List<String> names = new ArrayList<>();
+        int i = 0;
+        while(i < content.length()) {
+            char quote = content.charAt(i);
+            StringBuilder name = new StringBuilder();
+            i++;
+            while(i < content.length() && content.charAt(i) != quote) {
+                if(content.charAt(i) == '\\' && i + 1 < content.length()) {
+                    i++;
+                }
+                name.append(content.charAt(i++));
+            }
+            names.add(name.toString());
+            i++;
+            while(i < content.length() && (content.charAt(i) == ',' || Character.isWhitespace(content.charAt(i)))) {
+                i++;
+            }
+        }
+        return names;
+    }
+
+    private static RuntimeException invalid(String expression, int position) {
+        return new RuntimeException(String.format("无效的路径[%s]: 位置%d", expression, position));
+    }
+
+    /**
+     * 不含通配符、切片、多选和递归查找的路径最多匹配一个节点, 结果直接写出, 找到后不再读取剩余内容;
+     * 其它路径把所有匹配写成一个数组.
+     */
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    /**
+     * 从reader当前位置读取一个值, 把匹配的节点写到writer.
+     *
+     * @return 匹配的节点数
+     */
+    public int select(JsonReader reader, JsonWriter writer) throws IOException {
+        Selection selection = new Selection(writer);
+        if(reader.peek() == JsonToken.END_DOCUMENT) {
+            return 0;
+        }
+        if(!definite) {
+            writer.beginArray();
+        }
+        selection.walk(reader, 1L);
+        if(!definite) {
+            writer.endArray();
+        }
+        return selection.count;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private class Selection {
+
+        private final JsonWriter writer;
+        private int count;
+
+        Selection(JsonWriter writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * @param states 第i位表示已经匹配了前i步
+         * @return 路径确定且已经找到时返回false, 停止读取
+         */
+        boolean walk(JsonReader reader, long states) throws IOException {
+            if((states & (1L << steps.size())) != 0) {
+                JsonPrinter.copy(reader, writer);
+                count++;
+                return !definite;
+            }
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    while(reader.hasNext()) {
+                        long next = advance(states, reader.nextName(), -1);
+                        if(next == 0) {
+                            reader.skipValue();
+                        } else if(!walk(reader, next)) {
+                            return false;
+                        }
+                    }
+                    reader.endObject();
+                    return true;
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    for(int i = 0; reader.hasNext(); i++) {
+                        long next = advance(states, null, i);
+                        if(next == 0) {
+                            reader.skipValue();
+                        } else if(!walk(reader, next)) {
+                            return false;
+                        }
+                    }
+                    reader.endArray();
+                    return true;
+                default:
+                    reader.skipValue();
+                    return true;
+            }
+        }
+
+        private long advance(long states, String name, int index) {
+            long next = 0;
+            for(int i = 0;i<steps.size();i++) {
+                if((states & (1L << i)) == 0) {
+                    continue;
+                }
+                Step step = steps.get(i);
+                if(step.matches(name, index)) {
+                    next |= 1L << (i + 1);
+                }
+                if(step.descendant) {
+                    next |= 1L << i;
+                }
+            }
+            return next;
+        }
+    }
+
+    private static class Step {
+
+        private final boolean descendant;
+        private final List<String> names;
+        private final List<Integer> indexes;
+        private final int start;
+        private final int end;
+        private final int step;
+
+        private Step(boolean descendant, List<String> names, List<Integer> indexes, int start, int end, int step) {
+            this.descendant = descendant;
+            this.names = names;
+            this.indexes = indexes;
+            this.start = start;
+            this.end = end;
+            this.step = step;
+        }
+
+        static Step wildcard(boolean descendant) {
+            return new Step(descendant, null, null, 0, Integer.MAX_VALUE, 1);
+        }
+
+        static Step names(List<String> names, boolean descendant) {
+            return new Step(descendant, names, null, 0, 0, 0);
+        }
+
+        static Step indexes(List<Integer> indexes, boolean descendant) {
+            return new Step(descendant, null, indexes, 0, 0, 0);
+        }
+
+        static Step slice(int start, int end, int step, boolean descendant) {
+            return new Step(descendant, null, null, start, end, step);
+        }
+
+        boolean isDefinite() {
+            return !descendant && (names != null && names.size() == 1 || indexes != null && indexes.size() == 1);
+        }
+
+        /**
+         * @param name 对象的字段名, 数组元素时为null
+         * @param index 数组下标, 对象的字段时为-1
+         */
+        boolean matches(String name, int index) {
+            if(names != null) {
+                return name != null && names.contains(name);
+            }
+            if(indexes != null) {
+                return name == null && indexes.contains(index);
+            }
+            if(step == 1 && start == 0 && end == Integer.MAX_VALUE) {
+                return true;
+            }
+            return name == null && index >= start && index < end && (index - start) % step == 0;
+        }
+    }
+}
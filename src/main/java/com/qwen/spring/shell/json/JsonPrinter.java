@@ -0,0 +1,183 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.*;
+
+/**
+ * 逐个token读取JSON并带缩进写出, 不在内存中构建树.
+ * 输出格式与Gson的pretty printing一致(两个空格缩进, 忽略值为null的字段).
+ * 指定{@link JsonPath}时只输出匹配的节点.
+ */
+public class JsonPrinter {
+
+    private static final int PEEK_SIZE = 64;
+
+    private final int maxLines;
+
+    private final JsonPath path;
+
+    /**
+     * @param maxLines 最多输出的行数, 0表示不限制
+     */
+    public JsonPrinter(int maxLines) {
+        this(maxLines, null);
+    }
+
+    /**
+     * @param path 为null时输出全部内容
+     */
+    public JsonPrinter(int maxLines, JsonPath path) {
+        this.maxLines = maxLines;
+        this.path = path;
+    }
+
+    /**
+     * 格式化写出, 不是JSON的内容原样写出.
+     *
+     * @return 超过行数限制被截断时返回false
+     */
+    public boolean print(Reader source, Writer target) throws IOException {
+        LineLimitWriter out = new LineLimitWriter(target, maxLines);
+        PushbackReader in = new PushbackReader(source, PEEK_SIZE);
+        try {
+            if(path != null || isJson(in)) {
+                JsonReader reader = new JsonReader(in);
+                reader.setLenient(true);
+                JsonWriter writer = new JsonWriter(out);
+                writer.setIndent("  ");
+                writer.setSerializeNulls(false);
+                try {
+                    if(path == null) {
+                        copy(reader, writer);
+                    } else if(path.select(reader, writer) == 0 && path.isDefinite()) {
+                        out.write(String.format("(路径[%s]没有匹配)", path));
+                    }
+                    writer.flush();
+                } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+                    writer.flush();
+                    out.write(String.format("\n(JSON格式错误: %s)", e.getMessage()));
+                }
+            } else {
+                char[] buffer = new char[8192];
+                int read;
+                while((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        } catch (LineLimitReached e) {
+            out.flush();
+            return false;
+        }
+        out.flush();
+        return true;
+    }
+
+    public boolean print(String source, Writer target) throws IOException {
+        return print(new StringReader(source), target);
+    }
+
+    private static boolean isJson(PushbackReader in) throws IOException {
+        char[] head = new char[PEEK_SIZE];
+        int read = in.read(head);
+        if(read <= 0) {
+            return false;
+        }
+        in.unread(head, 0, read);
+        for(int i = 0;i<read;i++) {
+            if(!Character.isWhitespace(head[i])) {
+                return head[i] == '{' || head[i] == '[';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 复制reader当前位置的一个值.
+     */
+    public static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = reader.peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    writer.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    writer.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    writer.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    writer.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    writer.name(reader.nextName());
+                    break;
+                case STRING:
+                    writer.value(reader.nextString());
+                    break;
+                case NUMBER:
+                    writer.jsonValue(reader.nextString());
+                    break;
+                case BOOLEAN:
+                    writer.value(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    writer.nullValue();
+                    break;
+                case END_DOCUMENT:
+                    return;
+            }
+        } while(depth > 0);
+    }
+
+    private static class LineLimitReached extends IOException {
+    }
+
+    private static class LineLimitWriter extends FilterWriter {
+
+        private final int maxLines;
+        private long lines;
+
+        LineLimitWriter(Writer out, int maxLines) {
+            super(out);
+            this.maxLines = maxLines;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            write(new char[]{(char) c}, 0, 1);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int start = offset;
+            for(int i = offset;i<offset + length;i++) {
+                if(buffer[i] == '\n' && maxLines > 0 && ++lines >= maxLines) {
+                    out.write(buffer, start, i - start);
+                    throw new LineLimitReached();
+                }
+            }
+            out.write(buffer, start, offset + length - start);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            write(str.toCharArray(), offset, length);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.qwen.spring.shell.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 固定行数的日志环形缓冲区, 写满后覆盖最早的行.
+ * 每行记录所属的调用和日志等级, 没有等级的行(例如异常堆栈)沿用上一行的等级.
+ */
+public class LogBuffer {
+
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR;
+
+        public static Level of(String name) {
+            try {
+                return valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException(String.format("日志等级[%s]不存在", name));
+            }
+        }
+    }
+
+    private static final Pattern LEVEL_PATTERN = Pattern.compile("\\b(TRACE|DEBUG|INFO|WARN|WARNING|ERROR|FATAL)\\b");
+
+    /** 单行超过该长度时截断, 避免一行日志占满缓冲区 */
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Line[] lines;
+    private long written;
+    private long call;
+    private Level lastLevel = Level.INFO;
+
+    public LogBuffer(int capacity) {
+        if(capacity < 1) {
+            throw new RuntimeException("日志缓冲区行数必须大于0");
+        }
+        this.lines = new Line[capacity];
+    }
+
+    /**
+     * 开始新的调用, 返回调用编号.
+     */
+    public synchronized long newCall() {
+        lastLevel = Level.INFO;
+        return ++call;
+    }
+
+    /**
+     * 追加属于某次调用的一段日志, 按换行拆分.
+     */
+    public synchronized void append(long call, String text) {
+        int start = 0;
+        int length = text.length();
+        while(start < length) {
+            int end = text.indexOf('\n', start);
+            if(end < 0) {
+                end = length;
+            }
+            int stop = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            add(call, text.substring(start, Math.min(stop, start + MAX_LINE_LENGTH)));
+            start = end + 1;
+        }
+    }
+
+    private void add(long call, String text) {
+        Matcher matcher = LEVEL_PATTERN.matcher(text);
+        if(matcher.find()) {
+            switch (matcher.group(1)) {
+                case "WARNING":
+                    lastLevel = Level.WARN;
+                    break;
+                case "FATAL":
+                    lastLevel = Level.ERROR;
+                    break;
+                default:
+                    lastLevel = Level.valueOf(matcher.group(1));
+            }
+        }
+        lines[(int) (written % lines.length)] = new Line(written, call, lastLevel, text);
+        written++;
+    }
+
+    /**
+     * 按时间顺序返回缓冲区中符合条件的行.
+     *
+     * @param call 只返回该调用的行, 小于等于0时返回全部
+     * @param level 最低等级, 为null时不过滤
+     * @param regex 正则, 为null时不过滤
+     */
+    public synchronized List<Line> select(long call, Level level, Pattern regex) {
+        List<Line> selected = new ArrayList<>();
+        for(long i = Math.max(0, written - lines.length);i<written;i++) {
+            Line line = lines[(int) (i % lines.length)];
+            if(call > 0 && line.call != call) {
+                continue;
+            }
+            if(level != null && line.level.compareTo(level) < 0) {
+                continue;
+            }
+            if(regex != null && !regex.matcher(line.text).find()) {
+                continue;
+            }
+            selected.add(line);
+        }
+        return selected;
+    }
+
+    public synchronized long getCurrentCall() {
+        return call;
+    }
+
+    /**
+     * 已经被覆盖的行数.
+     */
+    public synchronized long getDropped() {
+        return Math.max(0, written - lines.length);
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    public synchronized void clear() {
+        for(int i = 0;i<lines.length;i++) {
+            lines[i] = null;
+        }
+        written = 0;
+    }
+
+    public static class Line {
+
+        private final long seq;
+        private final long call;
+        private final Level level;
+        private final String text;
+
+        Line(long seq, long call, Level level, String text) {
+            this.seq = seq;
+            this.call = call;
+            this.level = level;
+            this.text = text;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getCall() {
+            return call;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
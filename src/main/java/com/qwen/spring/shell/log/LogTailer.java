@@ -0,0 +1,160 @@
+package com.qwen.spring.shell.log;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 调用执行期间轮询服务端的日志接口, 增量取得新的日志.
+ * <p>
+ * 协议: <code>GET {url}{path}?offset=..</code>, 密码放在请求头<code>X-Shell-Pass</code>中, 不出现在URL和访问日志里.
+ * 响应体为UTF-8文本日志, 响应头<code>X-Log-Offset</code>为下一次请求的offset. 不带offset时只返回当前的offset.
+ * 服务端返回404时认为不支持, 本次会话不再轮询, 日志仍从ResponseDTO中取得.
+ * <p>
+ * 服务端的日志不区分调用, 并发的调用共用一个轮询, 每段日志只交给最早开始、仍在执行的调用,
+ * 没有取得日志的调用使用ResponseDTO中自己的日志, 同一行不会重复出现在多个调用中.
+ */
+public class LogTailer {
+
+    private static final String OFFSET_HEADER = "X-Log-Offset";
+
+    private static final String PASS_HEADER = "X-Shell-Pass";
+
+    private final String endpoint;
+    private final String pass;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-tailer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Tail> tails = new ArrayList<>();
+    private ScheduledFuture<?> task;
+    private long offset;
+    private volatile boolean supported = true;
+
+    public LogTailer(String url, String path, String pass, int connectTimeout, int readTimeout, long intervalMillis) {
+        this.endpoint = url + path;
+        this.pass = pass;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * 开始接收日志. 第一个调用记录当前offset并开始轮询, 之后并发的调用加入同一个轮询.
+     *
+     * @return 服务端不支持或不可用时返回null
+     */
+    public synchronized Tail start(Consumer<String> sink) {
+        if(!supported) {
+            return null;
+        }
+        if(tails.isEmpty()) {
+            try {
+                offset = fetch(-1, null);
+            } catch (IOException e) {
+                return null;
+            }
+            if(!supported) {
+                return null;
+            }
+            task = scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        Tail tail = new Tail(sink);
+        tails.add(tail);
+        return tail;
+    }
+
+    private synchronized void poll() {
+        if(tails.isEmpty()) {
+            return;
+        }
+        Tail oldest = tails.get(0);
+        try {
+            offset = fetch(offset, oldest::accept);
+        } catch (IOException e) {
+            // 下一次轮询重试
+        }
+    }
+
+    public class Tail {
+
+        private final Consumer<String> sink;
+        private long received;
+
+        private Tail(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        private void accept(String text) {
+            received += text.length();
+            sink.accept(text);
+        }
+
+        /**
+         * 取得调用结束前的剩余日志并退出轮询, 最后一个调用结束时停止轮询.
+         *
+         * @return 本次调用取得的日志字符数
+         */
+        public long stop() {
+            synchronized (LogTailer.this) {
+                poll();
+                tails.remove(this);
+                if(tails.isEmpty()) {
+                    task.cancel(false);
+                }
+                return received;
+            }
+        }
+    }
+
+    private long fetch(long from, Consumer<String> sink) throws IOException {
+        String url = from >= 0 ? endpoint + "?offset=" + from : endpoint;
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if(pass != null) {
+            connection.setRequestProperty(PASS_HEADER, pass);
+        }
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        int status = connection.getResponseCode();
+        if(status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            if(status == HttpURLConnection.HTTP_NOT_FOUND) {
+                supported = false;
+                return from;
+            }
+            throw new IOException(String.format("日志接口返回[%d]", status));
+        }
+        String next = connection.getHeaderField(OFFSET_HEADER);
+        // 读完并关闭响应体, 连接留给下一次轮询复用
+        try(InputStream in = connection.getInputStream()) {
+            String text = IOUtils.toString(in, StandardCharsets.UTF_8);
+            if(sink != null && !text.isEmpty()) {
+                sink.accept(text);
+            }
+        }
+        return next != null ? Long.parseLong(next.trim()) : from;
+    }
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,201 @@
+package com.qwen.spring.shell.stats;
+
+import com.google.gson.stream.JsonWriter;
+import org.HdrHistogram.Histogram;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 会话内所有call的统计: 按方法汇总次数、字节数和各阶段耗时分布, 并保留最近的单次记录用于导出.
+ * 耗时以微秒记录在HdrHistogram中, 精度2位有效数字.
+ */
+public class CallStats {
+
+    private final int maxRecords;
+    private final Map<String, MethodStats> methods = new TreeMap<>();
+    private final ArrayDeque<CallTrace> records = new ArrayDeque<>();
+
+    /**
+     * @param maxRecords 保留的单次记录数, 超过后丢弃最早的记录, 汇总数据不受影响
+     */
+    public CallStats(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    public synchronized void record(CallTrace trace) {
+        methods.computeIfAbsent(trace.getComponent() + "." + trace.getMethod(), k -> new MethodStats()).add(trace);
+        if(maxRecords > 0) {
+            if(records.size() >= maxRecords) {
+                records.removeFirst();
+            }
+            records.addLast(trace);
+        }
+    }
+
+    public synchronized void reset() {
+        methods.clear();
+        records.clear();
+    }
+
+    public synchronized String report(String filter) {
+        StringBuilder sb = new StringBuilder();
+        for(Map.Entry<String, MethodStats> e: methods.entrySet()) {
+            if(filter != null && !e.getKey().contains(filter)) {
+                continue;
+            }
+            MethodStats stats = e.getValue();
+            sb.append(String.format("%s 次数:%d 错误:%d 缓存命中:%d 发送:%d字节 接收:%d字节 压缩节省:%d字节\n", e.getKey(),
+                    stats.count, stats.errors, stats.cached, stats.bytesSent, stats.bytesReceived, stats.bytesSaved));
+            sb.append(String.format("  %-12s%8s%10s%10s%10s%10s%10s\n", "阶段(ms)", "次数", "mean", "p50", "p90", "p99", "max"));
+            for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                appendPhase(sb, phase.label(), stats.phases[phase.ordinal()]);
+            }
+            appendPhase(sb, "total", stats.total);
+        }
+        if(sb.length() == 0) {
+            return "没有调用记录";
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    private static void appendPhase(StringBuilder sb, String label, Histogram histogram) {
+        if(histogram == null || histogram.getTotalCount() == 0) {
+            return;
+        }
+        sb.append(String.format("  %-12s%8d%10.3f%10.3f%10.3f%10.3f%10.3f\n", label, histogram.getTotalCount(),
+                histogram.getMean() / 1e3, histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getMaxValue() / 1e3));
+    }
+
+    /**
+     * 每次调用一行, 耗时单位为微秒, 未发生的阶段留空.
+     */
+    public synchronized void writeCsv(File file) throws IOException {
+        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("startedAt,component,method,success,cached");
+            for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                writer.write("," + phase.label() + "Us");
+            }
+            writer.write(",totalUs,bytesSent,bytesReceived,bytesSaved\n");
+            for(CallTrace trace: records) {
+                writer.write(String.format("%d,%s,%s,%s,%s", trace.getStartedAt(), trace.getComponent(), trace.getMethod(), trace.isSuccess(), trace.isCached()));
+                for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                    writer.write(",");
+                    if(trace.has(phase)) {
+                        writer.write(String.valueOf(trace.getNanos(phase) / 1000));
+                    }
+                }
+                writer.write(String.format(",%d,%d,%d,%d\n", trace.getTotalNanos() / 1000, trace.getBytesSent(), trace.getBytesReceived(), trace.getBytesSaved()));
+            }
+        }
+    }
+
+    /**
+     * 按方法的汇总(含各阶段的百分位)和每次调用的记录, 耗时单位为微秒.
+     */
+    public synchronized void writeJson(File file) throws IOException {
+        try(JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("methods").beginArray();
+            for(Map.Entry<String, MethodStats> e: methods.entrySet()) {
+                MethodStats stats = e.getValue();
+                writer.beginObject();
+                writer.name("method").value(e.getKey());
+                writer.name("count").value(stats.count);
+                writer.name("errors").value(stats.errors);
+                writer.name("cached").value(stats.cached);
+                writer.name("bytesSent").value(stats.bytesSent);
+                writer.name("bytesReceived").value(stats.bytesReceived);
+                writer.name("bytesSaved").value(stats.bytesSaved);
+                writer.name("phases").beginObject();
+                for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                    writeHistogram(writer, phase.label(), stats.phases[phase.ordinal()]);
+                }
+                writeHistogram(writer, "total", stats.total);
+                writer.endObject();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.name("calls").beginArray();
+            for(CallTrace trace: records) {
+                writer.beginObject();
+                writer.name("startedAt").value(trace.getStartedAt());
+                writer.name("component").value(trace.getComponent());
+                writer.name("method").value(trace.getMethod());
+                writer.name("success").value(trace.isSuccess());
+                writer.name("cached").value(trace.isCached());
+                for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                    if(trace.has(phase)) {
+                        writer.name(phase.label() + "Us").value(trace.getNanos(phase) / 1000);
+                    }
+                }
+                writer.name("totalUs").value(trace.getTotalNanos() / 1000);
+                writer.name("bytesSent").value(trace.getBytesSent());
+                writer.name("bytesReceived").value(trace.getBytesReceived());
+                writer.name("bytesSaved").value(trace.getBytesSaved());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    private static void writeHistogram(JsonWriter writer, String name, Histogram histogram) throws IOException {
+        if(histogram == null || histogram.getTotalCount() == 0) {
+            return;
+        }
+        writer.name(name).beginObject();
+        writer.name("count").value(histogram.getTotalCount());
+        writer.name("meanUs").value(histogram.getMean());
+        writer.name("p50Us").value(histogram.getValueAtPercentile(50));
+        writer.name("p90Us").value(histogram.getValueAtPercentile(90));
+        writer.name("p99Us").value(histogram.getValueAtPercentile(99));
+        writer.name("maxUs").value(histogram.getMaxValue());
+        writer.endObject();
+    }
+
+    private static class MethodStats {
+
+        private long count;
+        private long errors;
+        private long cached;
+        private long bytesSent;
+        private long bytesReceived;
+        private long bytesSaved;
+        private final Histogram[] phases = new Histogram[CallTrace.Phase.values().length];
+        private final Histogram total = newHistogram();
+
+        private void add(CallTrace trace) {
+            count++;
+            if(!trace.isSuccess()) {
+                errors++;
+            }
+            if(trace.isCached()) {
+                cached++;
+            }
+            bytesSent += trace.getBytesSent();
+            bytesReceived += trace.getBytesReceived();
+            bytesSaved += trace.getBytesSaved();
+            for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+                if(trace.has(phase)) {
+                    if(phases[phase.ordinal()] == null) {
+                        phases[phase.ordinal()] = newHistogram();
+                    }
+                    phases[phase.ordinal()].recordValue(Math.max(0, trace.getNanos(phase) / 1000));
+                }
+            }
+            total.recordValue(trace.getTotalNanos() / 1000);
+        }
+
+        private static Histogram newHistogram() {
+            // 不指定上限时自动扩容
+            return new Histogram(2);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.qwen.spring.shell.stats;
+
+/**
+ * 单次调用各阶段的耗时和传输字节数, 绑定在执行调用的线程上.
+ * 没有进行中的调用时, 各记录方法不做任何事情(例如bench和broadcast发起的请求).
+ */
+public class CallTrace {
+
+    public enum Phase {
+        /** 参数转换和重载选择, 不包括等待输入的时间 */
+        CONVERT,
+        /** RemoteInvocation的Java序列化 */
+        SERIALIZE,
+        /** 请求体压缩和响应体解压 */
+        CODEC,
+        /** 发送请求、服务端执行、等待响应 */
+        REMOTE,
+        /** ResponseDTO的反序列化, 包括读取响应体 */
+        DESERIALIZE,
+        /** 结果格式化和输出 */
+        RENDER;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final ThreadLocal<CallTrace> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long begin = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private final boolean[] seen = new boolean[Phase.values().length];
+    private long totalNanos;
+    private long excludedNanos;
+    private long bytesSent;
+    private long bytesReceived;
+    private long bytesSaved;
+    private boolean cached;
+    private boolean success;
+    private String component;
+    private String method;
+
+    public static CallTrace start() {
+        CallTrace trace = new CallTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static CallTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void record(Phase phase, long nanos) {
+        CallTrace trace = CURRENT.get();
+        if(trace != null) {
+            trace.nanos[phase.ordinal()] += nanos;
+            trace.seen[phase.ordinal()] = true;
+        }
+    }
+
+    public static void transferred(long sent, long received) {
+        CallTrace trace = CURRENT.get();
+        if(trace != null) {
+            trace.bytesSent += sent;
+            trace.bytesReceived += received;
+        }
+    }
+
+    /**
+     * 记录压缩节省的字节数.
+     */
+    public static void compressed(long saved) {
+        CallTrace trace = CURRENT.get();
+        if(trace != null) {
+            trace.bytesSaved += saved;
+        }
+    }
+
+    /**
+     * 不计入总耗时的时间, 例如等待用户输入参数.
+     */
+    public void exclude(long nanos) {
+        this.excludedNanos += nanos;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * 结束调用并解除与当前线程的绑定.
+     */
+    public void finish(String component, String method, boolean success) {
+        this.totalNanos = System.nanoTime() - begin - excludedNanos;
+        this.component = component;
+        this.method = method;
+        this.success = success;
+        CURRENT.remove();
+    }
+
+    public boolean has(Phase phase) {
+        return seen[phase.ordinal()];
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+}
@@ -0,0 +1,62 @@
+package com.qwen.spring.shell;
+
+import com.qwen.spring.shell.autoconfigure.BaseShellAutoConfiguration;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class FastStartTests {
+
+    @Test
+    public void fastStartRegistersEveryShellComponent() {
+        Set<String> scanned = scan("com.qwen.spring.shell");
+        scanned.remove(ShellApplication.class.getName());
+        scanned.remove(FastStartConfiguration.class.getName());
+        // 嵌套的配置类随外层的配置类注册
+        scanned.removeIf(name -> name.contains("$"));
+        Set<String> registered = imported(FastStartConfiguration.class);
+        registered.removeIf(name -> !name.startsWith("com.qwen.spring.shell."));
+        assertEquals(scanned, registered);
+    }
+
+    @Test
+    public void defaultShellComponentsMatchTheScannedPackages() {
+        Set<String> scanned = scan("org.springframework.shell.commands", "org.springframework.shell.converters",
+                "org.springframework.shell.plugin.support");
+        assertEquals(scanned, imported(BaseShellAutoConfiguration.DefaultShellComponents.class));
+    }
+
+    @Test
+    public void fastStartIsReadFromTheCommandLine() {
+        assertTrue(ShellApplication.isFastStart(new String[]{"--spring.shell.fast-start=true"}));
+        assertTrue(ShellApplication.isFastStart(new String[]{"--spring.shell.fastStart=true"}));
+        assertFalse(ShellApplication.isFastStart(new String[]{"--spring.shell.commandFile=a.txt"}));
+    }
+
+    private static Set<String> scan(String... packages) {
+        ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+        Set<String> names = new TreeSet<>();
+        for(String basePackage: packages) {
+            for(BeanDefinition definition: provider.findCandidateComponents(basePackage)) {
+                // 只比较主代码中的组件
+                if(!definition.getBeanClassName().endsWith("Tests")) {
+                    names.add(definition.getBeanClassName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static Set<String> imported(Class<?> configuration) {
+        Set<String> names = new TreeSet<>();
+        Arrays.stream(configuration.getAnnotation(Import.class).value()).forEach(type -> names.add(type.getName()));
+        return names;
+    }
+}
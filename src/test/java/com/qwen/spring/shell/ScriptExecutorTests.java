@@ -0,0 +1,193 @@
+package com.qwen.spring.shell;
+
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.converter.CompletionConverter;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.shell.converters.BooleanConverter;
+import org.springframework.shell.converters.IntegerConverter;
+import org.springframework.shell.converters.StringConverter;
+import org.springframework.shell.core.JLineShellComponent;
+import org.springframework.shell.plugin.HistoryFileNameProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ScriptExecutorTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final Set<Long> called = ConcurrentHashMap.newKeySet();
+
+    private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+    private PrintStream out;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(out != null) {
+            System.setOut(out);
+        }
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void independentCallsRunTogetherAndPrintInFileOrder() throws Exception {
+        ScriptExecutor executor = executor(4);
+
+        assertTrue(execute(executor, "call find --args [1]", "call find --args [2]", "call find --args [3]", "call find --args [4]"));
+
+        // 最后一行在同批的其它调用之后执行
+        assertEquals(3, maxRunning.get());
+        assertEquals(4, called.size());
+        String output = new String(console.toByteArray(), StandardCharsets.UTF_8);
+        int first = output.indexOf("order-1");
+        int second = output.indexOf("order-2");
+        int third = output.indexOf("order-3");
+        int fourth = output.indexOf("order-4");
+        assertTrue(output, first >= 0 && first < second && second < third && third < fourth);
+        // 每个调用的输出完整地连在一起, 没有与其它线程交错
+        assertTrue(output, output.contains("\"orderId\": 1,\n  \"remark\": \"order-1\"\n}"));
+        assertTrue(output, output.contains("\"orderId\": 3,\n  \"remark\": \"order-3\"\n}"));
+        assertEquals("{\"orderId\":4,\"remark\":\"order-4\"}", shell.getContainer("RESULT").getValue());
+    }
+
+    @Test
+    public void theFirstFailureStopsTheScript() throws Exception {
+        ScriptExecutor executor = executor(4);
+
+        assertFalse(execute(executor, "call find --args [1]", "call find --args [13]", "call find --args [2]", "call find --args [3]"));
+
+        assertEquals(3, maxRunning.get());
+        assertFalse(called.contains(3L));
+        String output = new String(console.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(output, output.contains("order-1"));
+        assertFalse(output, output.contains("order-3"));
+    }
+
+    @Test
+    public void atMostParallelismCallsAreInFlight() throws Exception {
+        ScriptExecutor executor = executor(2);
+
+        assertTrue(execute(executor, "call find --args [1]", "call find --args [2]", "call find --args [3]",
+                "call find --args [4]", "call find --args [5]", "call find --args [6]"));
+
+        assertEquals(2, maxRunning.get());
+        assertEquals(6, called.size());
+        String output = new String(console.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(output, output.indexOf("order-5") < output.indexOf("order-6"));
+    }
+
+    @Test
+    public void nothingIsSubmittedAfterAFailure() throws Exception {
+        ScriptExecutor executor = executor(2);
+
+        // 13很快失败, 1仍在执行; 窗口腾出位置时不再提交2之后的调用
+        assertFalse(execute(executor, "call find --args [1]", "call find --args [13]", "call find --args [2]",
+                "call find --args [3]", "call find --args [4]"));
+
+        assertEquals(new HashSet<>(Arrays.asList(1L, 13L)), called);
+        String output = new String(console.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(output, output.contains("order-1"));
+    }
+
+    /**
+     * 按编号倒序完成: 编号越小耗时越长, 输出仍需按文件顺序. 编号13的调用失败.
+     */
+    private ScriptExecutor executor(int parallelism) throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> {
+            long id = Long.parseLong(params.get(0).getRight());
+            called.add(id);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(Math.max(50, 400 - id * 50));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            if(id == 13) {
+                throw new IllegalStateException("failed");
+            }
+            return String.format("{\"orderId\":%d,\"remark\":\"order-%d\"}", id, id);
+        });
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        properties.setResultMaxLines(100);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+
+        CompletionConverter completion = new CompletionConverter();
+        ReflectionTestUtils.setField(completion, "shell", shell);
+        // 单独执行的命令写入历史文件, 历史文件放在临时目录中
+        StaticApplicationContext context = new StaticApplicationContext();
+        String history = new File(folder.getRoot(), "history.log").getPath();
+        context.getBeanFactory().registerSingleton("history", new HistoryFileNameProvider() {
+            @Override
+            public String getHistoryFileName() {
+                return history;
+            }
+
+            @Override
+            public String getProviderName() {
+                return "test";
+            }
+        });
+        context.refresh();
+        JLineShellComponent lineShell = new JLineShellComponent();
+        lineShell.setApplicationContext(context);
+        lineShell.getSimpleParser().add(commands);
+        lineShell.getSimpleParser().add(completion);
+        lineShell.getSimpleParser().add(new StringConverter());
+        lineShell.getSimpleParser().add(new IntegerConverter());
+        lineShell.getSimpleParser().add(new BooleanConverter());
+        return new ScriptExecutor(lineShell, commands, parallelism);
+    }
+
+    private boolean execute(ScriptExecutor executor, String... lines) throws Exception {
+        File file = folder.newFile("commands.txt");
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        out = System.out;
+        System.setOut(new PrintStream(console, true, "UTF-8"));
+        try {
+            return executor.execute(file);
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.qwen.spring.shell.bench;
+
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BenchmarkTests {
+
+    @Test
+    public void countsCallsAndErrors() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Benchmark benchmark = new Benchmark(() -> {
+            ResponseDTO response = mock(ResponseDTO.class);
+            when(response.getCode()).thenReturn(calls.incrementAndGet() % 4 == 0 ? 1 : 0);
+            return response;
+        }, 200, 0, 0, 4).run();
+        assertEquals(200, benchmark.getHistogram().getTotalCount());
+        assertEquals(200, calls.get());
+        assertTrue(benchmark.report().contains("错误数:50"));
+    }
+
+    @Test
+    public void warmupIsNotRecorded() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Benchmark benchmark = new Benchmark(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException();
+        }, 10, 0, 5, 1).run();
+        assertEquals(15, calls.get());
+        assertEquals(10, benchmark.getHistogram().getTotalCount());
+        assertTrue(benchmark.report().contains("错误率:100.00%"));
+    }
+}
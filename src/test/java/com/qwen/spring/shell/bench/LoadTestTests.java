@@ -0,0 +1,116 @@
+package com.qwen.spring.shell.bench;
+
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LoadTestTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void arrivalsFollowTheRateOfEachStage() {
+        LoadTest constant = new LoadTest(100, 1, 10).stage(100, 10);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), constant.timeOf(1), 1000);
+        assertEquals(TimeUnit.SECONDS.toNanos(5), constant.timeOf(500), 1000);
+
+        // 0 -> 100/s in 10s: n(t) = 5t^2
+        LoadTest ramp = new LoadTest(0, 1, 10).stage(100, 10).stage(100, 10);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), ramp.timeOf(5), 1000);
+        assertEquals(TimeUnit.SECONDS.toNanos(10), ramp.timeOf(500), 1000);
+        assertEquals(TimeUnit.SECONDS.toNanos(11), ramp.timeOf(600), 1000);
+    }
+
+    @Test
+    public void slowCallsDelayLaterRequestsInsteadOfTheSchedule() throws Exception {
+        LoadTest load = new LoadTest(200, 1, 10).stage(200, 0.1);
+        load.target("slow", 1, seq -> {
+            sleep(20);
+            ResponseDTO response = new ResponseDTO();
+            response.setCode(0);
+            return response;
+        });
+        load.run();
+        assertEquals(20, load.getScheduled());
+        assertEquals(20, load.getHistogram().getTotalCount());
+        // 单线程每20ms完成一个, 最后一个比安排的时间晚约300ms
+        assertTrue(load.getHistogram().getMaxValue() > TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(load.getLate() >= 15);
+    }
+
+    @Test
+    public void scenarioMixesMethodsByWeightAndExpandsPlaceholders() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        AtomicInteger first = new AtomicInteger();
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> {
+            if(params.size() == 1) {
+                first.incrementAndGet();
+            } else {
+                ids.add(params.get(0).getRight());
+            }
+            return "\"ok\"";
+        });
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+
+        File scenario = folder.newFile("scenario.json");
+        FileUtils.writeStringToFile(scenario, "{\"calls\": [" +
+                "{\"method\": \"method0\", \"args\": [\"${seq}\", \"x\"], \"weight\": 3}," +
+                "{\"method\": \"find\", \"args\": [1], \"weight\": 1}]}", StandardCharsets.UTF_8);
+        File output = new File(folder.getRoot(), "load.hgrm");
+
+        String report = commands.load(scenario.getPath(), 400d, 1, 0, 8, 100, output.getPath());
+        assertTrue(report, report.startsWith("安排:400 完成:400 未完成:0"));
+        assertTrue(report, report.contains("component0Service.find"));
+        // 3:1的比例, 留出随机波动的余量
+        assertTrue(String.valueOf(first.get()), first.get() > 50 && first.get() < 150);
+        assertEquals(400 - first.get(), ids.size());
+        assertTrue(FileUtils.readFileToString(output, StandardCharsets.UTF_8).contains("# 合计"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
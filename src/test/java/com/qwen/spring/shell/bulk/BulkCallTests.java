@@ -0,0 +1,107 @@
+package com.qwen.spring.shell.bulk;
+
+import com.google.gson.Gson;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BulkCallTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void csvRowsAreBoundByHeaderName() throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> String.format("{\"id\":%s,\"name\":%s}", params.get(0).getRight(), new Gson().toJson(params.get(1).getRight())));
+        Commands commands = connect(service);
+        File input = folder.newFile("rows.csv");
+        FileUtils.writeLines(input, "UTF-8", Arrays.asList("name,id", "\"a, \"\"b\"\"\",1", "", "c,2"));
+        File output = new File(folder.getRoot(), "out.ndjson");
+
+        String report = commands.callMethod("method0", output.getPath(), null, false, false, null, input.getPath(), 2, false, null);
+        assertTrue(report, report.startsWith("行数:2 成功:2 失败:0 跳过:0"));
+        List<String> lines = FileUtils.readLines(output, StandardCharsets.UTF_8);
+        lines.sort(null);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0), lines.get(0).matches("\\{\"row\":1,\"code\":0,\"ms\":\\d+,\"result\":\\{\"id\":1,\"name\":\"a, \\\\\"b\\\\\"\"}}"));
+        assertTrue(lines.get(1), lines.get(1).startsWith("{\"row\":2,\"code\":0,"));
+    }
+
+    @Test
+    public void resumeRetriesOnlyRowsWithoutAResponse() throws Exception {
+        AtomicBoolean broken = new AtomicBoolean(true);
+        AtomicInteger calls = new AtomicInteger();
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> {
+            calls.incrementAndGet();
+            if(broken.get() && "3".equals(params.get(0).getRight())) {
+                throw new IllegalStateException("down");
+            }
+            return "\"ok\"";
+        });
+        Commands commands = connect(service);
+        File input = folder.newFile("rows.ndjson");
+        FileUtils.writeLines(input, "UTF-8", Arrays.asList("[1, \"a\"]", "{\"id\": 2, \"name\": \"b\"}", "[3, \"c\"]", "[4, \"d\"]"));
+        File output = new File(folder.getRoot(), "out.ndjson");
+
+        String report = commands.callMethod("method0", output.getPath(), null, false, false, null, input.getPath(), 4, false, null);
+        assertTrue(report, report.startsWith("行数:4 成功:3 失败:1 跳过:0"));
+        // a crash in the middle of a line
+        FileUtils.writeStringToFile(output, "{\"row\":4,\"co", StandardCharsets.UTF_8, true);
+
+        broken.set(false);
+        calls.set(0);
+        report = commands.callMethod("method0", output.getPath(), null, false, false, null, input.getPath(), 4, true, null);
+        assertTrue(report, report.startsWith("行数:4 成功:1 失败:0 跳过:3"));
+        assertEquals(1, calls.get());
+        List<String> lines = FileUtils.readLines(output, StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(4), lines.get(4).matches("\\{\"row\":3,\"code\":0,\"ms\":\\d+,\"result\":\"ok\"}"));
+    }
+
+    @Test
+    public void splitsQuotedCsvValues() {
+        assertEquals(Arrays.asList("a", "b,c", "say \"hi\"", ""), BulkCall.splitCsv("a, \"b,c\",\"say \"\"hi\"\"\","));
+    }
+
+    private Commands connect(StubShellRemoteService service) throws Exception {
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        return ShellFixture.commands(shell, properties, null);
+    }
+}
@@ -0,0 +1,112 @@
+package com.qwen.spring.shell.command;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.qwen.spring.shell.support.StubShellRemoteService.field;
+import static com.qwen.spring.shell.support.StubShellRemoteService.method;
+import static org.junit.Assert.*;
+
+public class CallPlanTests {
+
+    private static final MethodInfo BY_ID = method("find", "java.lang.String", field("id", "java.lang.Long"));
+
+    private static final MethodInfo BY_NAME = method("find", "java.lang.String", field("name", "java.lang.String"));
+
+    private static final MethodInfo BY_ID_AND_NAME = method("find", "java.lang.String", field("id", "java.lang.Long"), field("name", "java.lang.String"));
+
+    private static final MethodInfo BY_ORDER = method("find", "java.lang.String", field("order", "com.example.Order"));
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void overloadsAreChosenByArityAndType() {
+        assertSame(BY_ID, select("[1]", BY_ID, BY_NAME, BY_ID_AND_NAME).getMethod());
+        assertSame(BY_NAME, select("[\"abc\"]", BY_ID, BY_NAME, BY_ID_AND_NAME).getMethod());
+        assertSame(BY_ID_AND_NAME, select("[1, \"abc\"]", BY_ID, BY_NAME, BY_ID_AND_NAME).getMethod());
+        assertSame(BY_ID_AND_NAME, select("{\"id\":1,\"name\":\"abc\"}", BY_ID, BY_NAME, BY_ID_AND_NAME).getMethod());
+        // 字符串形式的数字仍可以转换为Long, 但精确匹配String的重载
+        assertSame(BY_NAME, select("[\"12\"]", BY_ID, BY_NAME).getMethod());
+        assertSame(BY_ORDER, select("[{\"orderId\":1}]", BY_NAME, BY_ORDER).getMethod());
+    }
+
+    @Test
+    public void equallyGoodOverloadsAreRejected() {
+        MethodInfo byInteger = method("find", "java.lang.String", field("id", "java.lang.Integer"));
+
+        assertError("参数与方法[find]的多个重载匹配, 请使用参数名", "[1]", BY_ID, byInteger);
+        // 只给出name时, find(name)和缺少id的find(id, name)一样匹配
+        assertError("参数与方法[find]的多个重载匹配, 请使用参数名", "{\"name\":\"abc\"}", BY_NAME, BY_ID_AND_NAME);
+    }
+
+    @Test
+    public void unknownNamesMatchNoOverloadAndMissingNamesAreNull() {
+        assertError("方法[find]没有与参数匹配的重载", "{\"id\":1,\"other\":2}", BY_ID, BY_ID_AND_NAME);
+        assertError("方法[find]没有与参数匹配的重载", "[1, \"abc\", 2]", BY_ID, BY_ID_AND_NAME);
+        assertError("方法[find]没有与参数匹配的重载", "[\"abc\"]", BY_ID);
+
+        Pair<CallPlan, JsonElement[]> plan = CallPlan.select("find", plans(BY_ID_AND_NAME), "{\"id\":1}");
+        List<Pair<String, String>> params = plan.getLeft().bind(plan.getRight(), containers(), gson);
+        assertEquals(Arrays.asList(Pair.of("java.lang.Long", "1"), Pair.of("java.lang.String", "<NULL>")), params);
+    }
+
+    @Test
+    public void containerReferencesAreSubstituted() {
+        Container order = new Container();
+        order.setName("ORDER");
+        order.setType("com.example.Order");
+        order.setValue("{\"orderId\":1}");
+
+        Pair<CallPlan, JsonElement[]> plan = CallPlan.select("find", plans(BY_NAME, BY_ORDER), "{\"order\":\"<ORDER>\"}");
+        List<Pair<String, String>> params = plan.getLeft().bind(plan.getRight(), containers(order), gson);
+        assertEquals(Collections.singletonList(Pair.of("com.example.Order", "{\"orderId\":1}")), params);
+
+        // 对象的类型与参数不同
+        Pair<CallPlan, JsonElement[]> byName = CallPlan.select("find", plans(BY_NAME), "[\"<ORDER>\"]");
+        try {
+            byName.getLeft().bind(byName.getRight(), containers(order), gson);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("类型不正确[java.lang.String]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void invalidArgumentsAreReported() {
+        assertError("参数[[1]不是有效的JSON", "[1", BY_ID);
+        assertError("参数必须是JSON数组或对象", "1", BY_ID);
+    }
+
+    private static CallPlan select(String args, MethodInfo... methods) {
+        return CallPlan.select("find", plans(methods), args).getLeft();
+    }
+
+    private static void assertError(String message, String args, MethodInfo... methods) {
+        try {
+            CallPlan.select("find", plans(methods), args);
+            fail(args);
+        } catch (RuntimeException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static List<CallPlan> plans(MethodInfo... methods) {
+        return Arrays.stream(methods).map(CallPlan::new).collect(Collectors.toList());
+    }
+
+    private static Function<String, Container> containers(Container... containers) {
+        return name -> Arrays.stream(containers)
+                .filter(container -> container.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException(String.format("对象[%s]不存在", name)));
+    }
+}
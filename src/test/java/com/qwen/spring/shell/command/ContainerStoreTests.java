@@ -0,0 +1,77 @@
+package com.qwen.spring.shell.command;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ContainerStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ContainerStore store;
+
+    @After
+    public void close() {
+        if(store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void largeValuesAreSpilledAndReadBack() throws Exception {
+        store = new ContainerStore(1024, 100, folder.getRoot());
+        String value = "{\"name\":\"" + StringUtils.repeat("值", 200) + "\"}";
+        store.put(container("BIG", value));
+        Container container = store.get("BIG");
+        assertTrue(container.isSpilled());
+        assertEquals(value, container.getValue());
+        try(Reader reader = container.openReader()) {
+            assertEquals(value, IOUtils.toString(reader));
+        }
+        File target = folder.newFile("big.json");
+        container.writeTo(target);
+        assertEquals(value, FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void leastRecentlyUsedValuesAreSpilledOverBudget() {
+        store = new ContainerStore(200, 1000, folder.getRoot());
+        store.put(container("A", StringUtils.repeat("a", 40)));
+        store.put(container("B", StringUtils.repeat("b", 40)));
+        store.get("A");
+        store.put(container("C", StringUtils.repeat("c", 40)));
+        assertFalse(store.get("A").isSpilled());
+        assertTrue(store.get("B").isSpilled());
+        assertFalse(store.get("C").isSpilled());
+        assertEquals(StringUtils.repeat("b", 40), store.get("B").getValue());
+    }
+
+    @Test
+    public void replacingAValueDeletesItsSpillFile() {
+        store = new ContainerStore(1024, 10, folder.getRoot());
+        store.put(container("RESULT", StringUtils.repeat("x", 100)));
+        store.put(container("RESULT", StringUtils.repeat("y", 100)));
+        File[] sessions = folder.getRoot().listFiles();
+        assertEquals(1, sessions.length);
+        assertEquals(1, sessions[0].listFiles().length);
+    }
+
+    private static Container container(String name, String value) {
+        Container container = new Container();
+        container.setName(name);
+        container.setType("java.lang.String");
+        container.setValue(value);
+        return container;
+    }
+}
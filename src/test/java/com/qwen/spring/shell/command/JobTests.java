@@ -0,0 +1,98 @@
+package com.qwen.spring.shell.command;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class JobTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        release.countDown();
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void resultsLandInTheirOwnContainers() throws Exception {
+        Commands commands = connect("pooled", params -> "{\"id\":" + params.get(0).getRight() + "}");
+        assertEquals("任务[1]已提交", commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[1, \"a\"]"));
+        assertEquals("任务[2]已提交", commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[2, \"a\"]"));
+        commands.await(null, 10);
+
+        assertEquals("{\"id\":1}", shell.getContainer("JOB1").getValue());
+        assertEquals("{\"id\":2}", shell.getContainer("JOB2").getValue());
+        assertTrue(shell.getJobs().list().stream().allMatch(job -> job.getState() == Job.State.DONE));
+    }
+
+    @Test
+    public void cancelAbortsThePooledConnection() throws Exception {
+        cancelAbortsTheConnection("pooled");
+    }
+
+    @Test
+    public void cancelAbortsTheSimpleConnection() throws Exception {
+        cancelAbortsTheConnection("simple");
+    }
+
+    private void cancelAbortsTheConnection(String transport) throws Exception {
+        Commands commands = connect(transport, params -> {
+            if("1".equals(params.get(0).getRight())) {
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "{}";
+        });
+        commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[1, \"a\"]");
+        commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[2, \"a\"]");
+        Job slow = shell.getJobs().get(1);
+        while(slow.getState() != Job.State.RUNNING) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals("已取消", commands.cancel(1, false));
+
+        // the only job thread is released by the aborted request, not by the server
+        assertTrue(shell.getJobs().get(2).await(5000));
+        assertEquals(Job.State.DONE, shell.getJobs().get(2).getState());
+        assertEquals(Job.State.CANCELLED, slow.getState());
+    }
+
+    private Commands connect(String transport, Function<List<Pair<String, String>>, String> result) throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(result);
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        properties.setTransport(transport);
+        properties.setJobThreads(1);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        return ShellFixture.commands(shell, properties, null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.qwen.spring.shell.support.StubShellRemoteService.field;
+import static com.qwen.spring.shell.support.StubShellRemoteService.method;
+import static org.junit.Assert.*;
+
+public class BroadcastTests {
+
+    private static final MethodInfo METHOD0 = method("method0", "java.lang.String", field("id", "java.lang.Long"), field("name", "java.lang.String"));
+
+    private static final List<Pair<String, String>> PARAMS = Arrays.asList(Pair.of("java.lang.Long", "1"), Pair.of("java.lang.String", "\"a\""));
+
+    private final List<StubServer> servers = new ArrayList<>();
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        servers.forEach(StubServer::close);
+    }
+
+    @Test
+    public void nodesAreGroupedByResultAndEveryDifferenceIsCounted() throws Exception {
+        String first = server("{\"a\":1,\"b\":[1,2]}");
+        String second = server("{\"b\":[1,2],\"a\":1}");
+        StringBuilder changed = new StringBuilder("{\"a\":2,\"b\":[");
+        for(int i = 0; i < 30; i++) {
+            changed.append(i == 0 ? "" : ",").append(i);
+        }
+        String third = server(changed.append("]}").toString());
+        connect(first);
+        shell.registerNodeGroup("all", Arrays.asList(first, second, third));
+
+        String report = shell.broadcast("all", METHOD0, PARAMS, 5000);
+
+        assertTrue(report, report.startsWith("节点:3 分组:2\n[组1] 2个节点\n  " + first));
+        assertTrue(report, report.contains("\n[组2] 1个节点\n  " + third));
+        assertTrue(report, report.contains("\n  与组1的差异(31处):\n    $.a: 1 -> 2\n    $.b[0]: 1 -> 0\n"));
+        assertEquals(report, 20, report.split("\n    \\$").length - 1);
+        assertTrue(report, report.endsWith("\n    ..."));
+    }
+
+    @Test
+    public void nodeGroupsSurviveATransportChange() throws Exception {
+        String node = server("{\"a\":1}");
+        connect(node);
+        shell.registerNodeGroup("one", Collections.singletonList(node));
+        shell.setTransport("pooled", null, null, null);
+
+        String report = shell.broadcast("one", METHOD0, PARAMS, 5000);
+
+        assertTrue(report, report.startsWith("节点:1 分组:1\n[组1] 1个节点\n  " + node));
+        assertFalse(report, report.contains("超时") || report.contains("null"));
+    }
+
+    @Test
+    public void aSlowNodeTimesOutAndItsRequestIsAborted() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        Map<String, Callable<ResponseDTO>> calls = new LinkedHashMap<>();
+        calls.put("fast", () -> response("{}"));
+        calls.put("slow", () -> {
+            RequestAbort.register(aborted::countDown);
+            // like a blocking socket read: interrupts are ignored, only the abort ends the wait
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(aborted.getCount() > 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            return response("{}");
+        });
+        Broadcast broadcast = new Broadcast(2, 100, 20);
+
+        long begin = System.nanoTime();
+        List<Broadcast.NodeResult> results = broadcast.run(calls);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 2000);
+        assertTrue(aborted.await(1, TimeUnit.SECONDS));
+        assertNull(results.get(0).getError());
+        assertEquals("超时(100ms)", results.get(1).getError());
+        assertTrue(broadcast.report(results).startsWith("节点:2 分组:2\n[组1] 1个节点\n  fast"));
+    }
+
+    private String server(String result) throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> result);
+        StubServer server = new StubServer(service);
+        servers.add(server);
+        return server.getUri();
+    }
+
+    private void connect(String url) {
+        shell = ShellFixture.shell(new ShellProperties());
+        shell.setUrl(url);
+        shell.useComponent("component0Service");
+    }
+
+    private static ResponseDTO response(String result) {
+        ResponseDTO response = new ResponseDTO();
+        response.setCode(0);
+        response.setResult(result);
+        return response;
+    }
+}
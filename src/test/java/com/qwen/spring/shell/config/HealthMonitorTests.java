@@ -0,0 +1,115 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.remoting.RemoteConnectFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class HealthMonitorTests {
+
+    private HealthMonitor health;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(health != null) {
+            health.close();
+        }
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndRecoversThroughOneTrial() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        AtomicInteger reached = new AtomicInteger();
+        StubShellRemoteService stub = new StubShellRemoteService(1, 1);
+        ShellRemoteService target = (ShellRemoteService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ShellRemoteService.class}, (proxy, method, args) -> {
+                    reached.incrementAndGet();
+                    if(down.get()) {
+                        throw new RemoteConnectFailureException("refused", new ConnectException());
+                    }
+                    return method.invoke(stub, args);
+                });
+        health = new HealthMonitor("http://stub", () -> {}, 0, 2, 100);
+        ShellRemoteService guarded = health.guard(target);
+
+        for(int i = 0; i < 2; i++) {
+            try {
+                guarded.echo(null);
+                fail();
+            } catch (RemoteConnectFailureException e) {
+                // 连接失败原样抛出
+            }
+        }
+        assertEquals(HealthMonitor.State.OPEN, health.getState());
+        try {
+            guarded.echo(null);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("服务[http://stub]不可用"));
+        }
+        assertEquals(2, reached.get());
+
+        Thread.sleep(150);
+        down.set(false);
+        assertEquals("ok", guarded.echo(null));
+        assertEquals(HealthMonitor.State.CLOSED, health.getState());
+        assertEquals(3, reached.get());
+    }
+
+    @Test
+    public void promptShowsTheHeartbeatRoundTripUntilTheServerGoesDown() throws Exception {
+        server = new StubServer(new StubShellRemoteService(1, 1));
+        ShellProperties properties = new ShellProperties();
+        properties.setHeartbeatInterval(20);
+        properties.setBreakerFailureThreshold(1);
+        properties.setBreakerOpenDuration(60000);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        RemotePromptProvider prompt = new RemotePromptProvider();
+        ReflectionTestUtils.setField(prompt, "shell", shell);
+
+        waitFor(() -> prompt.getPrompt().matches("spring\\[\\d+ms]:>"));
+        server.close();
+        server = null;
+        waitFor(() -> "spring[down]:>".equals(prompt.getPrompt()));
+        long begin = System.nanoTime();
+        try {
+            shell.echo();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("不可用"));
+        }
+        assertTrue(System.nanoTime() - begin < 100_000_000);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
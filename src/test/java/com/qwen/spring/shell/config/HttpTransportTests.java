@@ -0,0 +1,121 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportTests {
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    private Commands commands;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void pooledCallsReuseOneConnection() throws Exception {
+        connect();
+        for(int i = 0; i < 5; i++) {
+            call(1);
+        }
+
+        String stats = shell.getTransport().stats();
+        long requests = metric(stats, "请求数");
+        // echo, 组件列表和方法列表之后的5次调用
+        assertTrue(stats, requests >= 7);
+        assertEquals(stats, 1, metric(stats, "新建连接"));
+        assertEquals(stats, requests - 1, metric(stats, "复用连接"));
+        assertTrue(stats, stats.contains(String.format("复用率:%.2f%%", (requests - 1) * 100d / requests)));
+        assertTrue(stats, stats.contains("连接池(使用/空闲/等待/上限):0/1/0/20"));
+    }
+
+    @Test
+    public void switchingTransportRebuildsTheSessionProxies() throws Exception {
+        connect();
+        HttpTransport pooled = shell.getTransport();
+
+        commands.configServer(null, null, null, null, null, null, "simple", null, 2000, null, null);
+        HttpTransport simple = shell.getTransport();
+        assertNotSame(pooled, simple);
+        assertEquals("simple", simple.getType());
+        assertEquals(2000, simple.getReadTimeout());
+        assertEquals(pooled.getConnectTimeout(), simple.getConnectTimeout());
+        call(1);
+        assertEquals("{\"id\":1}", shell.getContainer("RESULT").getValue());
+        assertFalse(simple.stats().contains("复用率"));
+
+        commands.configServer(null, null, null, null, null, null, "pooled", null, null, null, null);
+        HttpTransport next = shell.getTransport();
+        assertEquals(0, metric(next.stats(), "请求数"));
+        call(1);
+        // 调用经过新的连接池, 而不是已关闭的旧连接池
+        assertEquals(1, metric(next.stats(), "请求数"));
+        assertEquals(2000, next.getReadTimeout());
+    }
+
+    @Test
+    public void readsTimeOutByDefault() throws Exception {
+        assertEquals(60000, new ShellProperties().getReadTimeout());
+        connect();
+        assertEquals(60000, shell.getTransport().getReadTimeout());
+
+        commands.configServer(null, null, null, null, null, null, null, null, 200, null, null);
+        long begin = System.nanoTime();
+        try {
+            call(2000);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue((System.nanoTime() - begin) / 1_000_000 < 1500);
+        }
+    }
+
+    private void connect() throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> {
+            long id = Long.parseLong(params.get(0).getRight());
+            try {
+                Thread.sleep(id > 1 ? id : 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"id\":" + id + "}";
+        });
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        // 心跳会在后台发出请求, 影响请求数和连接数
+        properties.setHeartbeatInterval(0);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        commands = ShellFixture.commands(shell, properties, null);
+    }
+
+    private void call(long id) throws Exception {
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[" + id + ", \"a\"]");
+    }
+
+    private static long metric(String stats, String name) {
+        Matcher matcher = Pattern.compile(name + ":(\\d+)").matcher(stats);
+        assertTrue(stats, matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+}
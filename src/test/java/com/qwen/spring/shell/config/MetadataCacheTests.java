@@ -0,0 +1,133 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qwen.spring.shell.support.StubShellRemoteService.method;
+import static org.junit.Assert.*;
+
+public class MetadataCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private StubServer first;
+
+    private StubServer second;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(first != null) {
+            first.close();
+        }
+        if(second != null) {
+            second.close();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedComponentsAreEvicted() {
+        MetadataCache cache = new MetadataCache(2, 0);
+        cache.getMethods("a", loader("a"));
+        cache.getMethods("b", loader("b"));
+        assertEquals("a", cache.getMethods("a", loader("a")).get(0).getName());
+
+        cache.getMethods("c", loader("c"));
+
+        assertEquals(3, loads.get());
+        assertNotNull(cache.getMethodsIfPresent("a"));
+        assertNull(cache.getMethodsIfPresent("b"));
+        assertNotNull(cache.getMethodsIfPresent("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void entriesExpireAfterTheTtl() throws Exception {
+        MetadataCache cache = new MetadataCache(10, 1);
+        cache.getMethods("a", loader("a"));
+        cache.getMethods("a", loader("a"));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(1100);
+
+        assertNull(cache.getMethodsIfPresent("a"));
+        cache.getMethods("a", loader("a"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void changingTheUrlOrPassReloadsTheMethods() throws Exception {
+        first = new StubServer(countingService());
+        second = new StubServer(countingService());
+        ShellProperties properties = new ShellProperties();
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(first.getUri());
+        shell.useComponent("component0Service");
+        assertEquals(1, loads.get());
+        shell.methodsNamed("component0Service", "method0");
+        assertEquals(1, loads.get());
+
+        shell.setPass("secret");
+        assertNull(shell.getMetadataCache().getMethodsIfPresent("component0Service"));
+        shell.methodsNamed("component0Service", "method0");
+        assertEquals(2, loads.get());
+
+        shell.setUrl(second.getUri());
+        assertNull(shell.getMetadataCache().getMethodsIfPresent("component0Service"));
+        shell.methodsNamed("component0Service", "method0");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void cacheReportsSizeAndHitRates() throws Exception {
+        first = new StubServer(countingService());
+        ShellProperties properties = new ShellProperties();
+        properties.setMetadataCacheSize(8);
+        properties.setMetadataCacheTtl(600);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(first.getUri());
+        shell.useComponent("component0Service");
+        shell.methodsNamed("component0Service", "method0");
+        shell.methodsNamed("component0Service", "method0");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+
+        String report = commands.cache(false, null, null);
+
+        assertTrue(report, report.startsWith("方法列表缓存 容量:1/8\nTTL:600s\n命中:2\n未命中:1\n命中率:66.67%\n淘汰:0\n"));
+        assertEquals("完成", commands.cache(true, null, null));
+        assertEquals(0, shell.getMetadataCache().size());
+    }
+
+    private Callable<List<MethodInfo>> loader(String name) {
+        return () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(method(name, "java.lang.String"));
+        };
+    }
+
+    private StubShellRemoteService countingService() {
+        return new StubShellRemoteService(1, 1) {
+            @Override
+            public List<MethodInfo> listMethods(String pass, String component) {
+                loads.incrementAndGet();
+                return super.listMethods(pass, component);
+            }
+        };
+    }
+}
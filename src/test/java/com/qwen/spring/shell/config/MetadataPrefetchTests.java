@@ -0,0 +1,130 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qwen.spring.shell.support.StubShellRemoteService.field;
+import static com.qwen.spring.shell.support.StubShellRemoteService.method;
+import static org.junit.Assert.*;
+
+public class MetadataPrefetchTests {
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    private MetadataPrefetch prefetch;
+
+    @After
+    public void close() {
+        if(prefetch != null) {
+            prefetch.cancel();
+        }
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void navigationAfterWarmUpDoesNotReachTheServer() throws Exception {
+        AtomicInteger listMethods = new AtomicInteger();
+        AtomicInteger listClassFields = new AtomicInteger();
+        server = new StubServer(new StubShellRemoteService(3, 2) {
+            @Override
+            public List<MethodInfo> listMethods(String pass, String component) {
+                listMethods.incrementAndGet();
+                return super.listMethods(pass, component);
+            }
+
+            @Override
+            public List<FieldInfo> listClassFields(String pass, String className) {
+                listClassFields.incrementAndGet();
+                return "com.example.Order".equals(className)
+                        ? Arrays.asList(field("orderId", "java.lang.Long"), field("items", "java.util.List<com.example.OrderItem>"))
+                        : Collections.singletonList(field("order", "com.example.Order"));
+            }
+        });
+        ShellProperties properties = new ShellProperties();
+        properties.setPrefetch(true);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+
+        assertTrue(shell.getPrefetch().await(5, TimeUnit.SECONDS));
+        assertTrue(shell.getPrefetch().status(), shell.getPrefetch().status().contains("Component:3/3\n类:2/2\n失败:0"));
+        assertEquals(3, listMethods.get());
+        assertEquals(2, listClassFields.get());
+
+        shell.useComponent("component1Service");
+        assertEquals(3, shell.listClassFields("com.example.Order").size() + shell.listClassFields("com.example.OrderItem").size());
+        assertEquals(3, listMethods.get());
+        assertEquals(2, listClassFields.get());
+    }
+
+    @Test
+    public void interactiveLoadsRunBeforeQueuedPrefetches() throws Exception {
+        AtomicInteger loaded = new AtomicInteger();
+        prefetch = new MetadataPrefetch(2, component -> {
+            loaded.incrementAndGet();
+            return Collections.emptyList();
+        }, className -> Collections.emptyList());
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread interactive = new Thread(() -> prefetch.foreground(() -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        interactive.start();
+        entered.await();
+
+        prefetch.start(Arrays.asList("a", "b", "c"));
+        Thread.sleep(100);
+        assertEquals(0, loaded.get());
+
+        release.countDown();
+        assertTrue(prefetch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, loaded.get());
+        interactive.join();
+    }
+
+    @Test
+    public void cancelStopsRequestsInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        prefetch = new MetadataPrefetch(1, component -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("interrupted");
+            }
+            return Collections.emptyList();
+        }, className -> Collections.emptyList());
+        prefetch.start(Arrays.asList("a", "b"));
+        started.await();
+
+        prefetch.cancel();
+        assertFalse(prefetch.await(1, TimeUnit.SECONDS));
+        assertTrue(prefetch.status(), prefetch.status().startsWith("预取已取消\nComponent:0/2"));
+        assertTrue(prefetch.status(), prefetch.status().endsWith("失败:0"));
+    }
+}
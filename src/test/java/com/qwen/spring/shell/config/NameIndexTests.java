@@ -0,0 +1,44 @@
+package com.qwen.spring.shell.config;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class NameIndexTests {
+
+    private final NameIndex index = new NameIndex(Arrays.asList("updateOrderInfo", "getOrderList", "getOwner", "getOrderInfo", "listOrders"));
+
+    @Test
+    public void exactMatchIsCaseSensitive() {
+        assertTrue(index.contains("getOrderInfo"));
+        assertFalse(index.contains("getorderinfo"));
+        assertFalse(index.contains("getOrder"));
+    }
+
+    @Test
+    public void prefixIgnoresCase() {
+        assertEquals(Arrays.asList("getOrderInfo", "getOrderList"), index.prefix("getOrder"));
+        assertEquals(Arrays.asList("getOrderInfo", "getOrderList"), index.prefix("GETORDER"));
+        assertEquals(Collections.singletonList("getOrderList"), index.prefix("getorderl"));
+        assertEquals(Collections.emptyList(), index.prefix("order"));
+        assertEquals(5, index.prefix("").size());
+    }
+
+    @Test
+    public void humpsMatchTheStartOfEachWord() {
+        assertEquals("getOrderInfo", index.fuzzy("gOI").get(0));
+        // getOrderList只按子序列匹配, 排在驼峰匹配之后
+        assertEquals(Arrays.asList("getOrderInfo", "getOrderList"), index.fuzzy("gOI"));
+        assertEquals(Collections.singletonList("updateOrderInfo"), index.fuzzy("uOI"));
+    }
+
+    @Test
+    public void ambiguousQueriesReturnEveryMatchShortestFirst() {
+        assertEquals(Arrays.asList("getOwner", "getOrderInfo", "getOrderList"), index.fuzzy("gO"));
+        assertEquals(Arrays.asList("getOrderInfo", "getOrderList"), index.fuzzy("GETORDER"));
+        assertEquals(Collections.emptyList(), index.fuzzy("xyz"));
+    }
+}
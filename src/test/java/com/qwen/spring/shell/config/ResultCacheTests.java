@@ -0,0 +1,138 @@
+package com.qwen.spring.shell.config;
+
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTests {
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void componentRulesTakePrecedenceOverMethodRules() {
+        Map<String, Long> ttls = new HashMap<>();
+        ttls.put("getOrder", 60L);
+        ttls.put("orderService.getOrder", 5L);
+        ttls.put("orderService.listOrders", 0L);
+        ResultCache cache = new ResultCache(1000, ttls);
+
+        assertEquals(5, cache.ttlFor("orderService", "getOrder"));
+        assertEquals(60, cache.ttlFor("itemService", "getOrder"));
+        assertEquals(0, cache.ttlFor("orderService", "listOrders"));
+
+        cache.setTtl("orderService.getOrder", 0);
+        assertEquals(60, cache.ttlFor("orderService", "getOrder"));
+        assertEquals(Collections.singletonMap("getOrder", 60L), cache.getTtls());
+    }
+
+    @Test
+    public void expiredResultsAreMisses() throws Exception {
+        ResultCache cache = new ResultCache(1000, null);
+        cache.put("a", response("{}"), 1);
+        cache.put("b", response("{}"), 60);
+
+        assertNotNull(cache.get("a", "orderService", "getOrder"));
+        Thread.sleep(1100);
+        assertNull(cache.get("a", "orderService", "getOrder"));
+        assertNotNull(cache.get("b", "orderService", "getOrder"));
+    }
+
+    @Test
+    public void resultsAreEvictedByLengthLeastRecentlyUsedFirst() {
+        ResultCache cache = new ResultCache(100, null);
+        String result = StringUtils.repeat("x", 40);
+        cache.put("k1", response(result), 60);
+        cache.put("k2", response(result), 60);
+        assertNotNull(cache.get("k1", "orderService", "getOrder"));
+
+        // k1, k2和k3的键和结果共126个字符, 超过上限时淘汰最久未使用的k2
+        cache.put("k3", response(result), 60);
+
+        assertNotNull(cache.get("k1", "orderService", "getOrder"));
+        assertNull(cache.get("k2", "orderService", "getOrder"));
+        assertNotNull(cache.get("k3", "orderService", "getOrder"));
+        String stats = cache.stats();
+        assertTrue(stats, stats.startsWith("结果缓存 条数:2 字符数:80/100 淘汰:1\n"));
+    }
+
+    @Test
+    public void hitRatiosAreReportedPerMethod() {
+        ResultCache cache = new ResultCache(1000, null);
+        cache.put("a", response("{}"), 60);
+        cache.get("a", "orderService", "getOrder");
+        cache.get("a", "orderService", "getOrder");
+        cache.get("a", "orderService", "getOrder");
+        cache.get("b", "orderService", "getOrder");
+        cache.get("c", "itemService", "getItem");
+
+        String stats = cache.stats();
+        assertTrue(stats, stats.contains("\n命中:3\n未命中:2\n命中率:60.00%"));
+        assertTrue(stats, stats.contains("\n  itemService.getItem 命中:0 未命中:1 命中率:0.00%"));
+        assertTrue(stats, stats.contains("\n  orderService.getOrder 命中:3 未命中:1 命中率:75.00%"));
+    }
+
+    @Test
+    public void noCacheCallsTheServerAndRefreshesTheResult() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> "{\"call\":" + calls.incrementAndGet() + "}");
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        properties.setResultCacheTtls(Collections.singletonMap("method0", 60L));
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+
+        call(commands, false);
+        call(commands, false);
+        assertEquals(1, calls.get());
+        assertEquals("{\"call\":1}", shell.getContainer("RESULT").getValue());
+
+        call(commands, true);
+        assertEquals(2, calls.get());
+        assertEquals("{\"call\":2}", shell.getContainer("RESULT").getValue());
+
+        call(commands, false);
+        assertEquals(2, calls.get());
+        assertEquals("{\"call\":2}", shell.getContainer("RESULT").getValue());
+        // --no-cache的调用不查找缓存, 不计入命中率
+        assertTrue(shell.getResultCache().stats().contains("\n  component0Service.method0 命中:2 未命中:1 命中率:66.67%"));
+    }
+
+    private static void call(Commands commands, boolean noCache) throws Exception {
+        commands.callMethod("method0", null, 1, noCache, false, null, null, 4, false, "[1, \"a\"]");
+    }
+
+    private static ResponseDTO response(String result) {
+        ResponseDTO response = new ResponseDTO();
+        response.setCode(0);
+        response.setResult(result);
+        return response;
+    }
+}
@@ -0,0 +1,108 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private StubServer first;
+
+    private StubServer second;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        release.countDown();
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(first != null) {
+            first.close();
+        }
+        if(second != null) {
+            second.close();
+        }
+    }
+
+    @Test
+    public void sessionsKeepTheirOwnEndpointLocationAndObjects() throws Exception {
+        first = new StubServer(new StubShellRemoteService(1, 1));
+        second = new StubServer(new StubShellRemoteService(3, 1));
+        ShellProperties properties = new ShellProperties();
+        shell = ShellFixture.shell(properties);
+        Commands commands = ShellFixture.commands(shell, properties, null);
+        RemotePromptProvider prompt = new RemotePromptProvider();
+        ReflectionTestUtils.setField(prompt, "shell", shell);
+
+        shell.setUrl(first.getUri());
+        shell.useComponent("component0Service");
+        shell.putContainer("A", "java.lang.String", "\"first\"");
+
+        assertEquals("当前会话[staging]", commands.session("staging", second.getUri(), false));
+        assertTrue(prompt.getPrompt(), prompt.getPrompt().startsWith("spring@staging"));
+        assertNull(shell.getCurrentComponent());
+        assertEquals(3, shell.listComponents(null, false).size());
+        shell.useComponent("component2Service");
+        shell.putContainer("A", "java.lang.String", "\"second\"");
+
+        commands.session(SpringRemoteShell.DEFAULT_SESSION, null, false);
+        assertEquals("component0Service", shell.getCurrentComponent());
+        assertEquals(1, shell.listComponents(null, false).size());
+        assertEquals("\"first\"", shell.getContainer("A").getValue());
+
+        String sessions = commands.session(null, null, false);
+        assertTrue(sessions, sessions.startsWith("* default " + first.getUri() + " 位置:component0Service"));
+        assertTrue(sessions, sessions.contains("\n  staging " + second.getUri() + " 位置:component2Service 对象:1"));
+        try {
+            commands.session(SpringRemoteShell.DEFAULT_SESSION, null, true);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("不能关闭当前会话", e.getMessage());
+        }
+        assertEquals("已关闭", commands.session("staging", null, true));
+        assertFalse(commands.session(null, null, false).contains("staging"));
+    }
+
+    @Test
+    public void backgroundJobsStayInTheSessionTheyWereSubmittedFrom() throws Exception {
+        StubShellRemoteService slow = new StubShellRemoteService(1, 1);
+        slow.setResult(params -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"from\":\"first\"}";
+        });
+        first = new StubServer(slow);
+        second = new StubServer(new StubShellRemoteService(1, 1));
+        ShellProperties properties = new ShellProperties();
+        shell = ShellFixture.shell(properties);
+        Commands commands = ShellFixture.commands(shell, properties, null);
+        shell.setUrl(first.getUri());
+        shell.useComponent("component0Service");
+
+        assertEquals("任务[1]已提交", commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[1, \"a\"]"));
+        commands.session("other", second.getUri(), false);
+        release.countDown();
+        commands.await(null, 10);
+
+        assertTrue(shell.listContainerKeys().isEmpty());
+        commands.session(SpringRemoteShell.DEFAULT_SESSION, null, false);
+        assertEquals("{\"from\":\"first\"}", shell.getContainer("JOB1").getValue());
+    }
+}
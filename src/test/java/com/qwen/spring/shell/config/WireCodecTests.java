@@ -0,0 +1,103 @@
+package com.qwen.spring.shell.config;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class WireCodecTests {
+
+    private static final String TEXT = StringUtils.repeat("compressible ", 1000);
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void pooledRequestsAreCompressedAfterNegotiation() throws Exception {
+        requestsAreCompressedAfterNegotiation("pooled", "gzip");
+    }
+
+    @Test
+    public void simpleRequestsAreCompressedAfterNegotiation() throws Exception {
+        requestsAreCompressedAfterNegotiation("simple", "deflate");
+    }
+
+    private void requestsAreCompressedAfterNegotiation(String transport, String compression) throws Exception {
+        Commands commands = connect(transport, compression, true);
+        String args = "[1, \"" + TEXT + "\"]";
+
+        // the metadata requests made while connecting are small and only negotiate the codec
+        assertEquals(0, server.getCompressedRequests());
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, args);
+        assertEquals(1, server.getCompressedRequests());
+
+        assertEquals("{\"text\":\"" + TEXT + "\"}", shell.getContainer("RESULT").getValue());
+        String report = shell.getCallStats().report("method0");
+        assertTrue(report, report.contains("codec"));
+        assertFalse(report, report.contains("压缩节省:0字节"));
+    }
+
+    @Test
+    public void serversWithoutCompressionStillWork() throws Exception {
+        Commands commands = connect("pooled", "gzip", false);
+        String args = "[1, \"" + TEXT + "\"]";
+
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, args);
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, args);
+
+        assertEquals(0, server.getCompressedRequests());
+        assertEquals("{\"text\":\"" + TEXT + "\"}", shell.getContainer("RESULT").getValue());
+        assertTrue(shell.getCallStats().report("method0").contains("压缩节省:0字节"));
+    }
+
+    @Test
+    public void acceptanceIsTrackedPerServerAndResetOnReconnect() throws Exception {
+        WireCodec codec = new WireCodec("gzip", 16, -1);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        codec.negotiate("http://a:8080/shellRemote", "gzip, deflate");
+        codec.negotiate("http://b:8080/shellRemote", "identity");
+
+        assertTrue(WireCodec.isEncoded(codec.encode("http://a:8080/other", body)));
+        assertFalse(WireCodec.isEncoded(codec.encode("http://b:8080/shellRemote", body)));
+        assertFalse(WireCodec.isEncoded(codec.encode("http://a:9090/shellRemote", body)));
+        assertTrue(codec.stats(), codec.stats().contains("接受压缩请求的服务端:1/2"));
+
+        codec.reset("http://a:8080");
+        assertFalse(WireCodec.isEncoded(codec.encode("http://a:8080/shellRemote", body)));
+    }
+
+    private Commands connect(String transport, String compression, boolean serverCompression) throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> "{\"text\":\"" + params.get(1).getRight() + "\"}");
+        server = new StubServer(service, serverCompression);
+        ShellProperties properties = new ShellProperties();
+        properties.setTransport(transport);
+        properties.setCompression(compression);
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        return ShellFixture.commands(shell, properties, null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.qwen.spring.shell.journal;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CallJournalTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CallJournal journal;
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() throws Exception {
+        if(journal != null) {
+            journal.close();
+        }
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void searchFiltersOnTheIndexNewestFirst() throws Exception {
+        journal = new CallJournal(folder.getRoot(), 1024 * 1024, 0);
+        for(int i = 1; i <= 100; i++) {
+            journal.append(entry(i % 2 == 0 ? "even" : "odd", i % 10 == 0 ? 1 : 0, i * 10_000));
+        }
+
+        List<JournalEntry> slowEven = journal.search("even", 500, false, 3);
+        assertEquals(3, slowEven.size());
+        assertEquals(100, slowEven.get(0).getId());
+        assertEquals(96, slowEven.get(2).getId());
+        assertEquals(10, journal.search(null, 0, true, 100).size());
+        assertEquals(0, journal.search("even", 0, false, 100).stream().filter(e -> !"even".equals(e.getMethod())).count());
+        assertEquals("odd", journal.get(51).getMethod());
+        assertNull(journal.get(101));
+    }
+
+    @Test
+    public void rotationDeletesTheOldestSegments() throws Exception {
+        journal = new CallJournal(folder.getRoot(), 1024, 3);
+        for(int i = 0; i < 200; i++) {
+            journal.append(entry("method", 0, 1000));
+        }
+
+        assertEquals(6, folder.getRoot().list((dir, name) -> name.endsWith(".idx") || name.endsWith(".dat")).length);
+        assertTrue(journal.getFirstId() > 1);
+        assertNull(journal.get(1));
+        assertEquals(200, journal.get(200).getId());
+        assertEquals(journal.getLastId() - journal.getFirstId() + 1, journal.search(null, 0, false, 1000).size());
+    }
+
+    @Test
+    public void reopeningDropsAPartialWriteAndContinuesTheIds() throws Exception {
+        journal = new CallJournal(folder.getRoot(), 1024 * 1024, 0);
+        journal.append(entry("first", 0, 1000));
+        journal.append(entry("second", 0, 1000));
+        journal.close();
+        // a crash after the data line and half of the index record
+        File[] files = folder.getRoot().listFiles();
+        for(File file: files) {
+            try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(raf.length());
+                raf.write(new byte[file.getName().endsWith(".idx") ? 20 : 50]);
+            }
+        }
+
+        journal = new CallJournal(folder.getRoot(), 1024 * 1024, 0);
+        assertEquals(3, journal.append(entry("third", 0, 1000)));
+        assertEquals("second", journal.get(2).getMethod());
+        assertEquals("third", journal.get(3).getMethod());
+    }
+
+    @Test
+    public void writersSharingADirectoryContinueEachOthersIds() throws Exception {
+        journal = new CallJournal(folder.getRoot(), 1024, 0);
+        try(CallJournal other = new CallJournal(folder.getRoot(), 1024, 0)) {
+            for(int i = 0; i < 50; i++) {
+                assertEquals(2 * i + 1, journal.append(entry("first", 0, 1000)));
+                assertEquals(2 * i + 2, other.append(entry("second", 0, 1000)));
+            }
+        }
+
+        assertEquals("first", journal.get(99).getMethod());
+        assertEquals("second", journal.get(100).getMethod());
+        assertEquals(100, journal.search(null, 0, false, 1000).size());
+        assertEquals(50, journal.search("second", 0, false, 1000).size());
+    }
+
+    @Test
+    public void replayCallsTheRecordedMethodAgain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StubShellRemoteService service = new StubShellRemoteService(1, 2);
+        service.setResult(params -> "{\"call\":" + calls.incrementAndGet() + "}");
+        server = new StubServer(service);
+        ShellProperties properties = new ShellProperties();
+        properties.setJournalDirectory(folder.getRoot().getPath());
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+
+        commands.callMethod("method0", null, null, false, false, null, null, 4, false, "[1, \"a\"]");
+        commands.callMethod("method1", null, null, false, false, null, null, 4, false, "[2, \"b\"]");
+        String history = commands.history("method0", null, false, 20);
+        assertTrue(history, history.startsWith("#1 ") && history.contains("component0Service.method0("));
+
+        commands.replay(1, null, null);
+        assertEquals("{\"call\":3}", shell.getContainer("RESULT").getValue());
+        JournalEntry replayed = shell.getJournal().get(3);
+        assertEquals("method0", replayed.getMethod());
+        assertEquals(shell.getJournal().get(1).getParamTypes(), replayed.getParamTypes());
+        assertEquals(server.getUri(), replayed.getUrl());
+        assertEquals(SpringRemoteShell.DEFAULT_SESSION, replayed.getSession());
+    }
+
+    @Test
+    public void replayRefusesAnotherEndpoint() throws Exception {
+        server = new StubServer(new StubShellRemoteService(1, 1));
+        ShellProperties properties = new ShellProperties();
+        properties.setJournalDirectory(folder.getRoot().getPath());
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        Commands commands = ShellFixture.commands(shell, properties, null);
+        commands.callMethod("method0", null, null, false, false, null, null, 4, false, "[1, \"a\"]");
+
+        try(StubServer other = new StubServer(new StubShellRemoteService(1, 1))) {
+            commands.session("staging", other.getUri(), false);
+            shell.useComponent("component0Service");
+            try {
+                commands.replay(1, null, null);
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals(String.format("调用[1]发往[%s](会话[default]), 与当前会话的地址不同", server.getUri()), e.getMessage());
+            }
+            assertNull(shell.getJournal().get(2));
+        }
+    }
+
+    private static JournalEntry entry(String method, int code, long latencyUs) {
+        List<Pair<String, String>> params = Collections.singletonList(Pair.of("java.lang.Integer", "1"));
+        return new JournalEntry("default", "http://localhost", "component", method, "java.lang.String", params, code, null, 10, latencyUs);
+    }
+}
@@ -0,0 +1,69 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.JsonParser;
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qwen.spring.shell.support.StubShellRemoteService.field;
+import static org.junit.Assert.*;
+
+public class ClassSchemaTests {
+
+    private static final Map<String, List<FieldInfo>> CLASSES = new HashMap<>();
+
+    static {
+        CLASSES.put("com.example.Order", Arrays.asList(field("orderId", "java.lang.Long"), field("paid", "boolean"),
+                field("items", "java.util.List<com.example.OrderItem>"), field("tags", "java.util.Map<java.lang.String, java.lang.Integer>"),
+                field("parent", "com.example.Order")));
+        CLASSES.put("com.example.OrderItem", Arrays.asList(field("sku", "java.lang.String"), field("price", "java.math.BigDecimal"),
+                field("quantity", "int"), field("order", "com.example.Order")));
+    }
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final ClassSchema schema = new ClassSchema(className -> {
+        loads.incrementAndGet();
+        return CLASSES.getOrDefault(className, Collections.emptyList());
+    });
+
+    @Test
+    public void templateExpandsNestedClassesAndStopsAtCycles() {
+        String expected = "{\"orderId\":0,\"paid\":false,\"items\":[{\"sku\":\"\",\"price\":0,\"quantity\":0,\"order\":null}],"
+                + "\"tags\":{},\"parent\":null}";
+        assertEquals(new JsonParser().parse(expected), new JsonParser().parse(schema.template("com.example.Order")));
+        assertEquals(2, loads.get());
+
+        ClassSchema.Node order = schema.resolve("com.example.Order");
+        assertSame(order, order.getFields().get("parent"));
+        assertSame(order, order.getFields().get("items").getElement().getFields().get("order"));
+        assertEquals(ClassSchema.Kind.INTEGER, schema.resolve("java.util.Map<java.lang.String, java.util.List<java.lang.Long>>").getElement().getElement().getKind());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void templateOfAClassIsValid() {
+        assertEquals(Collections.emptyList(), schema.validate("com.example.Order", new JsonParser().parse(schema.template("com.example.Order"))));
+    }
+
+    @Test
+    public void validateReportsEveryMismatchWithItsPath() {
+        String json = "{\"orderId\":\"12\",\"paid\":\"yes\",\"items\":[{\"sku\":1,\"price\":\"abc\",\"quantity\":null},"
+                + "{\"quantity\":1.5,\"color\":\"red\"}],\"parent\":{\"parent\":{\"items\":{}}}}";
+        assertEquals(Arrays.asList(
+                "$.paid: 应为true或false",
+                "$.items[0].sku: 应为[java.lang.String]",
+                "$.items[0].price: 应为数字[java.math.BigDecimal]",
+                "$.items[0].quantity: [int]不能为null",
+                "$.items[1].quantity: 应为整数[int]",
+                "$.items[1].color: [com.example.OrderItem]没有这个字段",
+                "$.parent.parent.items: 应为数组[java.util.List<com.example.OrderItem>]"),
+                schema.validate("com.example.Order", new JsonParser().parse(json)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.qwen.spring.shell.json;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonDiffTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ignoresKeyOrder() throws Exception {
+        JsonDiff.Result result = new JsonDiff(null, 50).diff("{\"a\":1,\"b\":{\"c\":[1,2],\"d\":{}}}", "{\"b\":{\"d\":{},\"c\":[1,2]},\"a\":1}");
+        assertEquals(0, result.getTotal());
+        assertEquals("没有差异", result.toString());
+    }
+
+    @Test
+    public void listsChangedPathsInOrder() throws Exception {
+        JsonDiff.Result result = new JsonDiff(null, 50).diff("{\"a\":1,\"b\":[1,2],\"c d\":\"x\"}", "{\"a\":2,\"b\":[1],\"e\":null,\"c d\":\"x\"}");
+        assertEquals(Arrays.asList("~ $.a: 1 -> 2", "- $.b[1]: 2", "+ $.e: null"), result.getChanges());
+        assertEquals(3, result.getTotal());
+    }
+
+    @Test
+    public void matchesArrayElementsByKey() throws Exception {
+        String left = "{\"items\":[{\"id\":1,\"qty\":1},{\"id\":2,\"qty\":2},{\"qty\":3}]}";
+        String right = "{\"items\":[{\"qty\":2,\"id\":2},{\"qty\":5,\"id\":1},{\"qty\":3}]}";
+        assertEquals(4, new JsonDiff(null, 50).diff(left, right).getTotal());
+        assertEquals(Arrays.asList("~ $.items[id=1].qty: 1 -> 5"), new JsonDiff("id", 50).diff(left, right).getChanges());
+    }
+
+    @Test
+    public void mergesSortedChunksFromDisk() throws Exception {
+        StringBuilder left = new StringBuilder("[");
+        StringBuilder right = new StringBuilder("[");
+        for(int i = 0; i < 2000; i++) {
+            left.append(i == 0 ? "" : ",").append(String.format("{\"id\":\"k%d\",\"v\":%d}", i, i));
+            right.insert(1, String.format("{\"id\":\"k%d\",\"v\":%d}", i, i % 500 == 0 ? -1 : i) + (i == 0 ? "" : ","));
+        }
+        JsonDiff.Result result = new JsonDiff("id", 2, 1024, folder.getRoot()).diff(left.append("]").toString(), right.append("]").toString());
+        assertEquals(4, result.getModified());
+        assertEquals(2, result.getChanges().size());
+        assertEquals("~ $[id=\"k0\"].v: 0 -> -1", result.getChanges().get(0));
+        assertEquals(0, folder.getRoot().list().length);
+    }
+}
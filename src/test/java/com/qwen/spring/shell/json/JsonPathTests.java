@@ -0,0 +1,69 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonPathTests {
+
+    private static final String JSON = "{\"total\":2,\"items\":[{\"orderId\":11,\"lines\":[{\"sku\":\"a\"}]},{\"orderId\":12,\"lines\":[{\"sku\":\"b\"},{\"sku\":\"c\"}]}],\"page\":{\"no\":1}}";
+
+    @Test
+    public void selectsWildcardsSlicesAndDescendants() throws Exception {
+        assertEquals("[11,12]", select("$.items[*].orderId", JSON));
+        assertEquals("[11,12]", select("items[0,1].orderId", JSON));
+        assertEquals("[\"a\",\"b\",\"c\"]", select("$..sku", JSON));
+        assertEquals("[{\"sku\":\"b\"}]", select("$.items[1].lines[0:1]", JSON));
+        assertEquals("[2,{\"no\":1}]", select("$['total','page']", JSON));
+        assertEquals("[]", select("$.items[*].missing", JSON));
+    }
+
+    @Test
+    public void definitePathWritesTheValueAndStopsReading() throws Exception {
+        assertTrue(JsonPath.compile("$.items[1].lines").isDefinite());
+        assertEquals("[{\"sku\":\"b\"},{\"sku\":\"c\"}]", select("$.items[1].lines", JSON));
+        // 找到后不再读取, 后面的内容即使格式错误也不影响
+        assertEquals("2", select("$.total", "{\"total\":2,\"rest\":[1,2,"));
+        assertEquals(JSON, select("$", JSON));
+    }
+
+    @Test
+    public void printerReportsMissingDefinitePath() throws Exception {
+        StringWriter out = new StringWriter();
+        assertTrue(new JsonPrinter(0, JsonPath.compile("$.page.size")).print(JSON, out));
+        assertEquals("(路径[$.page.size]没有匹配)", out.toString());
+        out = new StringWriter();
+        assertFalse(new JsonPrinter(2, JsonPath.compile("$.items[*].orderId")).print(JSON, out));
+        assertEquals("[\n  11,", out.toString());
+    }
+
+    @Test
+    public void rejectsUnsupportedExpressions() {
+        for(String expression: new String[]{"$.items[?(@.orderId>11)]", "$.items[-1]", "$.items[0", "$.."}) {
+            try {
+                JsonPath.compile(expression);
+                fail(expression);
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(expression));
+            }
+        }
+    }
+
+    private static String select(String expression, String json) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonReader reader = new JsonReader(new StringReader(json));
+        JsonWriter writer = new JsonWriter(out);
+        JsonPath.compile(expression).select(reader, writer);
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.qwen.spring.shell.json;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonPrinterTests {
+
+    private static final String JSON = "{\"id\":1,\"name\":\"a<b>\",\"price\":12.50,\"empty\":null,\"tags\":[\"x\",\"y\"],\"nested\":{\"ok\":true,\"list\":[]}}";
+
+    @Test
+    public void matchesGsonPrettyPrinting() throws Exception {
+        StringWriter out = new StringWriter();
+        assertTrue(new JsonPrinter(0).print(JSON, out));
+        String expected = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(new JsonParser().parse(JSON));
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    public void stopsAtMaxLines() throws Exception {
+        StringWriter out = new StringWriter();
+        assertFalse(new JsonPrinter(3).print(JSON, out));
+        assertEquals("{\n  \"id\": 1,\n  \"name\": \"a<b>\",", out.toString());
+    }
+
+    @Test
+    public void notesTruncatedJson() throws Exception {
+        StringWriter out = new StringWriter();
+        assertTrue(new JsonPrinter(0).print("{\"id\": 1, \"items\": [1, 2", out));
+        assertTrue(out.toString(), out.toString().startsWith("{\n  \"id\": 1,\n  \"items\": [\n    1,\n    2\n(JSON格式错误: End of input"));
+    }
+
+    @Test
+    public void writesPlainTextUnchanged() throws Exception {
+        StringWriter out = new StringWriter();
+        assertTrue(new JsonPrinter(0).print("hello world", out));
+        assertEquals("hello world", out.toString());
+    }
+}
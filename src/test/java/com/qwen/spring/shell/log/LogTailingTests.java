@@ -0,0 +1,170 @@
+package com.qwen.spring.shell.log;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class LogTailingTests {
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void logsArriveWhileTheCallIsRunning() throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        server = new StubServer(service);
+        shell = connect("/shellLog");
+        AtomicBoolean seenDuringCall = new AtomicBoolean();
+        service.setResult(params -> {
+            server.appendLog("2017-07-01 INFO  job started\n");
+            long deadline = System.currentTimeMillis() + 5000;
+            while(!seenDuringCall.get() && System.currentTimeMillis() < deadline) {
+                seenDuringCall.set(!shell.getLogBuffer().select(0, null, null).isEmpty());
+                sleep(10);
+            }
+            server.appendLog("2017-07-01 ERROR job failed\n\tat com.example.Job.run\n");
+            return "{}";
+        });
+        server.appendLog("2017-07-01 INFO  before the call\n");
+        commands().callMethod("method0", null, null, false, false, null, null, 4, false, "[1, \"a\"]");
+
+        assertTrue(seenDuringCall.get());
+        assertEquals(3, texts(shell.getLogBuffer().select(0, null, null)).size());
+        assertEquals("\tat com.example.Job.run", texts(shell.getLogBuffer().select(0, LogBuffer.Level.ERROR, null)).get(1));
+        assertEquals("2017-07-01 INFO  job started\n2017-07-01 ERROR job failed\n\tat com.example.Job.run",
+                shell.getContainer("LOG").getValue());
+    }
+
+    @Test
+    public void concurrentCallsShareOnePollAndTheLinesAreNotDuplicated() throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        server = new StubServer(service);
+        shell = connect("/shellLog");
+        shell.setPass("secret");
+        CountDownLatch running = new CountDownLatch(2);
+        service.setResult(params -> {
+            running.countDown();
+            try {
+                running.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            server.appendLog("2017-07-01 INFO  tailed " + params.get(0).getRight() + "\n");
+            sleep(100);
+            return "{}";
+        });
+        Commands commands = commands();
+        commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[1, \"a\"]");
+        commands.callMethod("method0", null, null, false, true, null, null, 4, false, "[2, \"a\"]");
+        commands.await(null, 10);
+
+        List<String> tailed = texts(shell.getLogBuffer().select(0, null, Pattern.compile("tailed")));
+        assertEquals(tailed.toString(), 2, tailed.size());
+        assertEquals(2, new HashSet<>(tailed).size());
+        assertTrue(server.getLastLogRequest(), server.getLastLogRequest().matches("offset=\\d+ secret"));
+    }
+
+    @Test
+    public void responseLogsAreUsedWithoutAnEndpoint() throws Exception {
+        server = new StubServer(new StubShellRemoteService(1, 1));
+        shell = connect("/missing");
+        Commands commands = commands();
+        commands.callMethod("method0", null, null, false, false, null, null, 4, false, "[1, \"a\"]");
+        commands.callMethod("method0", null, null, false, false, null, null, 4, false, "[2, \"a\"]");
+
+        assertEquals(1, shell.getLogBuffer().select(shell.getLogBuffer().getCurrentCall(), null, null).size());
+        assertTrue(commands.log(null, null, null, 100, true, false).endsWith("(第1/1页, 共2行)"));
+    }
+
+    @Test
+    public void logShowsTheLastForegroundCallOfTheCurrentSession() throws Exception {
+        server = new StubServer(new StubShellRemoteService(1, 1));
+        shell = connect("/missing");
+        Commands commands = commands();
+        assertNull(commands.log(null, null, null, 100, false, false));
+        commands.callMethod("method0", null, null, false, false, null, null, 4, false, "[1, \"a\"]");
+
+        // 后台任务的调用不改变默认显示的调用
+        shell.invoke("component0Service", shell.methodsNamed("find").get(0), Collections.singletonList(Pair.of("java.lang.Long", "1")));
+        assertEquals("component0Service.method0\n(第1/1页, 共1行)", commands.log(null, null, null, 100, false, false));
+
+        commands.session("other", server.getUri(), false);
+        assertNull(commands.log(null, null, null, 100, false, false));
+        shell.useComponent("component0Service");
+        commands.callMethod("find", null, null, false, false, null, null, 4, false, "[1]");
+        assertEquals("component0Service.find\n(第1/1页, 共1行)", commands.log(null, null, null, 100, false, false));
+
+        commands.session(SpringRemoteShell.DEFAULT_SESSION, null, false);
+        assertEquals("component0Service.method0\n(第1/1页, 共1行)", commands.log(null, null, null, 100, false, false));
+    }
+
+    @Test
+    public void ringBufferKeepsTheNewestLines() {
+        LogBuffer buffer = new LogBuffer(3);
+        long call = buffer.newCall();
+        buffer.append(call, "DEBUG one\r\nWARN two\n");
+        buffer.append(call, "  continued\nINFO three\nERROR four\n");
+
+        assertEquals(2, buffer.getDropped());
+        assertEquals(3, buffer.select(call, null, null).size());
+        assertEquals(2, buffer.select(call, LogBuffer.Level.WARN, null).size());
+        assertEquals(1, buffer.select(call, null, Pattern.compile("t[h]ree")).size());
+    }
+
+    private SpringRemoteShell connect(String logTailPath) {
+        ShellProperties properties = new ShellProperties();
+        properties.setLogTailPath(logTailPath);
+        properties.setLogTailInterval(20);
+        properties.setLogTailEcho(false);
+        SpringRemoteShell shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        return shell;
+    }
+
+    private Commands commands() {
+        ShellProperties properties = new ShellProperties();
+        properties.setResultMaxLines(1);
+        return ShellFixture.commands(shell, properties, null);
+    }
+
+    private static List<String> texts(List<LogBuffer.Line> lines) {
+        return lines.stream().map(LogBuffer.Line::getText).collect(Collectors.toList());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
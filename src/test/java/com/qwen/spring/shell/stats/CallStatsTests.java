@@ -0,0 +1,179 @@
+package com.qwen.spring.shell.stats;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.command.UserInput;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import com.qwen.spring.shell.support.ShellFixture;
+import com.qwen.spring.shell.support.StubServer;
+import com.qwen.spring.shell.support.StubShellRemoteService;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CallStatsTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubServer server;
+
+    private SpringRemoteShell shell;
+
+    @After
+    public void close() {
+        if(shell != null) {
+            shell.destroy();
+        }
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void readingTheResponseIsDeserializeNotRemote() throws Exception {
+        Commands commands = connect(new ShellProperties(), null);
+        server.setBodyDelay(300);
+
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[100, \"a\"]");
+
+        JsonObject call = lastCall();
+        // 服务端执行100ms, 之后用300ms写完响应体; 读取响应体的时间从REMOTE中扣除
+        assertTrue(call.toString(), call.get("remoteUs").getAsLong() >= 100_000);
+        assertTrue(call.toString(), call.get("remoteUs").getAsLong() < 300_000);
+        assertTrue(call.toString(), call.get("deserializeUs").getAsLong() >= 300_000);
+        long phases = 0;
+        for(CallTrace.Phase phase: CallTrace.Phase.values()) {
+            phases += call.has(phase.label() + "Us") ? call.get(phase.label() + "Us").getAsLong() : 0;
+        }
+        assertTrue(call.toString(), phases <= call.get("totalUs").getAsLong());
+    }
+
+    @Test
+    public void decompressionIsCodecNotRemote() throws Exception {
+        ShellProperties properties = new ShellProperties();
+        properties.setCompression("gzip");
+        Commands commands = connect(properties, null);
+
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[100, \"a\"]");
+
+        JsonObject call = lastCall();
+        assertTrue(call.toString(), call.has("codecUs"));
+        assertTrue(call.toString(), call.get("remoteUs").getAsLong() >= 100_000);
+        assertTrue(call.toString(), call.get("remoteUs").getAsLong() + call.get("codecUs").getAsLong()
+                + call.get("deserializeUs").getAsLong() <= call.get("totalUs").getAsLong());
+    }
+
+    @Test
+    public void waitingForInputIsNotPartOfTheCall() throws Exception {
+        Commands commands = connect(new ShellProperties(), new UserInput() {
+            @Override
+            public String promptWithOptions(String prompt, String defaultValue, String... options) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String prompt(String prompt, String defaultValue, boolean echo) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return prompt.contains("[id]") ? "1" : "a";
+            }
+        });
+
+        long begin = System.nanoTime();
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, null);
+        long elapsedUs = (System.nanoTime() - begin) / 1000;
+
+        JsonObject call = lastCall();
+        // 两次输入共等待600ms, 只有参数转换计入
+        assertTrue(elapsedUs >= 600_000);
+        assertTrue(call.toString(), call.get("totalUs").getAsLong() <= elapsedUs - 600_000);
+        assertTrue(call.toString(), call.has("convertUs"));
+        assertTrue(call.toString(), call.get("convertUs").getAsLong() < 300_000);
+    }
+
+    @Test
+    public void callsAreExportedAsCsvAndJson() throws Exception {
+        ShellProperties properties = new ShellProperties();
+        properties.setResultCacheTtls(Collections.singletonMap("method0", 60L));
+        Commands commands = connect(properties, null);
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[1, \"a\"]");
+        commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[1, \"a\"]");
+        try {
+            commands.callMethod("method0", null, 1, false, false, null, null, 4, false, "[13, \"a\"]");
+            fail();
+        } catch (RuntimeException e) {
+            // 服务端抛出异常, 记录为失败的调用
+        }
+
+        File csv = folder.newFile("stats.csv");
+        assertEquals("完成", commands.stats(null, csv.getPath(), null, false));
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals("startedAt,component,method,success,cached,convertUs,serializeUs,codecUs,remoteUs,deserializeUs,renderUs,"
+                + "totalUs,bytesSent,bytesReceived,bytesSaved", lines.get(0));
+        assertTrue(lines.get(1), lines.get(1).matches("\\d+,component0Service,method0,true,false,\\d+,\\d+,,\\d+,\\d+,\\d+,\\d+,[1-9]\\d*,[1-9]\\d*,0"));
+        // 缓存命中的调用没有发出请求
+        assertTrue(lines.get(2), lines.get(2).matches("\\d+,component0Service,method0,true,true,\\d+,,,,,\\d+,\\d+,0,0,0"));
+        assertTrue(lines.get(3), lines.get(3).matches("\\d+,component0Service,method0,false,false,.*"));
+
+        File json = folder.newFile("stats.json");
+        commands.stats(null, json.getPath(), null, false);
+        JsonObject exported = parse(json);
+        JsonObject method = exported.getAsJsonArray("methods").get(0).getAsJsonObject();
+        assertEquals("component0Service.method0", method.get("method").getAsString());
+        assertEquals(3, method.get("count").getAsLong());
+        assertEquals(1, method.get("errors").getAsLong());
+        assertEquals(1, method.get("cached").getAsLong());
+        JsonObject phases = method.getAsJsonObject("phases");
+        assertEquals(3, phases.getAsJsonObject("total").get("count").getAsLong());
+        assertEquals(2, phases.getAsJsonObject("remote").get("count").getAsLong());
+        assertFalse(phases.has("codec"));
+        assertEquals(3, exported.getAsJsonArray("calls").size());
+    }
+
+    private Commands connect(ShellProperties properties, UserInput userInput) throws Exception {
+        StubShellRemoteService service = new StubShellRemoteService(1, 1);
+        service.setResult(params -> {
+            long id = Long.parseLong(params.get(0).getRight());
+            if(id == 13) {
+                throw new IllegalStateException("failed");
+            }
+            try {
+                Thread.sleep(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"id\":" + id + "}";
+        });
+        server = new StubServer(service, properties.getCompression() != null && !"off".equals(properties.getCompression()));
+        shell = ShellFixture.shell(properties);
+        shell.setUrl(server.getUri());
+        shell.useComponent("component0Service");
+        return ShellFixture.commands(shell, properties, userInput);
+    }
+
+    private JsonObject lastCall() throws Exception {
+        File file = folder.newFile();
+        shell.getCallStats().writeJson(file);
+        return parse(file).getAsJsonArray("calls").get(0).getAsJsonObject();
+    }
+
+    private static JsonObject parse(File file) throws Exception {
+        return new JsonParser().parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+}
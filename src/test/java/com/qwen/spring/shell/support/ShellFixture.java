@@ -0,0 +1,36 @@
+package com.qwen.spring.shell.support;
+
+import com.qwen.spring.shell.ShellProperties;
+import com.qwen.spring.shell.command.Commands;
+import com.qwen.spring.shell.command.UserInput;
+import com.qwen.spring.shell.config.SpringRemoteShell;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Wires {@link SpringRemoteShell} and {@link Commands} by hand, without starting the
+ * Spring Shell context and its prompt loop. The call journal is disabled unless the test
+ * gives it a directory, so tests never write to the user's home.
+ */
+public class ShellFixture {
+
+    private ShellFixture() {
+    }
+
+    public static SpringRemoteShell shell(ShellProperties properties) {
+        if(properties.getJournalDirectory() == null) {
+            properties.setJournalEnabled(false);
+        }
+        SpringRemoteShell shell = new SpringRemoteShell();
+        ReflectionTestUtils.setField(shell, "shellProperties", properties);
+        shell.init();
+        return shell;
+    }
+
+    public static Commands commands(SpringRemoteShell shell, ShellProperties properties, UserInput userInput) {
+        Commands commands = new Commands();
+        ReflectionTestUtils.setField(commands, "shell", shell);
+        ReflectionTestUtils.setField(commands, "shellProperties", properties);
+        ReflectionTestUtils.setField(commands, "userInput", userInput);
+        return commands;
+    }
+}
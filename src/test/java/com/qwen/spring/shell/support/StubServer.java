@@ -0,0 +1,195 @@
+package com.qwen.spring.shell.support;
+
+import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.remoting.httpinvoker.SimpleHttpInvokerServiceExporter;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.FilterOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Exposes a {@link ShellRemoteService} over HttpInvoker on a local ephemeral port, the
+ * same way the remote application does under <code>/shellRemote</code>. Log lines added
+ * with {@link #appendLog(String)} are served from <code>/shellLog</code> using the
+ * polling protocol of {@link com.qwen.spring.shell.log.LogTailer}. With compression
+ * enabled the exporter compresses results for clients that accept it, and announces
+ * <code>Accept-Encoding: gzip, deflate</code> for compressed requests.
+ * {@link #setBodyDelay(long)} holds back the end of every HttpInvoker response body, so the
+ * client spends that time reading the body rather than waiting for the headers.
+ */
+public class StubServer implements AutoCloseable {
+
+    private static final Pattern OFFSET = Pattern.compile("offset=(\\d+)");
+
+    static {
+        // the JDK server writes chunked responses in several packets; without TCP_NODELAY every
+        // call waits out the client's delayed ACK (~40ms) and hides the real latency
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final StringBuffer logs = new StringBuffer();
+
+    private final AtomicInteger compressedRequests = new AtomicInteger();
+
+    private volatile String lastLogRequest;
+
+    private volatile long bodyDelay;
+
+    public StubServer(ShellRemoteService service) throws IOException {
+        this(service, false);
+    }
+
+    public StubServer(ShellRemoteService service, boolean compression) throws IOException {
+        SimpleHttpInvokerServiceExporter exporter = compression ? new CompressingExporter() : new Exporter();
+        exporter.setService(service);
+        exporter.setServiceInterface(ShellRemoteService.class);
+        exporter.afterPropertiesSet();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/shellRemote", exporter);
+        this.server.createContext("/shellLog", this::serveLogs);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    public void appendLog(String text) {
+        this.logs.append(text);
+    }
+
+    /**
+     * Milliseconds to wait before finishing each HttpInvoker response body.
+     */
+    public void setBodyDelay(long bodyDelay) {
+        this.bodyDelay = bodyDelay;
+    }
+
+    /**
+     * The number of requests that arrived with a <code>Content-Encoding</code>.
+     */
+    public int getCompressedRequests() {
+        return this.compressedRequests.get();
+    }
+
+    /**
+     * The query and <code>X-Shell-Pass</code> header of the last log poll.
+     */
+    public String getLastLogRequest() {
+        return this.lastLogRequest;
+    }
+
+    private void serveLogs(HttpExchange exchange) throws IOException {
+        this.lastLogRequest = exchange.getRequestURI().getQuery() + " " + exchange.getRequestHeaders().getFirst("X-Shell-Pass");
+        Matcher matcher = OFFSET.matcher(String.valueOf(exchange.getRequestURI().getQuery()));
+        String text;
+        int next;
+        synchronized (this.logs) {
+            next = this.logs.length();
+            text = matcher.find() ? this.logs.substring(Math.min(Integer.parseInt(matcher.group(1)), next)) : "";
+        }
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("X-Log-Offset", String.valueOf(next));
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * The uri to pass to <code>config --uri</code>.
+     */
+    public String getUri() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+    }
+
+    private class Exporter extends SimpleHttpInvokerServiceExporter {
+
+        @Override
+        protected OutputStream decorateOutputStream(HttpExchange exchange, OutputStream os) throws IOException {
+            return new FilterOutputStream(os) {
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    // the exporter flushes once, after the whole result is written
+                    long delay = bodyDelay;
+                    if (delay > 0) {
+                        try {
+                            Thread.sleep(delay);
+                        }
+                        catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    super.flush();
+                }
+            };
+        }
+    }
+
+    private class CompressingExporter extends Exporter {
+
+        @Override
+        protected InputStream decorateInputStream(HttpExchange exchange, InputStream is) throws IOException {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if (encoding == null) {
+                return is;
+            }
+            compressedRequests.incrementAndGet();
+            return "gzip".equals(encoding) ? new GZIPInputStream(is) : new InflaterInputStream(is);
+        }
+
+        @Override
+        protected void writeRemoteInvocationResult(HttpExchange exchange, RemoteInvocationResult result) throws IOException {
+            exchange.getResponseHeaders().set("Accept-Encoding", "gzip, deflate");
+            String encoding = responseEncoding(exchange);
+            if (encoding != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            }
+            super.writeRemoteInvocationResult(exchange, result);
+        }
+
+        @Override
+        protected void writeRemoteInvocationResult(HttpExchange exchange, RemoteInvocationResult result, OutputStream os) throws IOException {
+            String encoding = responseEncoding(exchange);
+            if (encoding == null) {
+                super.writeRemoteInvocationResult(exchange, result, os);
+                return;
+            }
+            DeflaterOutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(os) : new DeflaterOutputStream(os);
+            super.writeRemoteInvocationResult(exchange, result, out);
+            out.finish();
+        }
+
+        private String responseEncoding(HttpExchange exchange) {
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept == null) {
+                return null;
+            }
+            return accept.contains("gzip") ? "gzip" : accept.contains("deflate") ? "deflate" : null;
+        }
+    }
+}
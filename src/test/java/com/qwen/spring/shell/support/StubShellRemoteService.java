@@ -0,0 +1,86 @@
+package com.qwen.spring.shell.support;
+
+import com.nhsoft.provider.shell.remote.FieldInfo;
+import com.nhsoft.provider.shell.remote.MethodInfo;
+import com.nhsoft.provider.shell.remote.ResponseDTO;
+import com.nhsoft.provider.shell.remote.ShellRemoteService;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * In-process {@link ShellRemoteService} with a configurable number of synthetic
+ * components. Every component exposes the same methods and every call returns the result
+ * produced by {@link #setResult(Function)}.
+ */
+public class StubShellRemoteService implements ShellRemoteService {
+
+    private final List<FieldInfo> components = new ArrayList<>();
+
+    private final List<MethodInfo> methods = new ArrayList<>();
+
+    private volatile Function<List<Pair<String, String>>, String> result = params -> "{\"code\":0}";
+
+    public StubShellRemoteService(int componentCount, int methodCount) {
+        for (int i = 0; i < componentCount; i++) {
+            this.components.add(field("component" + i + "Service", "com.example.Component" + i + "Service"));
+        }
+        for (int i = 0; i < methodCount; i++) {
+            this.methods.add(method("method" + i, "java.lang.String", field("id", "java.lang.Long"), field("name", "java.lang.String")));
+        }
+        this.methods.add(method("find", "com.example.Order", field("orderId", "java.lang.Long")));
+    }
+
+    public void setResult(Function<List<Pair<String, String>>, String> result) {
+        this.result = result;
+    }
+
+    @Override
+    public String echo(String pass) {
+        return "ok";
+    }
+
+    @Override
+    public List<FieldInfo> listComponents(String pass, String prefix) {
+        return this.components;
+    }
+
+    @Override
+    public List<MethodInfo> listMethods(String pass, String component) {
+        return this.methods;
+    }
+
+    @Override
+    public List<FieldInfo> listClassFields(String pass, String className) {
+        return Arrays.asList(field("orderId", "java.lang.Long"), field("remark", "java.lang.String"));
+    }
+
+    @Override
+    public ResponseDTO callMethod(String pass, String component, String method, List<Pair<String, String>> params,
+            String logLevel, boolean enableDatabaseLog) {
+        ResponseDTO response = new ResponseDTO();
+        response.setCode(0);
+        response.setResult(this.result.apply(params));
+        response.setLogs(Collections.singletonList(String.format("%s.%s%n", component, method)));
+        return response;
+    }
+
+    public static FieldInfo field(String name, String type) {
+        FieldInfo field = new FieldInfo();
+        field.setName(name);
+        field.setType(type);
+        return field;
+    }
+
+    public static MethodInfo method(String name, String returnType, FieldInfo... params) {
+        MethodInfo method = new MethodInfo();
+        method.setName(name);
+        method.setReturnType(returnType);
+        method.setParams(new ArrayList<>(Arrays.asList(params)));
+        return method;
+    }
+}